@@ -0,0 +1,32 @@
+package org.eSante.influx;
+
+/**
+ * Columnar JSON with delta-encoded timestamps, served as {@link #MEDIA_TYPE}:
+ * {@code t[0]} is epoch millis, every following entry the gap to the previous point.
+ * Regular series turn into a run of identical small numbers, which also compresses
+ * well with gzip. {@code every} is the aggregation window of the points.
+ */
+public record DeltaSeries(String every, long[] t, double[] v) {
+
+    public static final String MEDIA_TYPE = "application/vnd.esante.series.delta+json";
+
+    /**
+     * @param times epoch millis, in increasing order
+     */
+    public static DeltaSeries of(String every, long[] times, double[] values) {
+        long[] deltas = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            deltas[i] = i == 0 ? times[0] : times[i] - times[i - 1];
+        }
+        return new DeltaSeries(every, deltas, values);
+    }
+
+    /** Epoch millis of each point */
+    public long[] times() {
+        long[] times = new long[t.length];
+        for (int i = 0; i < t.length; i++) {
+            times[i] = i == 0 ? t[0] : times[i - 1] + t[i];
+        }
+        return times;
+    }
+}
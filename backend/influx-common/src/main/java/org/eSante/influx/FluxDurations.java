@@ -0,0 +1,66 @@
+package org.eSante.influx;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Flux duration literals ({@code 5m}, {@code 1h30m}) to and from {@link Duration}.
+ */
+public final class FluxDurations {
+
+    private static final Pattern PART = Pattern.compile("(\\d+)(ns|us|\u00b5s|ms|s|m|h|d|w)");
+
+    private FluxDurations() {}
+
+    /** Null if {@code literal} is not a positive duration literal (months/years not supported). */
+    public static Duration parse(String literal) {
+        if (literal == null || literal.isBlank()) {
+            return null;
+        }
+        String text = literal.trim();
+        Matcher m = PART.matcher(text);
+        Duration total = Duration.ZERO;
+        int end = 0;
+        try {
+            while (m.find()) {
+                if (m.start() != end) {
+                    return null;
+                }
+                long amount = Long.parseLong(m.group(1));
+                total = total.plus(switch (m.group(2)) {
+                    case "ns" -> Duration.ofNanos(amount);
+                    case "us", "\u00b5s" -> Duration.ofNanos(Math.multiplyExact(amount, 1_000L));
+                    case "ms" -> Duration.ofMillis(amount);
+                    case "s" -> Duration.ofSeconds(amount);
+                    case "m" -> Duration.ofMinutes(amount);
+                    case "h" -> Duration.ofHours(amount);
+                    case "d" -> Duration.ofDays(amount);
+                    default -> Duration.ofDays(Math.multiplyExact(amount, 7L));
+                });
+                end = m.end();
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+        return end == text.length() && end > 0 ? total : null;
+    }
+
+    /** Literal of a positive duration, largest units first, e.g. "1d", "90m" as "1h30m" */
+    public static String format(Duration d) {
+        if (d.isNegative() || d.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + d);
+        }
+        StringBuilder out = new StringBuilder();
+        long millis = d.toMillis();
+        long[] units = {86_400_000L, 3_600_000L, 60_000L, 1_000L, 1L};
+        String[] names = {"d", "h", "m", "s", "ms"};
+        for (int i = 0; i < units.length; i++) {
+            if (millis >= units[i]) {
+                out.append(millis / units[i]).append(names[i]);
+                millis %= units[i];
+            }
+        }
+        return out.length() > 0 ? out.toString() : d.toNanos() + "ns";
+    }
+}
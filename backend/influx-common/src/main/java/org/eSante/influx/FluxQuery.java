@@ -0,0 +1,160 @@
+package org.eSante.influx;
+
+import com.influxdb.client.domain.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Values bound to a {@link FluxTemplate}.
+ * <p>
+ * InfluxDB Cloud takes them as the {@code params} of the query request
+ * ({@code toQuery(true)}). InfluxDB OSS 2.x ignores request params, so by default they
+ * are declared in front of the template as a Flux record,
+ * {@code params = {bucket: "mesure_data", ...}}, each value written as an escaped
+ * literal: the template body stays the same and the values cannot escape their literal.
+ */
+public final class FluxQuery {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_INSTANT;
+
+    private final FluxTemplate template;
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    FluxQuery(FluxTemplate template) {
+        this.template = template;
+    }
+
+    public FluxQuery string(String name, String value) {
+        return put(name, value);
+    }
+
+    public FluxQuery integer(String name, long value) {
+        return put(name, value);
+    }
+
+    public FluxQuery number(String name, double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Param " + name + " must be finite");
+        }
+        return put(name, value);
+    }
+
+    /** Read with {@code time(v: params.<name>)} */
+    public FluxQuery time(String name, Instant value) {
+        return put(name, ISO.format(value));
+    }
+
+    /** Read with {@code duration(v: params.<name>)} */
+    public FluxQuery duration(String name, Duration value) {
+        return put(name, FluxDurations.format(value));
+    }
+
+    /** Patient tag (stored as the decimal id) */
+    public FluxQuery patient(String name, long patientId) {
+        return put(name, Long.toString(patientId));
+    }
+
+    public FluxQuery strings(String name, List<String> value) {
+        return put(name, List.copyOf(value));
+    }
+
+    private FluxQuery put(String name, Object value) {
+        if (!template.getParams().contains(name)) {
+            throw new IllegalArgumentException("Template does not use params." + name);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Param " + name + " is null");
+        }
+        values.put(name, value);
+        return this;
+    }
+
+    public FluxTemplate getTemplate() {
+        return template;
+    }
+
+    public Map<String, Object> getValues() {
+        return Map.copyOf(values);
+    }
+
+    /** Query text with the params declared in front of the template (InfluxDB OSS). */
+    public String toFlux() {
+        checkComplete();
+        if (values.isEmpty()) {
+            return template.getBody();
+        }
+        StringBuilder flux = new StringBuilder("params = {");
+        boolean first = true;
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            if (!first) {
+                flux.append(", ");
+            }
+            first = false;
+            flux.append(e.getKey()).append(": ");
+            appendLiteral(flux, e.getValue());
+        }
+        return flux.append("}\n\n").append(template.getBody()).toString();
+    }
+
+    /**
+     * @param nativeParams send the values as request params (InfluxDB Cloud) instead of
+     *                     declaring them in the query text
+     */
+    public Query toQuery(boolean nativeParams) {
+        if (nativeParams) {
+            checkComplete();
+            return new Query().query(template.getBody()).params(new LinkedHashMap<>(values));
+        }
+        return new Query().query(toFlux());
+    }
+
+    private void checkComplete() {
+        for (String name : template.getParams()) {
+            if (!values.containsKey(name)) {
+                throw new IllegalStateException("Param " + name + " is not bound");
+            }
+        }
+    }
+
+    private static void appendLiteral(StringBuilder out, Object value) {
+        if (value instanceof String s) {
+            out.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    // "${" would start string interpolation
+                    case '$' -> out.append("\\$");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> out.append(c);
+                }
+            }
+            out.append('"');
+        } else if (value instanceof Double d) {
+            // Flux float literals need a fractional part, with a dot whatever the default locale
+            out.append(d == Math.rint(d) ? String.format(Locale.ROOT, "%.1f", d) : Double.toString(d));
+        } else if (value instanceof Number n) {
+            out.append(n.longValue());
+        } else if (value instanceof List<?> list) {
+            out.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                appendLiteral(out, list.get(i));
+            }
+            out.append(']');
+        } else {
+            throw new IllegalArgumentException("Unsupported param type " + value.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.eSante.influx;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Flux query whose variable parts are only read through {@code params.<name>}: the
+ * text never changes between requests, so it is built once (a constant, or
+ * {@link #cached} for generated variants) and user input can never alter its syntax.
+ * Values are supplied with {@link #bind()}.
+ * <p>
+ * Params are strings or numbers; templates convert them where Flux needs another type,
+ * e.g. {@code time(v: params.start)} or {@code duration(v: params.every)}.
+ */
+public final class FluxTemplate {
+
+    private static final Pattern PARAM = Pattern.compile("\\bparams\\.([A-Za-z_][A-Za-z0-9_]*)");
+    private static final ConcurrentHashMap<String, FluxTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String body;
+    private final Set<String> params;
+
+    private FluxTemplate(String body) {
+        this.body = body;
+        Set<String> names = new LinkedHashSet<>();
+        Matcher m = PARAM.matcher(body);
+        while (m.find()) {
+            names.add(m.group(1));
+        }
+        this.params = Collections.unmodifiableSet(names);
+    }
+
+    public static FluxTemplate of(String body) {
+        return new FluxTemplate(body);
+    }
+
+    /**
+     * Template built by {@code body} the first time {@code key} is asked for. The key
+     * must identify the generated text; any value in it must have been validated
+     * (e.g. through {@link VitalSchema}) since it ends up in the query text.
+     */
+    public static FluxTemplate cached(String key, Supplier<String> body) {
+        return CACHE.computeIfAbsent(key, k -> new FluxTemplate(body.get()));
+    }
+
+    public FluxQuery bind() {
+        return new FluxQuery(this);
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /** Names read through {@code params.*}, all of which must be bound */
+    public Set<String> getParams() {
+        return params;
+    }
+
+    static int cacheSize() {
+        return CACHE.size();
+    }
+}
@@ -0,0 +1,366 @@
+package org.eSante.influx;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rollup buckets maintained by the InfluxDB tasks of init/influx_init.sh: for each raw
+ * field {@code f}, the fields {@code f_mean}, {@code f_min}, {@code f_max},
+ * {@code f_count} and {@code f_sum} per 1m, 1h and 1d window, stamped at the window
+ * start, in buckets named {@code <raw bucket>_1m}, {@code _1h} and {@code _1d}.
+ * <p>
+ * {@link #seriesMean} reads the coarsest rollup whose resolution divides the
+ * requested {@code every} (mean = sum of sums / sum of counts, so it equals the mean
+ * over raw data), and from the raw bucket the partial first window of a range
+ * starting mid-window and the recent windows the tasks have not rolled up yet.
+ * <p>
+ * {@link #dailyCounts} reads the {@code f_count} fields of the daily tier as
+ * per-patient, per-day reading counters, so counting readings over a window costs
+ * one point per day instead of a scan of the raw points. The tasks run periodically,
+ * not on write: a day is only rolled up after it ends, so the current day is always
+ * counted raw.
+ */
+public final class InfluxRollup {
+
+    public enum Tier {
+        MINUTE("_1m", Duration.ofMinutes(1), Duration.ofDays(90), Duration.ofSeconds(15)),
+        HOUR("_1h", Duration.ofHours(1), Duration.ofDays(730), Duration.ofMinutes(2)),
+        DAY("_1d", Duration.ofDays(1), Duration.ZERO, Duration.ofMinutes(10));
+
+        private final String bucketSuffix;
+        private final Duration resolution;
+        private final Duration retention;
+        private final Duration taskOffset;
+
+        Tier(String bucketSuffix, Duration resolution, Duration retention, Duration taskOffset) {
+            this.bucketSuffix = bucketSuffix;
+            this.resolution = resolution;
+            this.retention = retention;
+            this.taskOffset = taskOffset;
+        }
+
+        public String bucket(String rawBucket) { return rawBucket + bucketSuffix; }
+
+        public Duration getResolution() { return resolution; }
+
+        /**
+         * End of the last window the task has surely written: one resolution step plus
+         * the task offset and a minute of slack behind {@code now}.
+         */
+        Instant rolledUpUntil(Instant now) {
+            return truncate(now.minus(taskOffset).minusSeconds(60), resolution);
+        }
+    }
+
+    /** Upper bound on the windows of one series query */
+    public static final long MAX_WINDOWS = 50_000;
+
+    private static final String COUNT_SUFFIX = "_count";
+
+    private enum PatientScope { ALL, ONE, SET }
+
+    // Points of one series may be split across tag sets (e.g. Telegraf's "alert" tag):
+    // they are merged into one time-ordered table before windowing, so each window
+    // yields a single, increasing timestamp
+    private static final String RAW = """
+          |> filter(fn: (r) => r["_measurement"] == params.measurement)
+          |> filter(fn: (r) => r["patient"] == params.patient)
+          |> filter(fn: (r) => r["_field"] == params.field)
+          |> group()
+          |> sort(columns: ["_time"])
+          |> aggregateWindow(every: duration(v: params.every), fn: mean, createEmpty: false)
+          |> keep(columns: ["_time","_value"])
+        """;
+
+    // Sum and count columns are renamed before the pivot so the template does not
+    // depend on the field name; tag sets are merged per field before summing windows
+    private static final String ROLLED = """
+        rolled = from(bucket: params.rolledBucket)
+          |> range(start: time(v: params.rolledStart), stop: time(v: params.boundary))
+          |> filter(fn: (r) => r["_measurement"] == params.measurement)
+          |> filter(fn: (r) => r["patient"] == params.patient)
+          |> filter(fn: (r) => r["_field"] == params.sumField or r["_field"] == params.countField)
+          |> group(columns: ["_field"])
+          |> sort(columns: ["_time"])
+          |> aggregateWindow(every: duration(v: params.every), fn: sum, createEmpty: false)
+          |> group()
+          |> map(fn: (r) => ({_time: r._time, _value: r._value, _field: if r._field == params.sumField then "sum" else "count"}))
+          |> pivot(rowKey: ["_time"], columnKey: ["_field"], valueColumn: "_value")
+          |> filter(fn: (r) => exists r.count and r.count > 0.0)
+          |> map(fn: (r) => ({_time: r._time, _value: r.sum / r.count}))
+          |> sort(columns: ["_time"])
+        """;
+
+    static final FluxTemplate RAW_MEAN = FluxTemplate.of("""
+        from(bucket: params.bucket)
+          |> range(start: time(v: params.start), stop: time(v: params.stop))
+        """ + RAW);
+
+    static final FluxTemplate ROLLED_MEAN = rolledMean(false, false);
+
+    static final FluxTemplate ROLLED_WITH_RECENT = rolledMean(false, true);
+
+    static final FluxTemplate HEAD_WITH_ROLLED = rolledMean(true, false);
+
+    static final FluxTemplate HEAD_WITH_ROLLED_AND_RECENT = rolledMean(true, true);
+
+    /**
+     * Rolled windows, preceded by the raw partial window before {@code params.rolledStart}
+     * ({@code head}) and/or followed by the raw windows after {@code params.boundary}
+     * ({@code recent}).
+     */
+    private static FluxTemplate rolledMean(boolean head, boolean recent) {
+        if (!head && !recent) {
+            return FluxTemplate.of(ROLLED + "\nrolled\n");
+        }
+        StringBuilder flux = new StringBuilder(ROLLED);
+        List<String> segments = new ArrayList<>();
+        if (head) {
+            flux.append("""
+
+                head = from(bucket: params.bucket)
+                  |> range(start: time(v: params.start), stop: time(v: params.rolledStart))
+                """).append(RAW);
+            segments.add("head");
+        }
+        segments.add("rolled");
+        if (recent) {
+            flux.append("""
+
+                recent = from(bucket: params.bucket)
+                  |> range(start: time(v: params.boundary), stop: time(v: params.stop))
+                """).append(RAW);
+            segments.add("recent");
+        }
+        flux.append("\nunion(tables: [").append(String.join(", ", segments)).append("""
+                ])
+                  |> sort(columns: ["_time"])
+                """);
+        return FluxTemplate.of(flux.toString());
+    }
+
+    private InfluxRollup() {}
+
+    /**
+     * Coarsest tier able to produce windows of {@code every} over a range starting at
+     * {@code start}, or empty when only raw data can.
+     */
+    public static Optional<Tier> resolve(Duration every, Instant start, Instant now) {
+        if (every == null || every.isZero() || every.isNegative()) {
+            return Optional.empty();
+        }
+        Tier[] tiers = Tier.values();
+        for (int i = tiers.length - 1; i >= 0; i--) {
+            Tier tier = tiers[i];
+            boolean divides = every.compareTo(tier.resolution) >= 0
+                    && every.toMillis() % tier.resolution.toMillis() == 0;
+            boolean retained = tier.retention.isZero() || !start.isBefore(now.minus(tier.retention));
+            if (divides && retained) {
+                return Optional.of(tier);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Mean per {@code every} window, as {@code _time}/{@code _value} rows stamped at
+     * the window stop (like {@code aggregateWindow} over raw data).
+     *
+     * @param useRollups false to always read the raw bucket
+     * @throws IllegalArgumentException if the series is not a known vital, {@code every}
+     *                                  is not a duration literal or the range holds more
+     *                                  than {@link #MAX_WINDOWS} windows
+     */
+    public static FluxQuery seriesMean(String rawBucket, String measurement, String field, long patientId,
+                                       Instant start, Instant stop, String every, Instant now, boolean useRollups) {
+        VitalSchema.requireSeries(measurement, field);
+        Duration window = FluxDurations.parse(every);
+        if (window == null || window.isZero()) {
+            throw new IllegalArgumentException("Invalid window " + every);
+        }
+        if (!stop.isAfter(start)) {
+            throw new IllegalArgumentException("Empty range " + start + " - " + stop);
+        }
+        if (Duration.between(start, stop).dividedBy(window) > MAX_WINDOWS) {
+            throw new IllegalArgumentException("Window " + every + " too small for the range (max " + MAX_WINDOWS + " points)");
+        }
+
+        Optional<Tier> tier = useRollups ? resolve(window, start, now) : Optional.empty();
+        // Rollup points are stamped at their window start: one before start would be
+        // cut by the range, so the partial first window is read raw
+        Instant rolledStart = truncate(start, window).equals(start) ? start : truncate(start, window).plus(window);
+        Instant boundary = tier.map(t -> truncate(min(t.rolledUpUntil(now), stop), window)).orElse(start);
+        if (tier.isEmpty() || !boundary.isAfter(rolledStart)) {
+            return RAW_MEAN.bind()
+                    .string("bucket", rawBucket)
+                    .time("start", start)
+                    .time("stop", stop)
+                    .string("measurement", measurement)
+                    .patient("patient", patientId)
+                    .string("field", field)
+                    .duration("every", window);
+        }
+
+        boolean head = rolledStart.isAfter(start);
+        boolean recent = boundary.isBefore(stop);
+        FluxTemplate template = head
+                ? (recent ? HEAD_WITH_ROLLED_AND_RECENT : HEAD_WITH_ROLLED)
+                : (recent ? ROLLED_WITH_RECENT : ROLLED_MEAN);
+        FluxQuery query = template.bind()
+                .string("rolledBucket", tier.get().bucket(rawBucket))
+                .time("rolledStart", rolledStart)
+                .time("boundary", boundary)
+                .string("measurement", measurement)
+                .patient("patient", patientId)
+                .string("sumField", field + "_sum")
+                .string("countField", field + "_count")
+                .duration("every", window);
+        if (head || recent) {
+            query.string("bucket", rawBucket).string("field", field);
+        }
+        if (head) {
+            query.time("start", start);
+        }
+        if (recent) {
+            query.time("stop", stop);
+        }
+        return query;
+    }
+
+    /**
+     * Readings per patient, series and UTC day over [start, stop), as rows with
+     * {@code _time} (in the day), {@code patient}, {@code _measurement}, {@code _field}
+     * and {@code _value}. Whole days the daily task has rolled up are read from the
+     * {@code _1d} bucket, where the field is {@code f_count} (see
+     * {@link #countedField}); the partial first day and the days not rolled up yet are
+     * counted on raw data, one row per day.
+     *
+     * @param seriesKeys "measurement/field" of the series to count
+     * @param patients   patients to count, null for every patient
+     * @param useRollups false to always count raw data
+     * @throws IllegalArgumentException if a series is not a known vital or the range is empty
+     */
+    public static FluxQuery dailyCounts(String rawBucket, List<String> seriesKeys, Collection<Long> patients,
+                                        Instant start, Instant stop, Instant now, boolean useRollups) {
+        List<String[]> series = seriesKeys.stream().map(key -> key.split("/", 2)).toList();
+        series.forEach(parts -> VitalSchema.requireSeries(parts[0], parts.length > 1 ? parts[1] : null));
+        if (series.isEmpty() || !stop.isAfter(start)) {
+            throw new IllegalArgumentException("Nothing to count over " + start + " - " + stop);
+        }
+
+        Duration day = Tier.DAY.resolution;
+        Instant firstDay = truncate(start, day).equals(start) ? start : truncate(start, day).plus(day);
+        Instant boundary = useRollups ? min(Tier.DAY.rolledUpUntil(now), truncate(stop, day)) : firstDay;
+        boolean rolled = boundary.isAfter(firstDay);
+        boolean head = !rolled || start.isBefore(firstDay);
+        boolean tail = rolled && boundary.isBefore(stop);
+
+        PatientScope scope = patients == null ? PatientScope.ALL
+                : patients.size() == 1 ? PatientScope.ONE : PatientScope.SET;
+        int patientCount = scope == PatientScope.SET ? patients.size() : 0;
+        FluxQuery query = dailyCountsTemplate(series.size(), scope, patientCount, head, rolled, tail).bind();
+        for (int i = 0; i < series.size(); i++) {
+            query.string("m" + i, series.get(i)[0]);
+            if (head || tail) {
+                query.string("f" + i, series.get(i)[1]);
+            }
+            if (rolled) {
+                query.string("c" + i, series.get(i)[1] + COUNT_SUFFIX);
+            }
+        }
+        if (scope == PatientScope.ONE) {
+            query.patient("patient", patients.iterator().next());
+        } else if (scope == PatientScope.SET) {
+            PatientFilter.bind(query, patients);
+        }
+        if (head || tail) {
+            query.string("bucket", rawBucket);
+        }
+        if (head) {
+            query.time("start", start).time("headStop", rolled ? firstDay : stop);
+        }
+        if (rolled) {
+            query.string("rolledBucket", Tier.DAY.bucket(rawBucket))
+                    .time("firstDay", firstDay)
+                    .time("boundary", boundary);
+        }
+        if (tail) {
+            query.time("stop", stop);
+        }
+        return query;
+    }
+
+    /** Raw field name of a {@link #dailyCounts} row */
+    public static String countedField(String field) {
+        return field != null && field.endsWith(COUNT_SUFFIX)
+                ? field.substring(0, field.length() - COUNT_SUFFIX.length()) : field;
+    }
+
+    /**
+     * Union of up to three segments (raw head, rolled days, raw tail), built once per
+     * series count, patient scope (and count, see {@link PatientFilter}) and set of segments.
+     */
+    private static FluxTemplate dailyCountsTemplate(int n, PatientScope scope, int patientCount,
+                                                    boolean head, boolean rolled, boolean tail) {
+        String key = "dailyCounts/" + n + "/" + scope + "/" + patientCount + "/" + head + "/" + rolled + "/" + tail;
+        return FluxTemplate.cached(key, () -> {
+            String patientFilter = switch (scope) {
+                case ALL -> "";
+                case ONE -> "  |> filter(fn: (r) => r[\"patient\"] == params.patient)\n";
+                case SET -> PatientFilter.of(patientCount);
+            };
+            StringBuilder flux = new StringBuilder();
+            List<String> segments = new ArrayList<>();
+            if (head) {
+                flux.append(rawCounts("head", "start", "headStop", patientFilter, n));
+                segments.add("head");
+            }
+            if (rolled) {
+                flux.append("rolled = from(bucket: params.rolledBucket)\n")
+                        .append("  |> range(start: time(v: params.firstDay), stop: time(v: params.boundary))\n")
+                        .append(patientFilter)
+                        .append("  |> filter(fn: (r) => ").append(seriesFilter(n, "c")).append(")\n\n");
+                segments.add("rolled");
+            }
+            if (tail) {
+                flux.append(rawCounts("tail", "boundary", "stop", patientFilter, n));
+                segments.add("tail");
+            }
+            flux.append(segments.size() == 1 ? segments.get(0) : "union(tables: [" + String.join(", ", segments) + "])")
+                    .append("\n  |> keep(columns: [\"_time\", \"patient\", \"_measurement\", \"_field\", \"_value\"])\n");
+            return flux.toString();
+        });
+    }
+
+    private static String rawCounts(String name, String startParam, String stopParam, String patientFilter, int n) {
+        return name + " = from(bucket: params.bucket)\n"
+                + "  |> range(start: time(v: params." + startParam + "), stop: time(v: params." + stopParam + "))\n"
+                + patientFilter
+                + "  |> filter(fn: (r) => " + seriesFilter(n, "f") + ")\n"
+                + "  |> group(columns: [\"patient\", \"_measurement\", \"_field\"])\n"
+                + "  |> aggregateWindow(every: 1d, fn: count, createEmpty: false, timeSrc: \"_start\")\n"
+                + "  |> toFloat()\n\n";
+    }
+
+    /** Or of measurement/field equalities (pushed down), fields read from {@code params.<fieldParam><i>} */
+    private static String seriesFilter(int n, String fieldParam) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> String.format("(r[\"_measurement\"] == params.m%d and r[\"_field\"] == params.%s%d)", i, fieldParam, i))
+                .collect(Collectors.joining(" or "));
+    }
+
+    static Instant truncate(Instant t, Duration step) {
+        long stepMs = step.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(t.toEpochMilli(), stepMs) * stepMs);
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,33 @@
+package org.eSante.influx;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Filter on a set of patients as an or of {@code patient} tag equalities, read from
+ * {@code params.p<i>}: unlike {@code contains()} it is pushed down to the storage
+ * engine. Its text only depends on the number of patients, so templates using it are
+ * cached once per patient count.
+ */
+public final class PatientFilter {
+
+    private PatientFilter() {}
+
+    /** {@code filter()} step on {@code n} patients, one line; an empty set matches nothing */
+    public static String of(int n) {
+        String predicate = n == 0 ? "false" : IntStream.range(0, n)
+                .mapToObj(i -> "r[\"patient\"] == params.p" + i)
+                .collect(Collectors.joining(" or "));
+        return "  |> filter(fn: (r) => " + predicate + ")\n";
+    }
+
+    /** Binds {@code patients} to the params of {@link #of(int)} with their count */
+    public static FluxQuery bind(FluxQuery query, Collection<Long> patients) {
+        int i = 0;
+        for (Long patientId : patients) {
+            query.patient("p" + i++, patientId);
+        }
+        return query;
+    }
+}
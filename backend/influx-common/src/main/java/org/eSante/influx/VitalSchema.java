@@ -0,0 +1,41 @@
+package org.eSante.influx;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measurements and fields Telegraf writes for the vitals (see
+ * infrastructure/telegraf/telegraf.conf). Names coming from a request must be checked
+ * here before they are used in a query or in a generated template.
+ */
+public final class VitalSchema {
+
+    public static final Map<String, List<String>> FIELDS = Map.of(
+            "fc", List.of("value"),
+            "spO2", List.of("value"),
+            "tension", List.of("systolique", "diastolique"),
+            "glycemie", List.of("value"),
+            "poids", List.of("value"),
+            "STEPS", List.of("value"));
+
+    private VitalSchema() {}
+
+    public static boolean isSeries(String measurement, String field) {
+        List<String> fields = measurement != null ? FIELDS.get(measurement) : null;
+        return fields != null && fields.contains(field);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pair is not a known vital series
+     */
+    public static void requireSeries(String measurement, String field) {
+        if (!isSeries(measurement, field)) {
+            throw new IllegalArgumentException("Unknown series " + measurement + "/" + field);
+        }
+    }
+
+    /** "measurement/field" key as used by the dashboards */
+    public static String seriesKey(String measurement, String field) {
+        return measurement + "/" + field;
+    }
+}
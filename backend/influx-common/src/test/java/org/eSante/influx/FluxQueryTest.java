@@ -0,0 +1,79 @@
+package org.eSante.influx;
+
+import com.influxdb.client.domain.Query;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FluxQueryTest {
+
+    private static final FluxTemplate COUNT = FluxTemplate.of("""
+        from(bucket: params.bucket)
+          |> range(start: time(v: params.start))
+          |> filter(fn: (r) => r["patient"] == params.patient)
+          |> count()
+        """);
+
+    @Test
+    void declaresParamsAsEscapedLiterals() {
+        String flux = COUNT.bind()
+                .string("bucket", "data\") |> drop(columns: [\"x\"]) //${x}\n")
+                .time("start", Instant.parse("2025-11-01T00:00:00Z"))
+                .patient("patient", 42)
+                .toFlux();
+
+        assertThat(flux).startsWith("params = {bucket: \"data\\\") |> drop(columns: [\\\"x\\\"]) //\\${x}\\n\", "
+                + "start: \"2025-11-01T00:00:00Z\", patient: \"42\"}\n\n");
+        assertThat(flux).endsWith(COUNT.getBody());
+    }
+
+    @Test
+    void writesFloatsWithADotWhateverTheDefaultLocale() {
+        FluxTemplate band = FluxTemplate.of("params.low params.high");
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.FRANCE);
+        try {
+            String flux = band.bind().number("low", 70.0).number("high", 180.5).toFlux();
+
+            assertThat(flux).startsWith("params = {low: 70.0, high: 180.5}");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void nativeParamsLeaveTheTemplateUntouched() {
+        Query query = COUNT.bind()
+                .string("bucket", "mesure_data")
+                .time("start", Instant.parse("2025-11-01T00:00:00Z"))
+                .patient("patient", 42)
+                .toQuery(true);
+
+        assertThat(query.getQuery()).isEqualTo(COUNT.getBody());
+        assertThat(query.getParams()).containsEntry("bucket", "mesure_data").containsEntry("patient", "42");
+    }
+
+    @Test
+    void rejectsMissingAndUnknownParams() {
+        assertThatThrownBy(() -> COUNT.bind().string("bucket", "mesure_data").toFlux())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("start");
+        assertThatThrownBy(() -> COUNT.bind().string("measurement", "fc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cachedTemplatesAreBuiltOnce() {
+        FluxTemplate first = FluxTemplate.cached("test/fc,spO2", () -> "params.a");
+        FluxTemplate second = FluxTemplate.cached("test/fc,spO2", () -> "params.b");
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getParams()).containsExactly("a");
+        assertThat(first.bind().strings("a", List.of("x", "y")).toFlux()).startsWith("params = {a: [\"x\", \"y\"]}");
+    }
+}
@@ -0,0 +1,168 @@
+package org.eSante.influx;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InfluxRollupTest {
+
+    private static final Instant NOW = Instant.parse("2025-11-08T10:17:30Z");
+
+    @Test
+    void resolvePicksCoarsestTierDividingEvery() {
+        Instant dayAgo = NOW.minus(Duration.ofDays(1));
+        assertThat(InfluxRollup.resolve(Duration.ofMinutes(5), dayAgo, NOW)).contains(InfluxRollup.Tier.MINUTE);
+        assertThat(InfluxRollup.resolve(Duration.ofHours(3), dayAgo, NOW)).contains(InfluxRollup.Tier.HOUR);
+        assertThat(InfluxRollup.resolve(Duration.ofDays(1), dayAgo, NOW)).contains(InfluxRollup.Tier.DAY);
+        assertThat(InfluxRollup.resolve(Duration.ofMinutes(90), dayAgo, NOW)).contains(InfluxRollup.Tier.MINUTE);
+        assertThat(InfluxRollup.resolve(Duration.ofSeconds(30), dayAgo, NOW)).isEmpty();
+    }
+
+    @Test
+    void resolveSkipsTiersWhoseRetentionDoesNotCoverTheRange() {
+        Instant longAgo = NOW.minus(Duration.ofDays(120));
+        assertThat(InfluxRollup.resolve(Duration.ofMinutes(5), longAgo, NOW)).isEmpty();
+        assertThat(InfluxRollup.resolve(Duration.ofHours(1), longAgo, NOW)).contains(InfluxRollup.Tier.HOUR);
+    }
+
+    @Test
+    void parseDurationReadsFluxLiterals() {
+        assertThat(FluxDurations.parse("1h30m")).isEqualTo(Duration.ofMinutes(90));
+        assertThat(FluxDurations.parse("2w")).isEqualTo(Duration.ofDays(14));
+        assertThat(FluxDurations.parse("5x")).isNull();
+        assertThat(FluxDurations.parse("m5")).isNull();
+        assertThat(FluxDurations.format(Duration.ofMinutes(90))).isEqualTo("1h30m");
+    }
+
+    @Test
+    void recentRangeReadsRollupThenRawTail() {
+        FluxQuery query = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                Instant.parse("2025-10-09T10:00:00Z"), NOW, "1h", NOW, true);
+
+        assertThat(query.getTemplate()).isSameAs(InfluxRollup.ROLLED_WITH_RECENT);
+        assertThat(query.getValues())
+                .containsEntry("rolledBucket", "mesure_data_1h")
+                .containsEntry("sumField", "value_sum")
+                .containsEntry("countField", "value_count")
+                // Last complete hour before the task offset and slack
+                .containsEntry("boundary", "2025-11-08T10:00:00Z")
+                .containsEntry("stop", "2025-11-08T10:17:30Z");
+    }
+
+    @Test
+    void pastRangeReadsOnlyRollup() {
+        FluxQuery query = InfluxRollup.seriesMean("mesure_data", "tension", "systolique", 1,
+                Instant.parse("2025-10-01T00:00:00Z"), Instant.parse("2025-10-31T00:00:00Z"), "1d", NOW, true);
+
+        assertThat(query.getTemplate()).isSameAs(InfluxRollup.ROLLED_MEAN);
+        assertThat(query.getValues()).containsEntry("rolledBucket", "mesure_data_1d");
+        assertThat(query.toFlux()).doesNotContain("union(");
+    }
+
+    @Test
+    void rangeStartingMidWindowReadsTheFirstWindowRaw() {
+        FluxQuery query = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                Instant.parse("2025-10-09T10:17:30Z"), NOW, "1h", NOW, true);
+
+        // The 10:00 rollup point lies before the range start and would be cut by it
+        assertThat(query.getTemplate()).isSameAs(InfluxRollup.HEAD_WITH_ROLLED_AND_RECENT);
+        assertThat(query.getValues())
+                .containsEntry("start", "2025-10-09T10:17:30Z")
+                .containsEntry("rolledStart", "2025-10-09T11:00:00Z")
+                .containsEntry("boundary", "2025-11-08T10:00:00Z");
+        assertThat(query.toFlux()).contains("union(tables: [head, rolled, recent])");
+
+        FluxQuery past = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                Instant.parse("2025-10-09T10:17:30Z"), Instant.parse("2025-10-10T00:00:00Z"), "1h", NOW, true);
+        assertThat(past.getTemplate()).isSameAs(InfluxRollup.HEAD_WITH_ROLLED);
+        assertThat(past.getValues()).doesNotContainKey("stop");
+    }
+
+    @Test
+    void rangeWithinOneWindowReadsRawData() {
+        FluxQuery query = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                Instant.parse("2025-10-09T10:17:30Z"), Instant.parse("2025-10-09T10:47:30Z"), "1h", NOW, true);
+
+        assertThat(query.getTemplate()).isSameAs(InfluxRollup.RAW_MEAN);
+    }
+
+    @Test
+    void unsupportedEveryReadsRawData() {
+        FluxQuery query = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                NOW.minus(Duration.ofHours(1)), NOW, "30s", NOW, true);
+
+        assertThat(query.getTemplate()).isSameAs(InfluxRollup.RAW_MEAN);
+        assertThat(query.getValues()).containsEntry("bucket", "mesure_data").containsEntry("every", "30s");
+    }
+
+    @Test
+    void tagSetsAreMergedBeforeWindowing() {
+        // Points of one series split by another tag (alert=true/false) must fall in the same windows
+        String raw = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                NOW.minus(Duration.ofHours(1)), NOW, "30s", NOW, true).toFlux();
+        assertThat(raw.indexOf("|> group()")).isPositive().isLessThan(raw.indexOf("aggregateWindow("));
+        assertThat(raw.indexOf("sort(columns: [\"_time\"])")).isLessThan(raw.indexOf("aggregateWindow("));
+
+        String rolled = InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                NOW.minus(Duration.ofDays(30)), NOW, "1h", NOW, true).toFlux();
+        assertThat(rolled.indexOf("group(columns: [\"_field\"])")).isPositive().isLessThan(rolled.indexOf("fn: sum"));
+        assertThat(rolled.lastIndexOf("|> group()")).isLessThan(rolled.lastIndexOf("aggregateWindow("));
+    }
+
+    @Test
+    void rejectsUnknownSeriesAndTooManyWindows() {
+        assertThatThrownBy(() -> InfluxRollup.seriesMean("mesure_data", "fc\") |> drop(", "value", 1,
+                NOW.minus(Duration.ofHours(1)), NOW, "1m", NOW, true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> InfluxRollup.seriesMean("mesure_data", "fc", "value", 1,
+                NOW.minus(Duration.ofDays(365)), NOW, "1s", NOW, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void dailyCountsReadRolledDaysAndRawEdges() {
+        FluxQuery query = InfluxRollup.dailyCounts("mesure_data", List.of("tension/systolique", "poids/value"), List.of(1L),
+                Instant.parse("2025-11-01T10:00:00Z"), NOW, NOW, true);
+
+        assertThat(query.getValues())
+                .containsEntry("rolledBucket", "mesure_data_1d")
+                .containsEntry("firstDay", "2025-11-02T00:00:00Z")
+                // Yesterday was rolled up at 00:10
+                .containsEntry("boundary", "2025-11-08T00:00:00Z")
+                .containsEntry("headStop", "2025-11-02T00:00:00Z")
+                .containsEntry("c0", "systolique_count")
+                .containsEntry("patient", "1");
+        assertThat(query.toFlux()).contains("union(tables: [head, rolled, tail])");
+        assertThat(InfluxRollup.countedField("systolique_count")).isEqualTo("systolique");
+        assertThat(InfluxRollup.countedField("systolique")).isEqualTo("systolique");
+    }
+
+    @Test
+    void dailyCountsOfWholeRolledDaysReadOnlyTheRollup() {
+        FluxQuery query = InfluxRollup.dailyCounts("mesure_data", List.of("glycemie/value"), List.of(1L),
+                Instant.parse("2025-11-01T00:00:00Z"), Instant.parse("2025-11-08T00:00:00Z"), NOW, true);
+
+        assertThat(query.getValues()).containsEntry("c0", "value_count").doesNotContainKeys("f0", "bucket");
+        assertThat(query.toFlux()).doesNotContain("union(");
+    }
+
+    @Test
+    void dailyCountsWithoutRollupsCountRawData() {
+        FluxQuery query = InfluxRollup.dailyCounts("mesure_data", List.of("glycemie/value"), List.of(1L, 2L),
+                NOW.minus(Duration.ofDays(30)), NOW, NOW, false);
+
+        assertThat(query.getValues())
+                .containsEntry("headStop", "2025-11-08T10:17:30Z")
+                .containsEntry("p0", "1")
+                .containsEntry("p1", "2")
+                .doesNotContainKey("rolledBucket");
+        assertThat(query.toFlux()).doesNotContain("union(").doesNotContain("contains(")
+                .contains("r[\"patient\"] == params.p0 or r[\"patient\"] == params.p1")
+                .contains("aggregateWindow(every: 1d, fn: count");
+    }
+}
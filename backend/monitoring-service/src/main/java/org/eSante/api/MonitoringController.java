@@ -3,12 +3,33 @@ package org.eSante.api;
 import com.influxdb.client.InfluxDBClient;
 import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eSante.influx.DeltaSeries;
+import org.eSante.influx.FluxDurations;
+import org.eSante.influx.FluxQuery;
+import org.eSante.influx.InfluxRollup;
+import org.eSante.influx.VitalSchema;
+import org.eSante.series.Lttb;
+import org.eSante.series.SeriesColumns;
+import org.eSante.series.SeriesMediaTypes;
+import org.eSante.series.SeriesResolution;
+import org.eSante.vitals.LastValue;
+import org.eSante.vitals.LastValueStore;
+import org.eSante.vitals.VitalSeries;
+import org.eSante.vitals.VitalsMqttSubscriber;
+import org.eSante.vitals.VitalsStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @RestController
@@ -18,6 +39,24 @@ public class MonitoringController {
     @Autowired
     private InfluxDBClient influx;
 
+    @Autowired
+    private LastValueStore lastValues;
+
+    @Autowired(required = false)
+    private VitalsMqttSubscriber vitalsSubscriber;
+
+    @Autowired
+    private VitalsStream vitalsStream;
+
+    @Value("${influxdb.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
+    @Value("${influxdb.native-params:false}")
+    private boolean nativeParams;
+
+    @Value("${monitoring.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_INSTANT;
 
     @GetMapping("/health")
@@ -30,45 +69,173 @@ public class MonitoringController {
             m.put("status", "error");
             m.put("error", e.getMessage());
         }
+        if (vitalsSubscriber != null) {
+            Map<String, Object> mqtt = new HashMap<>();
+            mqtt.put("connected", vitalsSubscriber.isConnected());
+            mqtt.put("received", vitalsSubscriber.getReceived());
+            mqtt.put("dropped", vitalsSubscriber.getDropped());
+            mqtt.put("patients", lastValues.patientCount());
+            mqtt.put("streamSubscribers", vitalsStream.subscriberCount());
+            m.put("mqtt", mqtt);
+        }
         m.put("time", ISO.format(Instant.now()));
         return m;
     }
 
+    /**
+     * Last value of each series received over MQTT since startup, keyed by
+     * "measurement/field" (e.g. "tension/systolique"). Series not seen yet are absent;
+     * callers needing them fall back to InfluxDB.
+     */
+    @GetMapping("/patient/{patientId}/latest")
+    public Map<String, Map<String, Object>> latest(@PathVariable("patientId") long patientId) {
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        for (Map.Entry<VitalSeries, LastValue> e : lastValues.getAll(patientId).entrySet()) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("time", ISO.format(Instant.ofEpochMilli(e.getValue().epochMillis())));
+            point.put("value", e.getValue().value());
+            out.put(e.getKey().key(), point);
+        }
+        return out;
+    }
+
+    /**
+     * Pushes the patient's vitals as they arrive over MQTT (Server-Sent Events), after
+     * replaying the buffered recent points, or only those after Last-Event-ID when the
+     * browser reconnects. {@code series} restricts the stream to some "measurement/field" keys.
+     */
+    @GetMapping(value = "/patient/{patientId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @PathVariable("patientId") long patientId,
+            @RequestParam(value = "series", required = false) List<String> series,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            HttpServletResponse response
+    ) {
+        // Tell the nginx front not to buffer the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        VitalsStream.Subscription subscription =
+                vitalsStream.subscribe(patientId, series, lastEventId, new SseVitalsSink(emitter));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    /**
+     * Mean of a field per {@code every} window. With {@code maxPoints}, the window is
+     * chosen server-side from the range (never finer than {@code every}), the result is
+     * reduced to at most {@code maxPoints} with LTTB and returned as {@link SeriesColumns};
+     * without it, as one {time, value} object per point. Clients may instead ask for
+     * {@link SeriesMediaTypes#DELTA_JSON} or {@link SeriesMediaTypes#GORILLA} with Accept.
+     * Unknown series, malformed {@code start}/{@code every} or too fine a window for the
+     * range are rejected with 400.
+     */
     @GetMapping("/patient/{patientId}/series")
-    public ResponseEntity<List<Map<String, Object>>> series(
+    public ResponseEntity<?> series(
             @PathVariable("patientId") Long patientId,
             @RequestParam("measurement") String measurement,
             @RequestParam(value = "field", defaultValue = "value") String field,
             @RequestParam(value = "start", defaultValue = "-60m") String start,
             @RequestParam(value = "every", defaultValue = "1m") String every,
-            @RequestParam(value = "org", defaultValue = "eSanteIdb") String org
+            @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+            @RequestParam(value = "org", defaultValue = "eSanteIdb") String org,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: %s)
-              |> filter(fn: (r) => r["_measurement"] == "%s")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "%s")
-              |> aggregateWindow(every: %s, fn: mean, createEmpty: false)
-              |> keep(columns: ["_time","_value"]) 
-            """,
-                System.getProperty("influxdb.bucket", "mesure_data"), start, measurement, patientId, field, every);
-
-        List<Map<String, Object>> out = new ArrayList<>();
+        Instant now = Instant.now();
+        Instant startAt = parseStart(start, now);
+        if (startAt == null || !startAt.isBefore(now) || !VitalSchema.isSeries(measurement, field)
+                || FluxDurations.parse(every) == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (maxPoints != null) {
+            int limit = SeriesResolution.clampMaxPoints(maxPoints);
+            every = SeriesResolution.toFlux(SeriesResolution.every(
+                    Duration.between(startAt, now), FluxDurations.parse(every), limit));
+        }
+
+        SeriesColumns columns;
         try {
-            List<FluxTable> tables = influx.getQueryApi().query(flux, org);
+            columns = querySeriesMean(patientId, measurement, field, startAt, now, every, org);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (columns == null) {
+            return ResponseEntity.internalServerError().build();
+        }
+        if (maxPoints != null) {
+            columns = Lttb.downsample(columns, SeriesResolution.clampMaxPoints(maxPoints));
+        }
+
+        MediaType compact = SeriesMediaTypes.negotiate(accept);
+        if (SeriesMediaTypes.GORILLA.equals(compact)) {
+            return ResponseEntity.ok().contentType(SeriesMediaTypes.GORILLA).body(columns);
+        }
+        if (SeriesMediaTypes.DELTA_JSON.equals(compact)) {
+            return ResponseEntity.ok().contentType(SeriesMediaTypes.DELTA_JSON).body(DeltaSeries.of(columns.every(), columns.t(), columns.v()));
+        }
+        if (maxPoints != null) {
+            return ResponseEntity.ok(columns);
+        }
+
+        List<Map<String, Object>> out = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("time", Instant.ofEpochMilli(columns.t()[i]));
+            row.put("value", columns.v()[i]);
+            out.add(row);
+        }
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * Reads the rollup buckets when possible, raw data if that fails or has nothing.
+     *
+     * @return null if the raw query failed
+     */
+    private SeriesColumns querySeriesMean(Long patientId, String measurement, String field,
+                                          Instant startAt, Instant now, String every, String org) {
+        String bucket = System.getProperty("influxdb.bucket", "mesure_data");
+        if (rollupEnabled) {
+            SeriesColumns rolled = querySeries(
+                    InfluxRollup.seriesMean(bucket, measurement, field, patientId, startAt, now, every, now, true), org, every);
+            if (rolled != null && rolled.size() > 0) {
+                return rolled;
+            }
+        }
+        return querySeries(
+                InfluxRollup.seriesMean(bucket, measurement, field, patientId, startAt, now, every, now, false), org, every);
+    }
+
+    private SeriesColumns querySeries(FluxQuery query, String org, String every) {
+        try {
+            List<FluxTable> tables = influx.getQueryApi().query(query.toQuery(nativeParams), org);
+            int rows = tables.stream().mapToInt(table -> table.getRecords().size()).sum();
+            SeriesColumns.Builder out = new SeriesColumns.Builder(rows);
             for (FluxTable table : tables) {
                 for (FluxRecord rec : table.getRecords()) {
-                    Map<String, Object> row = new HashMap<>();
-                    row.put("time", rec.getTime());
-                    row.put("value", rec.getValueByKey("_value"));
-                    out.add(row);
+                    if (rec.getTime() != null && rec.getValueByKey("_value") instanceof Number value) {
+                        out.add(rec.getTime().toEpochMilli(), value.doubleValue());
+                    }
                 }
             }
+            return out.build(every);
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            return null;
+        }
+    }
+
+    /** Relative ("-30d") or RFC 3339 range start; null if it is neither */
+    private static Instant parseStart(String start, Instant now) {
+        if (start.startsWith("-")) {
+            Duration ago = FluxDurations.parse(start.substring(1));
+            return ago != null ? now.minus(ago) : null;
+        }
+        try {
+            return Instant.parse(start);
+        } catch (DateTimeParseException e) {
+            return null;
         }
-        return ResponseEntity.ok(out);
     }
 }
 
@@ -0,0 +1,50 @@
+package org.eSante.api;
+
+import org.eSante.vitals.VitalsStream;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link VitalsStream} subscription to an SSE response: "vital" events with
+ * the point id as event id (for Last-Event-ID resumption), "dropped" when the client
+ * was too slow and lost points, and comment lines as keep-alives.
+ */
+class SseVitalsSink implements VitalsStream.Sink {
+
+    private final SseEmitter emitter;
+
+    SseVitalsSink(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void events(List<VitalsStream.VitalEvent> events) throws IOException {
+        for (VitalsStream.VitalEvent event : events) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("series", event.series());
+            data.put("time", Instant.ofEpochMilli(event.epochMillis()).toString());
+            data.put("value", event.value());
+            emitter.send(SseEmitter.event().id(Long.toString(event.id())).name("vital").data(data));
+        }
+    }
+
+    @Override
+    public void dropped(long count) throws IOException {
+        emitter.send(SseEmitter.event().name("dropped").data(Map.of("count", count)));
+    }
+
+    @Override
+    public void heartbeat() throws IOException {
+        emitter.send(SseEmitter.event().comment("keep-alive"));
+    }
+
+    @Override
+    public void close() {
+        emitter.complete();
+    }
+}
@@ -0,0 +1,18 @@
+package org.eSante.config;
+
+import org.eSante.series.GorillaSeriesConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Last, so that JSON stays the default when the client accepts anything
+        converters.add(new GorillaSeriesConverter());
+    }
+}
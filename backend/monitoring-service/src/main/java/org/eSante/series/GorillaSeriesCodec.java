@@ -0,0 +1,233 @@
+package org.eSante.series;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary series encoding after Facebook's Gorilla (Pelkonen et al., VLDB 2015).
+ * <p>
+ * Layout: version byte (1), point count (varint), {@code every} (length byte + ASCII),
+ * then a bit stream. Timestamps (epoch millis) are delta-of-delta encoded: first the
+ * absolute timestamp on 64 bits, then per point {@code 0} (same interval),
+ * {@code 10}+7 bits, {@code 110}+9 bits, {@code 1110}+12 bits or {@code 1111}+64 bits
+ * (two's complement).
+ * Values: first raw on 64 bits, then the XOR with the previous value: {@code 0}
+ * (unchanged), {@code 10} + the meaningful bits within the previous leading/trailing
+ * zero window, or {@code 11} + 5 bits of leading zeros + 6 bits of length + the bits.
+ * A regular series of slowly varying means costs a few bits per timestamp and
+ * typically well under 64 bits per value.
+ */
+public final class GorillaSeriesCodec {
+
+    private static final int VERSION = 1;
+
+    private GorillaSeriesCodec() {}
+
+    public static byte[] encode(SeriesColumns series) {
+        long[] t = series.t();
+        double[] v = series.v();
+        BitWriter out = new BitWriter(16 + t.length * 4);
+        out.writeByte(VERSION);
+        out.writeVarint(t.length);
+        byte[] every = series.every() != null ? series.every().getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        out.writeByte(every.length);
+        for (byte b : every) {
+            out.writeByte(b);
+        }
+        if (t.length == 0) {
+            return out.toByteArray();
+        }
+
+        out.writeBits(t[0], 64);
+        long previousDelta = 0;
+        for (int i = 1; i < t.length; i++) {
+            long delta = t[i] - t[i - 1];
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                out.writeBits(0b0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            previousDelta = delta;
+        }
+
+        long previous = Double.doubleToRawLongBits(v[0]);
+        out.writeBits(previous, 64);
+        int windowLeading = Integer.MAX_VALUE;
+        int windowTrailing = 0;
+        for (int i = 1; i < v.length; i++) {
+            long bits = Double.doubleToRawLongBits(v[i]);
+            long xor = bits ^ previous;
+            if (xor == 0) {
+                out.writeBits(0b0, 1);
+            } else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (windowLeading != Integer.MAX_VALUE && leading >= windowLeading && trailing >= windowTrailing) {
+                    out.writeBits(0b10, 2);
+                    out.writeBits(xor >>> windowTrailing, 64 - windowLeading - windowTrailing);
+                } else {
+                    int length = 64 - leading - trailing;
+                    out.writeBits(0b11, 2);
+                    out.writeBits(leading, 5);
+                    // 64 meaningful bits do not fit in 6 bits, stored as 0
+                    out.writeBits(length == 64 ? 0 : length, 6);
+                    out.writeBits(xor >>> trailing, length);
+                    windowLeading = leading;
+                    windowTrailing = trailing;
+                }
+            }
+            previous = bits;
+        }
+        return out.toByteArray();
+    }
+
+    public static SeriesColumns decode(byte[] data) {
+        BitReader in = new BitReader(data);
+        int version = (int) in.readBits(8);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported series encoding version " + version);
+        }
+        int count = in.readVarint();
+        byte[] every = new byte[(int) in.readBits(8)];
+        for (int i = 0; i < every.length; i++) {
+            every[i] = (byte) in.readBits(8);
+        }
+        long[] t = new long[count];
+        double[] v = new double[count];
+        if (count > 0) {
+            t[0] = in.readBits(64);
+            long previousDelta = 0;
+            for (int i = 1; i < count; i++) {
+                long dod;
+                if (in.readBit() == 0) {
+                    dod = 0;
+                } else if (in.readBit() == 0) {
+                    dod = in.readSigned(7);
+                } else if (in.readBit() == 0) {
+                    dod = in.readSigned(9);
+                } else if (in.readBit() == 0) {
+                    dod = in.readSigned(12);
+                } else {
+                    dod = in.readBits(64);
+                }
+                previousDelta += dod;
+                t[i] = t[i - 1] + previousDelta;
+            }
+
+            long previous = in.readBits(64);
+            v[0] = Double.longBitsToDouble(previous);
+            int windowLeading = 0;
+            int windowTrailing = 0;
+            for (int i = 1; i < count; i++) {
+                if (in.readBit() == 1) {
+                    if (in.readBit() == 1) {
+                        windowLeading = (int) in.readBits(5);
+                        int length = (int) in.readBits(6);
+                        windowTrailing = 64 - windowLeading - (length == 0 ? 64 : length);
+                    }
+                    long xor = in.readBits(64 - windowLeading - windowTrailing) << windowTrailing;
+                    previous ^= xor;
+                }
+                v[i] = Double.longBitsToDouble(previous);
+            }
+        }
+        return new SeriesColumns(new String(every, StandardCharsets.US_ASCII), t, v);
+    }
+
+    private static final class BitWriter {
+        private final ByteArrayOutputStream out;
+        private long buffer;
+        private int buffered;
+
+        BitWriter(int expectedBytes) {
+            out = new ByteArrayOutputStream(expectedBytes);
+        }
+
+        /** Writes the low {@code count} bits of {@code value}, most significant first. */
+        void writeBits(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                buffer = (buffer << 1) | ((value >>> i) & 1);
+                if (++buffered == 8) {
+                    out.write((int) buffer);
+                    buffer = 0;
+                    buffered = 0;
+                }
+            }
+        }
+
+        void writeByte(int b) {
+            writeBits(b, 8);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        byte[] toByteArray() {
+            if (buffered > 0) {
+                out.write((int) (buffer << (8 - buffered)));
+                buffer = 0;
+                buffered = 0;
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] data;
+        private long position;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        int readBit() {
+            if (position >= (long) data.length * 8) {
+                throw new IllegalArgumentException("Truncated series data");
+            }
+            int bit = (data[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+            position++;
+            return bit;
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+
+        /** Two's complement value on {@code count} bits */
+        long readSigned(int count) {
+            long value = readBits(count);
+            return (value << (64 - count)) >> (64 - count);
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = (int) readBits(8);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
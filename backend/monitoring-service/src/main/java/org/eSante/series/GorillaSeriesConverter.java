@@ -0,0 +1,38 @@
+package org.eSante.series;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes (and reads) {@link SeriesColumns} as {@link SeriesMediaTypes#GORILLA}.
+ */
+public class GorillaSeriesConverter extends AbstractHttpMessageConverter<SeriesColumns> {
+
+    public GorillaSeriesConverter() {
+        super(SeriesMediaTypes.GORILLA);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SeriesColumns.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected SeriesColumns readInternal(Class<? extends SeriesColumns> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        try {
+            return GorillaSeriesCodec.decode(inputMessage.getBody().readAllBytes());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(SeriesColumns series, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(GorillaSeriesCodec.encode(series));
+    }
+}
@@ -0,0 +1,69 @@
+package org.eSante.series;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013): keeps the first and
+ * last points and, from each of the {@code threshold - 2} buckets in between, the
+ * point forming the largest triangle with the previously kept point and the average of
+ * the next bucket. Peaks and dips survive, unlike with averaging or decimation.
+ */
+public final class Lttb {
+
+    private Lttb() {}
+
+    /**
+     * @return at most {@code threshold} points; {@code series} itself when it is already
+     *         small enough or the threshold is below 3
+     */
+    public static SeriesColumns downsample(SeriesColumns series, int threshold) {
+        int n = series.size();
+        if (threshold < 3 || n <= threshold) {
+            return series;
+        }
+        long[] t = series.t();
+        double[] v = series.v();
+        long origin = t[0];
+
+        long[] outT = new long[threshold];
+        double[] outV = new double[threshold];
+        outT[0] = t[0];
+        outV[0] = v[0];
+
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int kept = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket (the last point for the last bucket)
+            int avgStart = (int) ((i + 1) * bucketSize) + 1;
+            int avgEnd = Math.min((int) ((i + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += t[j] - origin;
+                avgY += v[j];
+            }
+            int avgCount = avgEnd - avgStart;
+            avgX /= avgCount;
+            avgY /= avgCount;
+
+            // Point of the current bucket with the largest triangle
+            int from = (int) (i * bucketSize) + 1;
+            int to = (int) ((i + 1) * bucketSize) + 1;
+            double ax = t[kept] - origin;
+            double ay = v[kept];
+            double maxArea = -1;
+            int next = from;
+            for (int j = from; j < to; j++) {
+                double area = Math.abs((ax - avgX) * (v[j] - ay) - (ax - (t[j] - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            outT[i + 1] = t[next];
+            outV[i + 1] = v[next];
+            kept = next;
+        }
+        outT[threshold - 1] = t[n - 1];
+        outV[threshold - 1] = v[n - 1];
+        return new SeriesColumns(series.every(), outT, outV);
+    }
+}
@@ -0,0 +1,79 @@
+package org.eSante.series;
+
+import java.util.Arrays;
+
+/**
+ * Time series as two parallel primitive arrays, serialized as
+ * {@code {"every": "5m", "t": [epoch millis...], "v": [values...]}}: no object and no
+ * timestamp string per point. {@code every} is the aggregation window the points were
+ * computed with (before any LTTB downsampling).
+ */
+public record SeriesColumns(String every, long[] t, double[] v) {
+
+    public int size() {
+        return t.length;
+    }
+
+    /**
+     * Growable buffer used while reading query results. Points may come from several
+     * tables (one per tag set) and so out of order: {@link #build} then sorts them and
+     * averages those sharing a timestamp, so the series is strictly increasing in time,
+     * as LTTB and the delta encodings require.
+     */
+    public static final class Builder {
+        private long[] t;
+        private double[] v;
+        private int size;
+        private boolean strictlyIncreasing = true;
+
+        public Builder(int initialCapacity) {
+            t = new long[Math.max(16, initialCapacity)];
+            v = new double[t.length];
+        }
+
+        public Builder add(long epochMillis, double value) {
+            if (size == t.length) {
+                t = Arrays.copyOf(t, size * 2);
+                v = Arrays.copyOf(v, size * 2);
+            }
+            if (size > 0 && epochMillis <= t[size - 1]) {
+                strictlyIncreasing = false;
+            }
+            t[size] = epochMillis;
+            v[size] = value;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public SeriesColumns build(String every) {
+            if (strictlyIncreasing) {
+                return new SeriesColumns(every, Arrays.copyOf(t, size), Arrays.copyOf(v, size));
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(t[a], t[b]));
+            long[] outT = new long[size];
+            double[] outV = new double[size];
+            int n = 0;
+            int merged = 0;
+            for (int i : order) {
+                if (n > 0 && outT[n - 1] == t[i]) {
+                    merged++;
+                    outV[n - 1] += (v[i] - outV[n - 1]) / (merged + 1);
+                } else {
+                    outT[n] = t[i];
+                    outV[n] = v[i];
+                    n++;
+                    merged = 0;
+                }
+            }
+            return new SeriesColumns(every, Arrays.copyOf(outT, n), Arrays.copyOf(outV, n));
+        }
+    }
+}
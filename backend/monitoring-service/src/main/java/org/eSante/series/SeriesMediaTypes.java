@@ -0,0 +1,62 @@
+package org.eSante.series;
+
+import org.eSante.influx.DeltaSeries;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact representations of a series a client can ask for with {@code Accept}.
+ */
+public final class SeriesMediaTypes {
+
+    /** {@link DeltaSeries} as JSON: first timestamp absolute, then deltas */
+    public static final String DELTA_JSON_VALUE = DeltaSeries.MEDIA_TYPE;
+    public static final MediaType DELTA_JSON = MediaType.parseMediaType(DELTA_JSON_VALUE);
+
+    /** {@link GorillaSeriesCodec} binary */
+    public static final String GORILLA_VALUE = "application/vnd.esante.series.gorilla";
+    public static final MediaType GORILLA = MediaType.parseMediaType(GORILLA_VALUE);
+
+    // Highest quality first; at equal quality concrete types before wildcards, then header order
+    private static final Comparator<MediaType> PREFERENCE = Comparator
+            .comparingDouble(MediaType::getQualityValue).reversed()
+            .thenComparing(MediaType::isWildcardType)
+            .thenComparing(MediaType::isWildcardSubtype);
+
+    private SeriesMediaTypes() {}
+
+    /**
+     * Compact type the client prefers in the Accept header, or null when plain JSON
+     * (or a wildcard accepting it) ranks first or no compact type is accepted.
+     */
+    public static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        accepted.sort(PREFERENCE);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                break;
+            }
+            if (type.equalsTypeAndSubtype(GORILLA)) {
+                return GORILLA;
+            }
+            if (type.equalsTypeAndSubtype(DELTA_JSON)) {
+                return DELTA_JSON;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
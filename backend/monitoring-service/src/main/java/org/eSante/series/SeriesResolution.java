@@ -0,0 +1,57 @@
+package org.eSante.series;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Picks the aggregation window of a chart query from the range and the number of points
+ * the client can draw. The window is a "round" step (all multiples of a minute from 1m
+ * up, so the rollup buckets apply) giving about {@link #OVERSAMPLING} points per
+ * drawn point, which LTTB then reduces to {@code maxPoints}.
+ */
+public final class SeriesResolution {
+
+    /** Candidates per output point handed to LTTB */
+    static final int OVERSAMPLING = 4;
+
+    public static final int MAX_POINTS_LIMIT = 10_000;
+
+    private static final List<Duration> STEPS = List.of(
+            Duration.ofSeconds(10), Duration.ofSeconds(30),
+            Duration.ofMinutes(1), Duration.ofMinutes(2), Duration.ofMinutes(5), Duration.ofMinutes(10),
+            Duration.ofMinutes(15), Duration.ofMinutes(30),
+            Duration.ofHours(1), Duration.ofHours(2), Duration.ofHours(3), Duration.ofHours(6), Duration.ofHours(12),
+            Duration.ofDays(1), Duration.ofDays(2), Duration.ofDays(7));
+
+    private SeriesResolution() {}
+
+    /**
+     * @param requested the client's {@code every}, used as a lower bound (may be null)
+     */
+    public static Duration every(Duration range, Duration requested, int maxPoints) {
+        Duration wanted = Duration.ofMillis(range.toMillis() / ((long) maxPoints * OVERSAMPLING));
+        if (requested != null && requested.compareTo(wanted) >= 0) {
+            // The client's resolution is already coarse enough
+            return requested;
+        }
+        for (Duration step : STEPS) {
+            if (step.compareTo(wanted) >= 0) {
+                return step;
+            }
+        }
+        return Duration.ofDays(wanted.toDays() + 1);
+    }
+
+    public static int clampMaxPoints(int maxPoints) {
+        return Math.max(3, Math.min(maxPoints, MAX_POINTS_LIMIT));
+    }
+
+    /** Flux duration literal of a whole number of seconds, e.g. "90m" or "1d" */
+    public static String toFlux(Duration d) {
+        long s = Math.max(1, d.toSeconds());
+        if (s % 86_400 == 0) return s / 86_400 + "d";
+        if (s % 3_600 == 0) return s / 3_600 + "h";
+        if (s % 60 == 0) return s / 60 + "m";
+        return s + "s";
+    }
+}
@@ -0,0 +1,7 @@
+package org.eSante.vitals;
+
+/**
+ * Most recent reading of a series; immutable so that it can be swapped atomically.
+ */
+public record LastValue(double value, long epochMillis) {
+}
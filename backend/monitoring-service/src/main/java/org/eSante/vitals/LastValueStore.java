@@ -0,0 +1,67 @@
+package org.eSante.vitals;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Last value of every vital series per patient, fed by {@link VitalsMqttSubscriber}.
+ * Patients are keyed by their numeric id and each holds one slot per
+ * {@link VitalSeries} ordinal, so a read is a map lookup plus an array access and
+ * writers of different patients never contend. A slot only moves forward in time:
+ * late or redelivered (QoS 1) messages do not overwrite a newer reading.
+ */
+@Component
+public class LastValueStore {
+
+    private final ConcurrentHashMap<Long, AtomicReferenceArray<LastValue>> patients = new ConcurrentHashMap<>();
+
+    /**
+     * @return false when a newer value was already stored for that series
+     */
+    public boolean update(long patientId, VitalSeries series, double value, long epochMillis) {
+        AtomicReferenceArray<LastValue> slots =
+                patients.computeIfAbsent(patientId, id -> new AtomicReferenceArray<>(VitalSeries.count()));
+        LastValue next = new LastValue(value, epochMillis);
+        int slot = series.ordinal();
+        while (true) {
+            LastValue current = slots.get(slot);
+            if (current != null && current.epochMillis() > epochMillis) {
+                return false;
+            }
+            if (slots.compareAndSet(slot, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public LastValue get(long patientId, VitalSeries series) {
+        AtomicReferenceArray<LastValue> slots = patients.get(patientId);
+        return slots == null ? null : slots.get(series.ordinal());
+    }
+
+    /**
+     * Every series received for the patient; empty if nothing was received since startup.
+     */
+    public Map<VitalSeries, LastValue> getAll(long patientId) {
+        Map<VitalSeries, LastValue> out = new EnumMap<>(VitalSeries.class);
+        AtomicReferenceArray<LastValue> slots = patients.get(patientId);
+        if (slots == null) {
+            return out;
+        }
+        for (int i = 0; i < slots.length(); i++) {
+            LastValue value = slots.get(i);
+            if (value != null) {
+                out.put(VitalSeries.ofOrdinal(i), value);
+            }
+        }
+        return out;
+    }
+
+    public int patientCount() {
+        return patients.size();
+    }
+}
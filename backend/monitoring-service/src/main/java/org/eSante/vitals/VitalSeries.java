@@ -0,0 +1,47 @@
+package org.eSante.vitals;
+
+/**
+ * Series kept in the {@link LastValueStore}, named after the InfluxDB measurement and
+ * field Telegraf writes them to (see infrastructure/telegraf/telegraf.conf) so that
+ * live and stored values can be used interchangeably.
+ */
+public enum VitalSeries {
+    HEART_RATE("HEART_RATE", false, "fc", "value"),
+    SPO2("SPO2", false, "spO2", "value"),
+    BP_SYSTOLIC("BLOOD_PRESSURE", false, "tension", "systolique"),
+    BP_DIASTOLIC("BLOOD_PRESSURE", true, "tension", "diastolique"),
+    GLUCOSE("GLUCOSE", false, "glycemie", "value"),
+    WEIGHT("WEIGHT", false, "poids", "value"),
+    STEPS("STEPS", false, "STEPS", "value");
+
+    private static final VitalSeries[] VALUES = values();
+
+    private final String measurementType;
+    private final boolean secondValue;
+    private final String measurement;
+    private final String field;
+
+    VitalSeries(String measurementType, boolean secondValue, String measurement, String field) {
+        this.measurementType = measurementType;
+        this.secondValue = secondValue;
+        this.measurement = measurement;
+        this.field = field;
+    }
+
+    /** measurementType of the MQTT payload */
+    public String getMeasurementType() { return measurementType; }
+
+    /** Whether the series reads {@code value2} (diastolic pressure) instead of {@code value} */
+    public boolean isSecondValue() { return secondValue; }
+
+    public String getMeasurement() { return measurement; }
+
+    public String getField() { return field; }
+
+    /** "measurement/field", the key used by the reporting-service dashboard */
+    public String key() { return measurement + "/" + field; }
+
+    static int count() { return VALUES.length; }
+
+    static VitalSeries ofOrdinal(int ordinal) { return VALUES[ordinal]; }
+}
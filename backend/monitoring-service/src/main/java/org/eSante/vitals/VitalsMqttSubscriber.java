@@ -0,0 +1,194 @@
+package org.eSante.vitals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscribes to the vitals published by the devices (the same stream Telegraf writes to
+ * InfluxDB), keeps the {@link LastValueStore} up to date and feeds the {@link VitalsStream}. Topic:
+ * {@code esante/patient/{id}/vitals/{measurementType}}, JSON payload with
+ * {@code value}, {@code value2} (diastolic pressure) and an RFC 3339 {@code timestamp}.
+ * Malformed messages are counted and dropped, never rethrown (that would disconnect the client).
+ */
+@Component
+@ConditionalOnProperty(name = "mqtt.enabled", havingValue = "true", matchIfMissing = true)
+public class VitalsMqttSubscriber implements MqttCallbackExtended {
+
+    private static final Logger logger = LoggerFactory.getLogger(VitalsMqttSubscriber.class);
+
+    private final LastValueStore store;
+    private final VitalsStream stream;
+    private final ObjectMapper objectMapper;
+
+    @Value("${mqtt.broker-url:tcp://mosquitto:1883}")
+    private String brokerUrl;
+
+    @Value("${mqtt.client-id:monitoring-service-vitals}")
+    private String clientId;
+
+    @Value("${mqtt.topic:esante/patient/+/vitals/#}")
+    private String topic;
+
+    @Value("${mqtt.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private ScheduledExecutorService connector;
+    private MqttClient client;
+
+    public VitalsMqttSubscriber(LastValueStore store, VitalsStream stream, ObjectMapper objectMapper) {
+        this.store = store;
+        this.stream = stream;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        connector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mqtt-vitals-connect");
+            t.setDaemon(true);
+            return t;
+        });
+        connector.execute(this::connect);
+    }
+
+    /**
+     * Paho only reconnects by itself once a first connection succeeded, so the broker
+     * being down at startup is retried here.
+     */
+    private void connect() {
+        try {
+            if (client == null) {
+                client = new MqttClient(brokerUrl, clientId, new MemoryPersistence());
+                client.setCallback(this);
+            }
+            MqttConnectOptions options = new MqttConnectOptions();
+            options.setAutomaticReconnect(true);
+            options.setCleanSession(true);
+            client.connect(options);
+        } catch (MqttException e) {
+            logger.warn("MQTT broker {} unavailable ({}), retrying in {} ms", brokerUrl, e.getMessage(), reconnectDelayMs);
+            connector.schedule(this::connect, reconnectDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void connectComplete(boolean reconnect, String serverURI) {
+        // Clean session: subscriptions are lost on every reconnect
+        try {
+            client.subscribe(topic, 1);
+            logger.info("Subscribed to {} on {}", topic, serverURI);
+        } catch (MqttException e) {
+            logger.error("Could not subscribe to {}: {}", topic, e.getMessage());
+        }
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        logger.warn("MQTT connection lost: {}", cause != null ? cause.getMessage() : "unknown");
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        handle(topic, message.getPayload());
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // Subscriber only
+    }
+
+    /**
+     * Applies one vitals message to the store.
+     *
+     * @return false if the message was dropped
+     */
+    public boolean handle(String topic, byte[] payload) {
+        received.incrementAndGet();
+        try {
+            String[] parts = topic.split("/");
+            if (parts.length < 5) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            long patientId = Long.parseLong(parts[2]);
+            JsonNode json = objectMapper.readTree(payload);
+            String type = json.path("measurementType").asText(parts[4]);
+            long time = json.hasNonNull("timestamp")
+                    ? OffsetDateTime.parse(json.get("timestamp").asText()).toInstant().toEpochMilli()
+                    : Instant.now().toEpochMilli();
+
+            boolean applied = false;
+            for (VitalSeries series : VitalSeries.values()) {
+                if (!series.getMeasurementType().equals(type)) {
+                    continue;
+                }
+                JsonNode value = json.get(series.isSecondValue() ? "value2" : "value");
+                if (value != null && value.isNumber()) {
+                    // Stale (redelivered) readings are neither stored nor streamed
+                    if (store.update(patientId, series, value.doubleValue(), time)) {
+                        stream.publish(patientId, series, value.doubleValue(), time);
+                    }
+                    applied = true;
+                }
+            }
+            if (!applied) {
+                dropped.incrementAndGet();
+            }
+            return applied;
+        } catch (Exception e) {
+            dropped.incrementAndGet();
+            logger.debug("Dropped vitals message on {}: {}", topic, e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean isConnected() {
+        return client != null && client.isConnected();
+    }
+
+    public long getReceived() { return received.get(); }
+
+    public long getDropped() { return dropped.get(); }
+
+    @PreDestroy
+    public void stop() {
+        if (connector != null) {
+            connector.shutdownNow();
+        }
+        if (client != null) {
+            try {
+                if (client.isConnected()) {
+                    client.disconnect();
+                }
+                client.close();
+            } catch (MqttException e) {
+                logger.debug("MQTT shutdown: {}", e.getMessage());
+            }
+        }
+    }
+}
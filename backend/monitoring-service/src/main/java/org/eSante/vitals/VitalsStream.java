@@ -0,0 +1,217 @@
+package org.eSante.vitals;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of the vitals received over MQTT to live subscribers (the SSE endpoint of
+ * {@code MonitoringController}).
+ * <p>
+ * Each patient has a ring buffer of its last {@code monitoring.stream.replay-size}
+ * points, replayed to new subscribers (or from their {@code Last-Event-ID}), and
+ * every subscriber has its own bounded queue drained on the send pool. Publishing
+ * never blocks the MQTT thread: when a slow client's queue is full its oldest points
+ * are dropped and the client is told how many it missed.
+ */
+@Component
+public class VitalsStream {
+
+    /** Point pushed to subscribers; {@code id} increases per patient. */
+    public record VitalEvent(long id, String series, long epochMillis, double value) {}
+
+    /** Where a subscription delivers; called from one send thread at a time. */
+    public interface Sink {
+        void events(List<VitalEvent> events) throws IOException;
+
+        void dropped(long count) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        default void close() {}
+    }
+
+    private static final int MAX_BATCH = 256;
+
+    private final int replaySize;
+    private final int queueCapacity;
+    private final ScheduledExecutorService sender;
+    private final ConcurrentHashMap<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    @Autowired
+    public VitalsStream(@Value("${monitoring.stream.replay-size:300}") int replaySize,
+                        @Value("${monitoring.stream.queue-capacity:1000}") int queueCapacity,
+                        @Value("${monitoring.stream.send-threads:4}") int sendThreads,
+                        @Value("${monitoring.stream.heartbeat-ms:15000}") long heartbeatMs) {
+        this(replaySize, queueCapacity, Executors.newScheduledThreadPool(Math.max(1, sendThreads), r -> {
+            Thread t = new Thread(r, "vitals-stream-send");
+            t.setDaemon(true);
+            return t;
+        }));
+        if (heartbeatMs > 0) {
+            sender.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    VitalsStream(int replaySize, int queueCapacity, ScheduledExecutorService sender) {
+        this.replaySize = Math.max(1, replaySize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.sender = sender;
+    }
+
+    public void publish(long patientId, VitalSeries series, double value, long epochMillis) {
+        channels.computeIfAbsent(patientId, id -> new Channel(replaySize))
+                .publish(series.key(), value, epochMillis);
+    }
+
+    /**
+     * @param series      "measurement/field" keys to receive, all when null or empty
+     * @param lastEventId replay the buffered points after this id; the whole buffer when null
+     */
+    public Subscription subscribe(long patientId, Collection<String> series, Long lastEventId, Sink sink) {
+        Channel channel = channels.computeIfAbsent(patientId, id -> new Channel(replaySize));
+        Subscription subscription = new Subscription(channel, series, sink);
+        channel.add(subscription, lastEventId != null ? lastEventId : 0);
+        return subscription;
+    }
+
+    public int subscriberCount() {
+        return channels.values().stream().mapToInt(c -> c.subscriptions.size()).sum();
+    }
+
+    void heartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscription subscription : channel.subscriptions) {
+                subscription.heartbeatDue = true;
+                subscription.schedule();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Channel channel : channels.values()) {
+            for (Subscription subscription : channel.subscriptions) {
+                subscription.close();
+            }
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * Replay buffer and subscribers of one patient. Appending and subscribing hold the
+     * same lock so a new subscriber sees every point exactly once.
+     */
+    private static final class Channel {
+        private final VitalEvent[] ring;
+        private long nextId = 1;
+        private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        Channel(int size) {
+            this.ring = new VitalEvent[size];
+        }
+
+        synchronized void publish(String series, double value, long epochMillis) {
+            VitalEvent event = new VitalEvent(nextId, series, epochMillis, value);
+            ring[(int) (nextId % ring.length)] = event;
+            nextId++;
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(event);
+            }
+        }
+
+        synchronized void add(Subscription subscription, long lastEventId) {
+            long from = Math.max(lastEventId + 1, Math.max(1, nextId - ring.length));
+            for (long id = from; id < nextId; id++) {
+                subscription.offer(ring[(int) (id % ring.length)]);
+            }
+            subscriptions.add(subscription);
+        }
+    }
+
+    public final class Subscription {
+        private final Channel channel;
+        private final Collection<String> series;
+        private final Sink sink;
+        private final ArrayBlockingQueue<VitalEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile boolean closed;
+
+        private Subscription(Channel channel, Collection<String> series, Sink sink) {
+            this.channel = channel;
+            this.series = series == null || series.isEmpty() ? null : List.copyOf(series);
+            this.sink = sink;
+        }
+
+        private void offer(VitalEvent event) {
+            if (closed || (series != null && !series.contains(event.series()))) {
+                return;
+            }
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /** Runs on the send pool, never concurrently with itself for the same subscription. */
+        private void drain() {
+            try {
+                do {
+                    long lost = dropped.getAndSet(0);
+                    if (lost > 0) {
+                        sink.dropped(lost);
+                    }
+                    List<VitalEvent> batch = new ArrayList<>();
+                    queue.drainTo(batch, MAX_BATCH);
+                    if (!batch.isEmpty()) {
+                        sink.events(batch);
+                    } else if (heartbeatDue) {
+                        sink.heartbeat();
+                    }
+                    heartbeatDue = false;
+                    draining.set(false);
+                } while (!closed && (!queue.isEmpty() || dropped.get() > 0) && draining.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                // Client gone
+                close();
+            }
+        }
+
+        public void close() {
+            if (!closed) {
+                closed = true;
+                channel.subscriptions.remove(this);
+                queue.clear();
+                sink.close();
+            }
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
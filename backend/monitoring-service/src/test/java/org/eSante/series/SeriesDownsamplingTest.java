@@ -0,0 +1,68 @@
+package org.eSante.series;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeriesDownsamplingTest {
+
+    @Test
+    void keepsEndpointsAndSpikes() {
+        SeriesColumns.Builder builder = new SeriesColumns.Builder(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            double value = 70 + Math.sin(i / 500.0) * 5;
+            if (i == 4_321) {
+                value = 180;
+            }
+            if (i == 7_777) {
+                value = 20;
+            }
+            builder.add(1_700_000_000_000L + i * 60_000L, value);
+        }
+        SeriesColumns series = builder.build("1m");
+
+        SeriesColumns sampled = Lttb.downsample(series, 200);
+
+        assertThat(sampled.size()).isEqualTo(200);
+        assertThat(sampled.every()).isEqualTo("1m");
+        assertThat(sampled.t()[0]).isEqualTo(series.t()[0]);
+        assertThat(sampled.t()[199]).isEqualTo(series.t()[9_999]);
+        assertThat(sampled.v()).contains(180.0, 20.0);
+        for (int i = 1; i < sampled.size(); i++) {
+            assertThat(sampled.t()[i]).isGreaterThan(sampled.t()[i - 1]);
+        }
+    }
+
+    @Test
+    void smallSeriesIsReturnedAsIs() {
+        SeriesColumns series = new SeriesColumns.Builder(3).add(1, 1).add(2, 2).add(3, 3).build("1m");
+
+        assertThat(Lttb.downsample(series, 10)).isSameAs(series);
+    }
+
+    @Test
+    void tablesOfTwoTagSetsAreMergedInTimeOrder() {
+        long t0 = 1_700_000_000_000L;
+        SeriesColumns.Builder builder = new SeriesColumns.Builder(8);
+        // Table of alert=false, then table of alert=true sharing one window
+        builder.add(t0, 70).add(t0 + 120_000, 72).add(t0 + 240_000, 74);
+        builder.add(t0 + 60_000, 140).add(t0 + 120_000, 150);
+        SeriesColumns series = builder.build("1m");
+
+        assertThat(series.t()).containsExactly(t0, t0 + 60_000, t0 + 120_000, t0 + 240_000);
+        assertThat(series.v()).containsExactly(70, 140, 111, 74);
+        assertThat(Lttb.downsample(series, 3).t()).isSorted();
+    }
+
+    @Test
+    void resolutionFollowsRangeAndNeverGoesBelowRequested() {
+        // 30 days for 500 points, 4 candidates per point: 21.6 min -> 30m
+        assertThat(SeriesResolution.every(Duration.ofDays(30), Duration.ofMinutes(1), 500)).isEqualTo(Duration.ofMinutes(30));
+        assertThat(SeriesResolution.every(Duration.ofHours(1), Duration.ofMinutes(1), 500)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(SeriesResolution.every(Duration.ofHours(1), null, 500)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(SeriesResolution.toFlux(Duration.ofMinutes(30))).isEqualTo("30m");
+        assertThat(SeriesResolution.toFlux(Duration.ofDays(2))).isEqualTo("2d");
+    }
+}
@@ -0,0 +1,93 @@
+package org.eSante.series;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eSante.influx.DeltaSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeriesEncodingTest {
+
+    @Test
+    void gorillaRoundTripsIrregularSeries() {
+        Random random = new Random(42);
+        SeriesColumns.Builder builder = new SeriesColumns.Builder(2_000);
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < 2_000; i++) {
+            // Mostly regular, some jitter, a few long gaps
+            t += i % 500 == 499 ? 40L * 86_400_000 : 60_000 + (i % 7 == 0 ? random.nextInt(5_000) - 2_500 : 0);
+            double value = i % 11 == 0 ? Double.NaN : 70 + random.nextGaussian() * 3;
+            builder.add(t, i % 13 == 0 ? 72.0 : value);
+        }
+        SeriesColumns series = builder.build("1m");
+
+        SeriesColumns decoded = GorillaSeriesCodec.decode(GorillaSeriesCodec.encode(series));
+
+        assertThat(decoded.every()).isEqualTo("1m");
+        assertThat(decoded.t()).containsExactly(series.t());
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(Double.doubleToRawLongBits(decoded.v()[i])).isEqualTo(Double.doubleToRawLongBits(series.v()[i]));
+        }
+    }
+
+    @Test
+    void gorillaRoundTripsEmptyAndSinglePointSeries() {
+        SeriesColumns empty = new SeriesColumns.Builder(0).build("5m");
+        SeriesColumns single = new SeriesColumns.Builder(1).add(1_700_000_000_000L, -1.5).build("");
+
+        assertThat(GorillaSeriesCodec.decode(GorillaSeriesCodec.encode(empty)).size()).isZero();
+        SeriesColumns decoded = GorillaSeriesCodec.decode(GorillaSeriesCodec.encode(single));
+        assertThat(decoded.t()).containsExactly(1_700_000_000_000L);
+        assertThat(decoded.v()).containsExactly(-1.5);
+    }
+
+    @Test
+    void compactFormatsAreMuchSmallerThanPointObjects() throws Exception {
+        SeriesColumns.Builder builder = new SeriesColumns.Builder(1_440);
+        for (int i = 0; i < 1_440; i++) {
+            builder.add(1_700_000_040_000L + i * 60_000L, Math.round((72 + Math.sin(i / 30.0) * 4) * 10) / 10.0);
+        }
+        SeriesColumns series = builder.build("1m");
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (int i = 0; i < series.size(); i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("time", java.time.Instant.ofEpochMilli(series.t()[i]).toString());
+            row.put("value", series.v()[i]);
+            points.add(row);
+        }
+        int objects = mapper.writeValueAsBytes(points).length;
+        int delta = mapper.writeValueAsBytes(DeltaSeries.of(series.every(), series.t(), series.v())).length;
+        int gorilla = GorillaSeriesCodec.encode(series).length;
+
+        assertThat(delta).isLessThan(objects / 3);
+        assertThat(gorilla).isLessThan(objects / 5);
+        assertThat(DeltaSeries.of(series.every(), series.t(), series.v()).times()).containsExactly(series.t());
+    }
+
+    @Test
+    void negotiationOnlyHonoursExplicitCompactTypes() {
+        assertThat(SeriesMediaTypes.negotiate("*/*")).isNull();
+        assertThat(SeriesMediaTypes.negotiate("application/json")).isNull();
+        assertThat(SeriesMediaTypes.negotiate(null)).isNull();
+        assertThat(SeriesMediaTypes.negotiate("application/vnd.esante.series.gorilla, application/json;q=0.5"))
+                .isEqualTo(SeriesMediaTypes.GORILLA);
+        assertThat(SeriesMediaTypes.negotiate("application/vnd.esante.series.gorilla;q=0.2, application/vnd.esante.series.delta+json"))
+                .isEqualTo(SeriesMediaTypes.DELTA_JSON);
+    }
+
+    @Test
+    void negotiationKeepsJsonWhenTheClientPrefersIt() {
+        assertThat(SeriesMediaTypes.negotiate("application/json, application/vnd.esante.series.gorilla;q=0.5")).isNull();
+        assertThat(SeriesMediaTypes.negotiate("*/*, application/vnd.esante.series.delta+json")).isEqualTo(SeriesMediaTypes.DELTA_JSON);
+        assertThat(SeriesMediaTypes.negotiate("text/html, */*;q=0.8, application/vnd.esante.series.gorilla;q=0.5")).isNull();
+        assertThat(SeriesMediaTypes.negotiate("application/vnd.esante.series.gorilla;q=0")).isNull();
+    }
+}
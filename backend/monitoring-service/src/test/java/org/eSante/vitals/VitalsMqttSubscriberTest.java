@@ -0,0 +1,67 @@
+package org.eSante.vitals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds the subscriber the messages the simulator publishes, without a broker.
+ */
+class VitalsMqttSubscriberTest {
+
+    private final LastValueStore store = new LastValueStore();
+    private final VitalsStream stream = new VitalsStream(10, 10, Executors.newSingleThreadScheduledExecutor());
+    private final VitalsMqttSubscriber subscriber = new VitalsMqttSubscriber(store, stream, new ObjectMapper());
+
+    @AfterEach
+    void shutdown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void bloodPressureFillsSystolicAndDiastolic() {
+        subscriber.messageArrived("esante/patient/3/vitals/BLOOD_PRESSURE", message("""
+                {"patientId":"patient-3","measurementType":"BLOOD_PRESSURE","value":128.5,"value2":82.0,
+                 "unit":"mmHg","timestamp":"2025-11-08T10:00:00Z","metadata":{"battery":80}}
+                """));
+
+        long time = Instant.parse("2025-11-08T10:00:00Z").toEpochMilli();
+        assertThat(store.get(3, VitalSeries.BP_SYSTOLIC)).isEqualTo(new LastValue(128.5, time));
+        assertThat(store.get(3, VitalSeries.BP_DIASTOLIC)).isEqualTo(new LastValue(82.0, time));
+        assertThat(store.getAll(3)).containsOnlyKeys(VitalSeries.BP_SYSTOLIC, VitalSeries.BP_DIASTOLIC);
+        assertThat(store.getAll(4)).isEmpty();
+    }
+
+    @Test
+    void olderMessageDoesNotOverwriteNewerValue() {
+        subscriber.messageArrived("esante/patient/1/vitals/HEART_RATE", message("""
+                {"measurementType":"HEART_RATE","value":90,"timestamp":"2025-11-08T10:00:10Z"}
+                """));
+        subscriber.messageArrived("esante/patient/1/vitals/HEART_RATE", message("""
+                {"measurementType":"HEART_RATE","value":70,"timestamp":"2025-11-08T10:00:00Z"}
+                """));
+
+        assertThat(store.get(1, VitalSeries.HEART_RATE).value()).isEqualTo(90.0);
+    }
+
+    @Test
+    void malformedMessagesAreDropped() {
+        assertThat(subscriber.handle("esante/patient/abc/vitals/SPO2", "{\"value\":97}".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(subscriber.handle("esante/patient/2/vitals/SPO2", "not json".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(subscriber.handle("esante/patient/2/vitals/SPO2", "{\"value\":\"n/a\"}".getBytes(StandardCharsets.UTF_8))).isFalse();
+
+        assertThat(subscriber.getDropped()).isEqualTo(3);
+        assertThat(store.patientCount()).isZero();
+    }
+
+    private static MqttMessage message(String json) {
+        return new MqttMessage(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package org.eSante.vitals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VitalsStreamTest {
+
+    private final VitalsStream stream = new VitalsStream(3, 4, Executors.newScheduledThreadPool(2));
+
+    @AfterEach
+    void shutdown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void lateJoinerGetsBufferedPointsThenLiveOnes() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(1, VitalSeries.HEART_RATE, 60 + i, i * 1000L);
+        }
+        CollectingSink sink = new CollectingSink(6);
+        stream.subscribe(1, null, null, sink);
+        stream.publish(1, VitalSeries.HEART_RATE, 70, 6000L);
+
+        assertThat(sink.await()).isTrue();
+        // Replay buffer holds the last 3 points
+        assertThat(sink.ids()).containsExactly(3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    void resumesAfterLastEventIdAndFiltersSeries() throws Exception {
+        stream.publish(1, VitalSeries.HEART_RATE, 61, 1000L);
+        stream.publish(1, VitalSeries.SPO2, 97, 1000L);
+        stream.publish(1, VitalSeries.HEART_RATE, 62, 2000L);
+
+        CollectingSink sink = new CollectingSink(5);
+        stream.subscribe(1, List.of("fc/value"), 1L, sink);
+        stream.publish(1, VitalSeries.SPO2, 98, 3000L);
+        stream.publish(2, VitalSeries.HEART_RATE, 90, 3000L);
+        stream.publish(1, VitalSeries.HEART_RATE, 63, 3000L);
+
+        assertThat(sink.await()).isTrue();
+        assertThat(sink.ids()).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void slowSubscriberLosesOldestPointsWithoutBlockingPublisher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingSink sink = new CollectingSink(20) {
+            @Override
+            public void events(List<VitalsStream.VitalEvent> events) throws java.io.IOException {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.events(events);
+            }
+        };
+        stream.subscribe(1, null, null, sink);
+
+        long startedAt = System.nanoTime();
+        for (int i = 1; i <= 20; i++) {
+            stream.publish(1, VitalSeries.HEART_RATE, 60 + i, i * 1000L);
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(1_000);
+        release.countDown();
+
+        assertThat(sink.await()).isTrue();
+        // The queue kept the newest points (plus any batch already in flight); the client
+        // is told how many it missed
+        assertThat(sink.ids()).endsWith(17L, 18L, 19L, 20L);
+        assertThat(sink.dropped.get()).isPositive().isEqualTo(20 - sink.ids().size());
+    }
+
+    @Test
+    void failingSinkIsUnsubscribed() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        stream.subscribe(1, null, null, new VitalsStream.Sink() {
+            public void events(List<VitalsStream.VitalEvent> events) throws java.io.IOException {
+                throw new java.io.IOException("Broken pipe");
+            }
+            public void dropped(long count) {}
+            public void heartbeat() {}
+            public void close() { closed.countDown(); }
+        });
+        stream.publish(1, VitalSeries.HEART_RATE, 60, 1000L);
+
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stream.subscriberCount()).isZero();
+    }
+
+    private static class CollectingSink implements VitalsStream.Sink {
+        final List<VitalsStream.VitalEvent> received = new CopyOnWriteArrayList<>();
+        final AtomicLong dropped = new AtomicLong();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final long lastId;
+
+        /** Completes when the point with {@code lastId} is received */
+        CollectingSink(long lastId) {
+            this.lastId = lastId;
+        }
+
+        @Override
+        public void events(List<VitalsStream.VitalEvent> events) throws java.io.IOException {
+            received.addAll(events);
+            if (events.get(events.size() - 1).id() == lastId) {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public void dropped(long count) {
+            dropped.addAndGet(count);
+        }
+
+        @Override
+        public void heartbeat() {}
+
+        boolean await() throws InterruptedException {
+            return done.await(5, TimeUnit.SECONDS);
+        }
+
+        List<Long> ids() {
+            return received.stream().map(VitalsStream.VitalEvent::id).toList();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.eSante.services;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.eSante.domain.models.dto.AppointmentSummary;
+import org.eSante.domain.models.dto.ReportData;
+import org.eSante.domain.models.dto.VitalSignsStats;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-report PDF render cost.
+ * <ul>
+ *   <li>{@code sharedTemplates}: one PDFExportService for every render, fonts and
+ *       styles come from its template cache (what the scheduler does).</li>
+ *   <li>{@code coldTemplates}: a new service per render whose font metrics are parsed
+ *       again, bypassing iText's process-wide font cache, i.e. fonts and templates
+ *       rebuilt every time.</li>
+ * </ul>
+ * Run with {@code mvn -Pjmh test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFExportBenchmark {
+
+    private final PDFExportService shared = new PDFExportService();
+    private ReportData data;
+
+    @Setup
+    public void setup() {
+        // One INFO line per render would dominate the measurement
+        ((Logger) LoggerFactory.getLogger("org.eSante")).setLevel(Level.WARN);
+
+        data = new ReportData();
+        data.setPatientId(1L);
+        data.setPatientName("Alice Martin");
+        data.setPeriodStart(LocalDateTime.of(2025, 11, 1, 20, 0));
+        data.setPeriodEnd(LocalDateTime.of(2025, 11, 8, 20, 0));
+
+        VitalSignsStats heartRate = new VitalSignsStats();
+        heartRate.setAverage(72.4);
+        data.setHeartRateStats(heartRate);
+        VitalSignsStats spo2 = new VitalSignsStats();
+        spo2.setAverage(97.1);
+        data.setSpo2Stats(spo2);
+
+        List<AppointmentSummary> appointments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AppointmentSummary appointment = new AppointmentSummary();
+            appointment.setDate(LocalDateTime.of(2025, 11, 10, 9, 0).plusDays(i));
+            appointment.setType("Consultation");
+            appointments.add(appointment);
+        }
+        data.setAppointments(appointments);
+    }
+
+    @Benchmark
+    public int sharedTemplates() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        shared.writePDF(data, "WEEKLY", out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int coldTemplates() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        new PDFExportService(new PdfTemplateCache(PdfTemplateCache.helvetica(false))).writePDF(data, "WEEKLY", out);
+        return out.size();
+    }
+}
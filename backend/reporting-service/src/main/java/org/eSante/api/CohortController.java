@@ -0,0 +1,38 @@
+package org.eSante.api;
+
+import org.eSante.domain.models.dto.CohortSummary;
+import org.eSante.services.CohortService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@RestController
+@RequestMapping("/api/cohort")
+public class CohortController {
+
+    private static final int MAX_DAYS = 366;
+
+    @Autowired
+    private CohortService cohortService;
+
+    /**
+     * Distribution of average heart rate, adherence and time in range across the
+     * patients over the last {@code days} days, optionally only those whose
+     * {@code pathologie_principale} is {@code pathologie}.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<CohortSummary> getSummary(
+            @RequestParam(value = "pathologie", required = false) String pathologie,
+            @RequestParam(value = "days", defaultValue = "30") int days) {
+        if (days <= 0 || days > MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        String pathology = pathologie != null && !pathologie.isBlank() ? pathologie.trim() : null;
+        Instant stop = Instant.now();
+        Instant start = stop.minus(days, ChronoUnit.DAYS);
+        return ResponseEntity.ok(cohortService.getSummary(pathology, start, stop));
+    }
+}
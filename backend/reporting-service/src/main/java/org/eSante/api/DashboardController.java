@@ -1,11 +1,19 @@
 package org.eSante.api;
 
+import org.eSante.domain.models.dto.AdherenceSummary;
+import org.eSante.domain.models.dto.CompactDashboardSummary;
 import org.eSante.domain.models.dto.DashboardSummary;
+import org.eSante.influx.DeltaSeries;
+import org.eSante.services.AdherenceService;
 import org.eSante.services.DashboardService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
 @RestController
 @RequestMapping("/api/dashboard")
 public class DashboardController {
@@ -13,13 +21,46 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private AdherenceService adherenceService;
+
     @GetMapping("/patient/{patientId}/summary")
     public ResponseEntity<DashboardSummary> getSummary(
             @PathVariable("patientId") Long patientId,
             @RequestParam(value = "minutes", defaultValue = "60") Long minutes) {
         if (minutes == null || minutes <= 0) minutes = 60L;
-        DashboardSummary s = dashboardService.buildSummary(patientId, minutes);
+        DashboardSummary s = dashboardService.getSummary(patientId, minutes);
         return ResponseEntity.ok(s);
     }
-}
 
+    /**
+     * Same summary with the chart series as delta-encoded columns instead of one
+     * {time, value} object per point.
+     */
+    @GetMapping(value = "/patient/{patientId}/summary", produces = DeltaSeries.MEDIA_TYPE)
+    public ResponseEntity<CompactDashboardSummary> getCompactSummary(
+            @PathVariable("patientId") Long patientId,
+            @RequestParam(value = "minutes", defaultValue = "60") Long minutes) {
+        if (minutes == null || minutes <= 0) minutes = 60L;
+        DashboardSummary s = dashboardService.getSummary(patientId, minutes);
+        return ResponseEntity.ok(CompactDashboardSummary.of(s));
+    }
+
+    /**
+     * Sensor adherence over the last {@code days} days, with the readings of each day.
+     */
+    @GetMapping("/patient/{patientId}/adherence")
+    public ResponseEntity<AdherenceSummary> getAdherence(
+            @PathVariable("patientId") Long patientId,
+            @RequestParam(value = "days", defaultValue = "7") int days) {
+        if (days <= 0 || days > 366) {
+            return ResponseEntity.badRequest().build();
+        }
+        Instant stop = Instant.now();
+        try {
+            return ResponseEntity.ok(adherenceService.getSummary(patientId, stop.minus(days, ChronoUnit.DAYS), stop));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
@@ -1,139 +1,323 @@
 package org.eSante.api;
 
 import org.eSante.domain.models.Report;
+import org.eSante.domain.models.dto.ReportListItem;
+import org.eSante.domain.models.dto.ReportStatus;
 import org.eSante.repositories.ReportRepository;
+import org.eSante.services.AsyncReportService;
+import org.eSante.services.ReportFileStore;
 import org.eSante.services.ReportGeneratorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * REST controller for managing medical reports (weekly, monthly, post-event).
- * Supports generating and exporting reports in-memory as Base64-encoded PDFs.
+ * Supports generating reports and exporting their PDF from the report file store.
  */
 @RestController
 @RequestMapping("/api/reports")
 public class ReportController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private ReportGeneratorService reportGeneratorService;
 
+    @Autowired
+    private AsyncReportService asyncReportService;
+
     @Autowired
     private ReportRepository reportRepository;
 
+    @Autowired
+    private ReportFileStore reportFileStore;
+
     /**
-     *  Get all reports for a given patient, optionally filtered by type.
+     *  List the reports of a patient, newest first, optionally filtered by type.
+     *  Keyset-paginated: when more reports exist, the X-Next-Cursor response header
+     *  holds the value to pass as {@code cursor} for the next page. Reports without
+     *  a date come last.
      * Example:
      *   GET /api/reports/patient/1
-     *   GET /api/reports/patient/1?type=weekly
+     *   GET /api/reports/patient/1?type=weekly&limit=20
+     *   GET /api/reports/patient/1?limit=20&cursor=MjAyNS0xMS0wOFQxMDowMF80Mg
      */
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<Report>> getPatientReports(
+    public ResponseEntity<List<ReportListItem>> getPatientReports(
             @PathVariable("patientId") Long patientId,
-            @RequestParam(value = "type", required = false) String type) {
-
-        List<Report> reports;
-        if (type != null) {
-            reports = reportRepository.findByPatientIdAndReportType(
-                    patientId,
-                    type.toUpperCase()
-            );
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        // One extra row tells whether a next page exists
+        Limit fetch = Limit.of(pageSize + 1);
+        String reportType = type != null ? type.toUpperCase() : null;
+
+        List<ReportListItem> reports;
+        if (cursor == null || cursor.isBlank()) {
+            reports = reportType != null
+                    ? reportRepository.findList(patientId, reportType, fetch)
+                    : reportRepository.findList(patientId, fetch);
         } else {
-            reports = reportRepository.findByPatientIdOrderByReportDateDesc(patientId);
+            String[] position = decodeCursor(cursor);
+            if (position == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            Long beforeId = Long.valueOf(position[1]);
+            if (position[0].isEmpty()) {
+                reports = reportType != null
+                        ? reportRepository.findUndatedListBefore(patientId, reportType, beforeId, fetch)
+                        : reportRepository.findUndatedListBefore(patientId, beforeId, fetch);
+            } else {
+                LocalDateTime beforeDate = LocalDateTime.parse(position[0]);
+                reports = reportType != null
+                        ? reportRepository.findListBefore(patientId, reportType, beforeDate, beforeId, fetch)
+                        : reportRepository.findListBefore(patientId, beforeDate, beforeId, fetch);
+            }
         }
 
-        return ResponseEntity.ok(reports);
+        if (reports.size() <= pageSize) {
+            return ResponseEntity.ok(reports);
+        }
+        List<ReportListItem> page = reports.subList(0, pageSize);
+        ReportListItem last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encodeCursor(last))
+                .body(page);
     }
 
     /**
      *  Generate a new report (weekly or monthly)
      * Example:
      *   POST /api/reports/generate?patientId=1&type=WEEKLY
+     *   POST /api/reports/generate?patientId=1&type=WEEKLY&async=true  (202, poll /{id}/status)
      */
     @PostMapping("/generate")
     public ResponseEntity<Report> generateReport(
             @RequestParam("patientId") Long patientId,
-            @RequestParam("type") String type) {
+            @RequestParam("type") String type,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
         Report report;
         switch (type.toUpperCase()) {
             case "WEEKLY":
-                report = reportGeneratorService.generateWeeklyReport(patientId);
+                report = async
+                        ? asyncReportService.submitWeeklyReport(patientId)
+                        : reportGeneratorService.generateWeeklyReport(patientId);
                 break;
             case "MONTHLY":
-                report = reportGeneratorService.generateMonthlyReport(patientId);
+                report = async
+                        ? asyncReportService.submitMonthlyReport(patientId)
+                        : reportGeneratorService.generateMonthlyReport(patientId);
                 break;
             default:
                 return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(report);
+        return async ? accepted(report) : ResponseEntity.ok(report);
     }
 
     /**
      * Generate a custom report over a given number of minutes.
      * Example:
      *   POST /api/reports/generate/custom?patientId=1&minutes=60
+     *   POST /api/reports/generate/custom?patientId=1&minutes=60&async=true
      */
     @PostMapping("/generate/custom")
     public ResponseEntity<Report> generateCustomReport(
             @RequestParam("patientId") Long patientId,
-            @RequestParam("minutes") Long minutes) {
+            @RequestParam("minutes") Long minutes,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         if (minutes == null || minutes <= 0) {
             return ResponseEntity.badRequest().build();
         }
+        if (async) {
+            return accepted(asyncReportService.submitCustomReport(patientId, minutes));
+        }
         Report report = reportGeneratorService.generateCustomReport(patientId, minutes);
         return ResponseEntity.ok(report);
     }
 
     /**
-     *  Export a generated report as PDF (stored in Base64 format)
+     *  Generation status of a report (GENERATING, READY, ERROR), without its content.
+     * Example:
+     *   GET /api/reports/1/status
+     */
+    @GetMapping("/{reportId}/status")
+    public ResponseEntity<ReportStatus> getReportStatus(@PathVariable("reportId") Long reportId) {
+        return reportRepository.findById(reportId)
+                .map(report -> ResponseEntity.ok(ReportStatus.of(report)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     *  Export a generated report as PDF, streamed from the report file store.
+     *  Reports generated before the file store still carry their PDF as Base64 content.
+     *  Range requests are answered with 206 and partial content, and a matching
+     *  If-None-Match with 304 (both handled by Spring MVC for Resource bodies).
      * Example:
      *   GET /api/reports/1/export
+     *   GET /api/reports/1/export  (Range: bytes=0-1023)
      */
     @GetMapping("/{reportId}/export")
-    public ResponseEntity<byte[]> exportReport(@PathVariable("reportId") Long reportId) {
+    public ResponseEntity<Resource> exportReport(@PathVariable("reportId") Long reportId) {
         Report report = reportRepository.findById(reportId)
                 .orElseThrow(() -> new RuntimeException("Rapport non trouvé"));
 
-        // Vérifie que le contenu est bien au format PDF Base64
-        if (report.getContent() == null || report.getContent().isEmpty()) {
-            throw new RuntimeException("Aucun contenu PDF disponible pour ce rapport.");
-        }
+        Resource pdf = reportFileStore.find(report)
+                .<Resource>map(FileSystemResource::new)
+                .orElseGet(() -> new ByteArrayResource(decodeLegacyContent(report)));
 
-        byte[] pdfBytes;
         try {
-            pdfBytes = Base64.getDecoder().decode(report.getContent());
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Erreur lors du décodage du PDF Base64 : " + e.getMessage());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(pdf.contentLength())
+                    .eTag(reportETag(report, pdf))
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "inline; filename=report_" + reportId + ".pdf")
+                    .body(pdf);
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur lors de la lecture du PDF : " + e.getMessage());
         }
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=report_" + reportId + ".pdf")
-                .body(pdfBytes);
     }
 
     /**
-     *  (Optionnel) Export raw Base64 string (for frontend direct rendering)
+     *  (Optionnel) Export raw Base64 string (for frontend direct rendering).
+     *  The file is encoded while it is written to the response, never held in memory.
      * Example:
      *   GET /api/reports/1/base64
      */
     @GetMapping("/{reportId}/base64")
-    public ResponseEntity<String> getReportAsBase64(@PathVariable("reportId") Long reportId) {
+    public ResponseEntity<StreamingResponseBody> getReportAsBase64(
+            @PathVariable("reportId") Long reportId,
+            WebRequest request) {
         Report report = reportRepository.findById(reportId)
                 .orElseThrow(() -> new RuntimeException("Rapport non trouvé"));
 
+        Optional<Path> file = reportFileStore.find(report);
+        if (file.isPresent()) {
+            String etag = reportETag(report, new FileSystemResource(file.get()));
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            Path pdf = file.get();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(out -> {
+                        // Closing the encoder writes the final padding
+                        try (OutputStream base64 = Base64.getEncoder().wrap(StreamUtils.nonClosing(out))) {
+                            Files.copy(pdf, base64);
+                        }
+                    });
+        }
+
         if (report.getContent() == null || report.getContent().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
 
-        return ResponseEntity.ok(report.getContent());
+        String content = report.getContent();
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Strong validator of the stored PDF: a regenerated or replaced file gets a new tag.
+     */
+    private String reportETag(Report report, Resource pdf) {
+        long lastModified;
+        long length;
+        try {
+            length = pdf.contentLength();
+            lastModified = pdf.isFile() ? pdf.lastModified() : 0L;
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur lors de la lecture du PDF : " + e.getMessage());
+        }
+        return "\"report-" + report.getId() + "-" + length + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private byte[] decodeLegacyContent(Report report) {
+        // Vérifie que le contenu est bien au format PDF Base64
+        if (report.getContent() == null || report.getContent().isEmpty()) {
+            throw new RuntimeException("Aucun contenu PDF disponible pour ce rapport.");
+        }
+
+        try {
+            return Base64.getDecoder().decode(report.getContent());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Erreur lors du décodage du PDF Base64 : " + e.getMessage());
+        }
+    }
+
+    /** {@code <reportDate>_<id>}, the date part left empty for an undated report */
+    private static String encodeCursor(ReportListItem last) {
+        String position = (last.getReportDate() != null ? last.getReportDate().toString() : "") + "_" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return {reportDate, id} of the last report of the previous page (reportDate empty
+     *         if it had none), or null if malformed
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("_", 2);
+            if (parts.length != 2) {
+                return null;
+            }
+            if (!parts[0].isEmpty()) {
+                LocalDateTime.parse(parts[0]);
+            }
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<Report> accepted(Report report) {
+        if ("ERROR".equals(report.getStatus())) {
+            // Generation queue full: ask the client to come back later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(report);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/" + report.getId() + "/status"))
+                .body(report);
     }
 }
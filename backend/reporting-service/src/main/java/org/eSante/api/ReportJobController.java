@@ -0,0 +1,57 @@
+package org.eSante.api;
+
+import org.eSante.domain.models.ReportJob;
+import org.eSante.domain.models.dto.ReportJobProgress;
+import org.eSante.scheduler.BatchRunStats;
+import org.eSante.services.ReportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Progress of the scheduled batch report jobs (weekly, monthly).
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    /**
+     * Most recent jobs.
+     * Example:
+     *   GET /api/reports/jobs
+     */
+    @GetMapping
+    public ResponseEntity<List<ReportJob>> getRecentJobs() {
+        return ResponseEntity.ok(reportJobService.recentJobs());
+    }
+
+    /**
+     * Duration, outcome and throughput (reports/min) of the last batch this instance
+     * ran; 204 if it has not run one since startup.
+     * Example:
+     *   GET /api/reports/jobs/last-run
+     */
+    @GetMapping("/last-run")
+    public ResponseEntity<BatchRunStats> getLastRun() {
+        return reportJobService.lastRun()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Per-status item counts of a job.
+     * Example:
+     *   GET /api/reports/jobs/3
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ReportJobProgress> getJobProgress(@PathVariable("id") Long id) {
+        return reportJobService.findJob(id)
+                .map(job -> ResponseEntity.ok(reportJobService.progress(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
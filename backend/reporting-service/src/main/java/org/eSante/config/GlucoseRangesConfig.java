@@ -0,0 +1,23 @@
+package org.eSante.config;
+
+import org.eSante.domain.stats.GlycemicRanges;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Glucose thresholds of the time-in/below/above-range metrics, shared by the
+ * JVM-side and InfluxDB-side stats.
+ */
+@Configuration
+public class GlucoseRangesConfig {
+
+    @Bean
+    public GlycemicRanges glycemicRanges(
+            @Value("${reporting.glucose.very-low:54}") double veryLow,
+            @Value("${reporting.glucose.low:70}") double low,
+            @Value("${reporting.glucose.high:180}") double high,
+            @Value("${reporting.glucose.very-high:250}") double veryHigh) {
+        return new GlycemicRanges(veryLow, low, high, veryHigh);
+    }
+}
@@ -0,0 +1,44 @@
+package org.eSante.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pools running the InfluxDB/PostgreSQL sub-queries of a summary in parallel, one for
+ * dashboards and one for cohorts: a cohort query scans every patient and must not hold
+ * up dashboard refreshes. When a pool is saturated further queries are rejected and
+ * the summary lists them as unavailable: running them on the request thread would
+ * bypass the summary deadline.
+ */
+@Configuration
+public class QueryExecutorConfig {
+
+    @Bean(name = "dashboardQueryExecutor")
+    public ThreadPoolTaskExecutor dashboardQueryExecutor(
+            @Value("${reporting.dashboard.query-threads:16}") int threads,
+            @Value("${reporting.dashboard.query-queue-capacity:256}") int queueCapacity) {
+        return queryPool("dashboard-query-", threads, queueCapacity);
+    }
+
+    @Bean(name = "cohortQueryExecutor")
+    public ThreadPoolTaskExecutor cohortQueryExecutor(
+            @Value("${reporting.cohort.query-threads:3}") int threads,
+            @Value("${reporting.cohort.query-queue-capacity:30}") int queueCapacity) {
+        return queryPool("cohort-query-", threads, queueCapacity);
+    }
+
+    private static ThreadPoolTaskExecutor queryPool(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
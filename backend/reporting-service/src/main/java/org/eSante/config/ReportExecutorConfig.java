@@ -0,0 +1,30 @@
+package org.eSante.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Dedicated pool for asynchronous report generation, so HTTP threads return as soon
+ * as the report is registered. The queue is bounded: when it is full, new requests
+ * are rejected instead of piling up.
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    @Bean(name = "reportGenerationExecutor")
+    public ThreadPoolTaskExecutor reportGenerationExecutor(
+            @Value("${reporting.async.pool-size:4}") int poolSize,
+            @Value("${reporting.async.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-gen-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
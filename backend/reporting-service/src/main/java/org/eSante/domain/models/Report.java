@@ -17,6 +17,7 @@ public class Report {
     @Column(name = "report_type", nullable = false)
     private String reportType; // WEEKLY, MONTHLY, POST_EVENT
 
+    // Legacy Base64 PDF; new reports only live in the file store (see ReportFileStore)
     @Column(columnDefinition = "TEXT")
     private String content;
 
@@ -35,6 +36,9 @@ public class Report {
     @Column(name = "file_path")
     private String filePath;
 
+    @Column(name = "file_size")
+    private Long fileSize;
+
     @Column(name = "status")
     private String status; // GENERATING, READY, ERROR
 
@@ -124,6 +128,14 @@ public class Report {
         this.filePath = filePath;
     }
 
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -0,0 +1,147 @@
+package org.eSante.domain.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One scheduled batch of reports (e.g. the Sunday weekly run) over a fixed period.
+ * Per-patient progress is tracked by {@link ReportJobItem} so the batch can resume
+ * after a restart.
+ */
+@Entity
+@Table(name = "report_jobs")
+public class ReportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_type", nullable = false)
+    private String jobType; // WEEKLY, MONTHLY
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDateTime periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+
+    @Column(name = "status")
+    private String status; // RUNNING, COMPLETED, COMPLETED_WITH_ERRORS
+
+    @Column(name = "total_items")
+    private Integer totalItems;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "claimed_by")
+    private String claimedBy; // instance running the job, see ReportJobRepository#claim
+
+    @Column(name = "attempts")
+    private Integer attempts; // runs started, see ReportJobRepository#claim
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt; // last heartbeat of the claim, refreshed while the job runs
+
+    public ReportJob() {}
+
+    public ReportJob(String jobType, LocalDateTime periodStart, LocalDateTime periodEnd) {
+        this.jobType = jobType;
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.status = "RUNNING";
+        this.attempts = 1;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(String jobType) {
+        this.jobType = jobType;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDateTime periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public LocalDateTime getPeriodEnd() {
+        return periodEnd;
+    }
+
+    public void setPeriodEnd(LocalDateTime periodEnd) {
+        this.periodEnd = periodEnd;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getTotalItems() {
+        return totalItems;
+    }
+
+    public void setTotalItems(Integer totalItems) {
+        this.totalItems = totalItems;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+}
@@ -0,0 +1,216 @@
+package org.eSante.domain.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Mergeable statistics of one vital series of a patient over one day: count,
+ * Welford mean/M2, min/max, glucose range band counts and the serialized quantile
+ * sketch.
+ * Reports combine these partials instead of re-reading the raw points of whole days.
+ * Days without readings are stored with a zero count so they are not recomputed.
+ */
+@Entity
+@Table(name = "vital_daily_stats",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"patient_id", "stat_day", "series"}))
+public class VitalDailyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "series", nullable = false)
+    private String series; // measurement/field, e.g. tension/systolique
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "mean")
+    private double mean;
+
+    @Column(name = "m2")
+    private double m2;
+
+    @Column(name = "min_value")
+    private Double minValue;
+
+    @Column(name = "max_value")
+    private Double maxValue;
+
+    // Glucose readings per band, counted with the thresholds in glucoseRanges
+    @Column(name = "very_low_count")
+    private long veryLowCount;
+
+    @Column(name = "low_count")
+    private long lowCount;
+
+    @Column(name = "in_range")
+    private long inRange;
+
+    @Column(name = "high_count")
+    private long highCount;
+
+    @Column(name = "very_high_count")
+    private long veryHighCount;
+
+    @Column(name = "glucose_ranges")
+    private String glucoseRanges; // GlycemicRanges signature, e.g. 54/70/180/250
+
+    @Column(name = "sketch", length = 65536)
+    private byte[] sketch;
+
+    @Column(name = "computed_at")
+    private LocalDateTime computedAt;
+
+    public VitalDailyStats() {}
+
+    public VitalDailyStats(Long patientId, LocalDate day, String series) {
+        this.patientId = patientId;
+        this.day = day;
+        this.series = series;
+        this.computedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getSeries() {
+        return series;
+    }
+
+    public void setSeries(String series) {
+        this.series = series;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    public void setM2(double m2) {
+        this.m2 = m2;
+    }
+
+    public Double getMinValue() {
+        return minValue;
+    }
+
+    public void setMinValue(Double minValue) {
+        this.minValue = minValue;
+    }
+
+    public Double getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMaxValue(Double maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    public long getInRange() {
+        return inRange;
+    }
+
+    public void setInRange(long inRange) {
+        this.inRange = inRange;
+    }
+
+    public long getVeryLowCount() {
+        return veryLowCount;
+    }
+
+    public void setVeryLowCount(long veryLowCount) {
+        this.veryLowCount = veryLowCount;
+    }
+
+    public long getLowCount() {
+        return lowCount;
+    }
+
+    public void setLowCount(long lowCount) {
+        this.lowCount = lowCount;
+    }
+
+    public long getHighCount() {
+        return highCount;
+    }
+
+    public void setHighCount(long highCount) {
+        this.highCount = highCount;
+    }
+
+    public long getVeryHighCount() {
+        return veryHighCount;
+    }
+
+    public void setVeryHighCount(long veryHighCount) {
+        this.veryHighCount = veryHighCount;
+    }
+
+    public String getGlucoseRanges() {
+        return glucoseRanges;
+    }
+
+    public void setGlucoseRanges(String glucoseRanges) {
+        this.glucoseRanges = glucoseRanges;
+    }
+
+    public byte[] getSketch() {
+        return sketch;
+    }
+
+    public void setSketch(byte[] sketch) {
+        this.sketch = sketch;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
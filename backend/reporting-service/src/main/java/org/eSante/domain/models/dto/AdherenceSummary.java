@@ -0,0 +1,45 @@
+package org.eSante.domain.models.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sensor adherence of a patient: percent of the expected readings received over the
+ * period, and the readings of each (UTC) day to chart against {@code expectedPerDay}.
+ */
+public class AdherenceSummary {
+    private Long patientId;
+    private LocalDateTime periodStart;
+    private LocalDateTime periodEnd;
+
+    private Map<String, Integer> adherenceBySensor;
+    private double overallAdherenceRate;
+    private Map<String, Integer> expectedPerDay;
+    private List<Day> days;
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public LocalDateTime getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDateTime periodStart) { this.periodStart = periodStart; }
+
+    public LocalDateTime getPeriodEnd() { return periodEnd; }
+    public void setPeriodEnd(LocalDateTime periodEnd) { this.periodEnd = periodEnd; }
+
+    public Map<String, Integer> getAdherenceBySensor() { return adherenceBySensor; }
+    public void setAdherenceBySensor(Map<String, Integer> adherenceBySensor) { this.adherenceBySensor = adherenceBySensor; }
+
+    public double getOverallAdherenceRate() { return overallAdherenceRate; }
+    public void setOverallAdherenceRate(double overallAdherenceRate) { this.overallAdherenceRate = overallAdherenceRate; }
+
+    public Map<String, Integer> getExpectedPerDay() { return expectedPerDay; }
+    public void setExpectedPerDay(Map<String, Integer> expectedPerDay) { this.expectedPerDay = expectedPerDay; }
+
+    public List<Day> getDays() { return days; }
+    public void setDays(List<Day> days) { this.days = days; }
+
+    /** Readings per sensor received on one day, every sensor present (0 when none) */
+    public record Day(LocalDate date, Map<String, Integer> readings) {}
+}
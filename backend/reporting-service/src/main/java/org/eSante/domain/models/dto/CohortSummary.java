@@ -0,0 +1,48 @@
+package org.eSante.domain.models.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Distribution of per-patient values across a cohort: each {@link VitalSignsStats}
+ * describes one value per patient (its measurement count is the number of patients
+ * it covers), not the raw readings.
+ */
+public class CohortSummary {
+    // null for every patient
+    private String pathology;
+    private LocalDateTime periodStart;
+    private LocalDateTime periodEnd;
+    private int patientCount;
+
+    private VitalSignsStats averageHeartRate;
+    private VitalSignsStats adherence;
+    private VitalSignsStats timeInRange;
+
+    // Metrics whose query failed or timed out (empty when the summary is complete)
+    private List<String> unavailable = List.of();
+
+    public String getPathology() { return pathology; }
+    public void setPathology(String pathology) { this.pathology = pathology; }
+
+    public LocalDateTime getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDateTime periodStart) { this.periodStart = periodStart; }
+
+    public LocalDateTime getPeriodEnd() { return periodEnd; }
+    public void setPeriodEnd(LocalDateTime periodEnd) { this.periodEnd = periodEnd; }
+
+    public int getPatientCount() { return patientCount; }
+    public void setPatientCount(int patientCount) { this.patientCount = patientCount; }
+
+    public VitalSignsStats getAverageHeartRate() { return averageHeartRate; }
+    public void setAverageHeartRate(VitalSignsStats averageHeartRate) { this.averageHeartRate = averageHeartRate; }
+
+    public VitalSignsStats getAdherence() { return adherence; }
+    public void setAdherence(VitalSignsStats adherence) { this.adherence = adherence; }
+
+    public VitalSignsStats getTimeInRange() { return timeInRange; }
+    public void setTimeInRange(VitalSignsStats timeInRange) { this.timeInRange = timeInRange; }
+
+    public List<String> getUnavailable() { return unavailable; }
+    public void setUnavailable(List<String> unavailable) { this.unavailable = unavailable; }
+}
@@ -0,0 +1,63 @@
+package org.eSante.domain.models.dto;
+
+import org.eSante.influx.DeltaSeries;
+import org.eSante.services.DashboardService;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link DashboardSummary} with its chart series as {@link DeltaSeries}, served when
+ * the client accepts {@link DeltaSeries#MEDIA_TYPE}.
+ */
+public record CompactDashboardSummary(
+        Long patientId,
+        DashboardPoint heartRate,
+        DashboardPoint spo2,
+        DashboardPoint glucose,
+        DashboardPoint weight,
+        DashboardPoint steps,
+        DashboardPoint bpSystolic,
+        DashboardPoint bpDiastolic,
+        DeltaSeries seriesHeartRate,
+        DeltaSeries seriesSpO2,
+        DeltaSeries seriesBloodPressureSys,
+        DeltaSeries seriesBloodPressureDia,
+        DeltaSeries seriesGlucose,
+        DeltaSeries seriesWeight,
+        Integer alertCount,
+        List<AlertSummary> recentAlerts,
+        List<String> unavailable) {
+
+    public static CompactDashboardSummary of(DashboardSummary s) {
+        return new CompactDashboardSummary(
+                s.getPatientId(),
+                s.getHeartRate(), s.getSpo2(), s.getGlucose(), s.getWeight(), s.getSteps(),
+                s.getBpSystolic(), s.getBpDiastolic(),
+                series(s.getSeriesHeartRate(), DashboardService.EVERY_VITALS),
+                series(s.getSeriesSpO2(), DashboardService.EVERY_VITALS),
+                series(s.getSeriesBloodPressureSys(), DashboardService.EVERY_BLOOD_PRESSURE),
+                series(s.getSeriesBloodPressureDia(), DashboardService.EVERY_BLOOD_PRESSURE),
+                series(s.getSeriesGlucose(), DashboardService.EVERY_GLUCOSE),
+                series(s.getSeriesWeight(), DashboardService.EVERY_WEIGHT),
+                s.getAlertCount(), s.getRecentAlerts(), s.getUnavailable());
+    }
+
+    /** Points with a time and a value, delta-encoded; null when the series is unavailable */
+    static DeltaSeries series(List<DashboardPoint> points, String every) {
+        if (points == null) {
+            return null;
+        }
+        long[] t = new long[points.size()];
+        double[] v = new double[points.size()];
+        int n = 0;
+        for (DashboardPoint point : points) {
+            if (point.getTime() != null && point.getValue() != null) {
+                t[n] = Instant.parse(point.getTime()).toEpochMilli();
+                v[n++] = point.getValue();
+            }
+        }
+        return DeltaSeries.of(every, Arrays.copyOf(t, n), Arrays.copyOf(v, n));
+    }
+}
@@ -22,6 +22,9 @@ public class DashboardSummary {
     private Integer alertCount;
     private List<AlertSummary> recentAlerts;
 
+    // Sections whose query failed or timed out (empty when the summary is complete)
+    private List<String> unavailable = List.of();
+
     public Long getPatientId() { return patientId; }
     public void setPatientId(Long patientId) { this.patientId = patientId; }
 
@@ -64,4 +67,7 @@ public class DashboardSummary {
 
     public List<AlertSummary> getRecentAlerts() { return recentAlerts; }
     public void setRecentAlerts(List<AlertSummary> recentAlerts) { this.recentAlerts = recentAlerts; }
+
+    public List<String> getUnavailable() { return unavailable; }
+    public void setUnavailable(List<String> unavailable) { this.unavailable = unavailable; }
 }
@@ -31,6 +31,9 @@ public class ReportData {
     // Appointments
     private List<AppointmentSummary> appointments;
 
+    // Clinical recommendations (monthly reports)
+    private List<String> recommendations;
+
     // Constructors
     public ReportData() {}
 
@@ -160,4 +163,12 @@ public class ReportData {
     public void setAppointments(List<AppointmentSummary> appointments) {
         this.appointments = appointments;
     }
+
+    public List<String> getRecommendations() {
+        return recommendations;
+    }
+
+    public void setRecommendations(List<String> recommendations) {
+        this.recommendations = recommendations;
+    }
 }
@@ -0,0 +1,34 @@
+package org.eSante.domain.models.dto;
+
+import org.eSante.domain.models.ReportJob;
+
+/**
+ * Progress of a batch report job, derived from the status of its work items.
+ */
+public class ReportJobProgress {
+
+    private ReportJob job;
+    private long pending;
+    private long done;
+    private long skipped;
+    private long failed;
+
+    public ReportJobProgress(ReportJob job, long pending, long done, long skipped, long failed) {
+        this.job = job;
+        this.pending = pending;
+        this.done = done;
+        this.skipped = skipped;
+        this.failed = failed;
+    }
+
+    public ReportJob getJob() { return job; }
+    public long getPending() { return pending; }
+    public long getDone() { return done; }
+    public long getSkipped() { return skipped; }
+    public long getFailed() { return failed; }
+
+    public double getPercentComplete() {
+        long total = pending + done + skipped + failed;
+        return total == 0 ? 100.0 : (done + skipped + failed) * 100.0 / total;
+    }
+}
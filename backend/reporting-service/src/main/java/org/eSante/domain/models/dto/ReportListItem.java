@@ -0,0 +1,28 @@
+package org.eSante.domain.models.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of {@link org.eSante.domain.models.Report} used to list reports:
+ * everything but the (legacy) PDF content.
+ */
+public interface ReportListItem {
+
+    Long getId();
+
+    Long getPatientId();
+
+    String getReportType();
+
+    LocalDateTime getReportDate();
+
+    LocalDateTime getPeriodStart();
+
+    LocalDateTime getPeriodEnd();
+
+    String getExportFormat();
+
+    Long getFileSize();
+
+    String getStatus();
+}
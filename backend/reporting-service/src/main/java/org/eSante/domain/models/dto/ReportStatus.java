@@ -0,0 +1,39 @@
+package org.eSante.domain.models.dto;
+
+import org.eSante.domain.models.Report;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a report used to poll asynchronous generation (no content).
+ */
+public class ReportStatus {
+
+    private Long id;
+    private Long patientId;
+    private String reportType;
+    private String status;
+    private LocalDateTime reportDate;
+    private LocalDateTime periodStart;
+    private LocalDateTime periodEnd;
+
+    public static ReportStatus of(Report report) {
+        ReportStatus status = new ReportStatus();
+        status.id = report.getId();
+        status.patientId = report.getPatientId();
+        status.reportType = report.getReportType();
+        status.status = report.getStatus();
+        status.reportDate = report.getReportDate();
+        status.periodStart = report.getPeriodStart();
+        status.periodEnd = report.getPeriodEnd();
+        return status;
+    }
+
+    public Long getId() { return id; }
+    public Long getPatientId() { return patientId; }
+    public String getReportType() { return reportType; }
+    public String getStatus() { return status; }
+    public LocalDateTime getReportDate() { return reportDate; }
+    public LocalDateTime getPeriodStart() { return periodStart; }
+    public LocalDateTime getPeriodEnd() { return periodEnd; }
+}
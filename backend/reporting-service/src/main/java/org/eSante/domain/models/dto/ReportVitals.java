@@ -0,0 +1,40 @@
+package org.eSante.domain.models.dto;
+
+import java.util.Map;
+
+/**
+ * All vital-sign statistics of a report window, fetched in one batched query.
+ */
+public class ReportVitals {
+    private VitalSignsStats heartRate;
+    private VitalSignsStats spo2;
+    private VitalSignsStats bloodPressure;
+    private VitalSignsStats glucose;
+    private VitalSignsStats weight;
+
+    // Readings received per measurement (tension, glycemie, poids), used for adherence
+    private Map<String, Integer> measurementCounts;
+
+    public VitalSignsStats getHeartRate() { return heartRate; }
+    public void setHeartRate(VitalSignsStats heartRate) { this.heartRate = heartRate; }
+
+    public VitalSignsStats getSpo2() { return spo2; }
+    public void setSpo2(VitalSignsStats spo2) { this.spo2 = spo2; }
+
+    public VitalSignsStats getBloodPressure() { return bloodPressure; }
+    public void setBloodPressure(VitalSignsStats bloodPressure) { this.bloodPressure = bloodPressure; }
+
+    public VitalSignsStats getGlucose() { return glucose; }
+    public void setGlucose(VitalSignsStats glucose) { this.glucose = glucose; }
+
+    public VitalSignsStats getWeight() { return weight; }
+    public void setWeight(VitalSignsStats weight) { this.weight = weight; }
+
+    public Map<String, Integer> getMeasurementCounts() { return measurementCounts; }
+    public void setMeasurementCounts(Map<String, Integer> measurementCounts) { this.measurementCounts = measurementCounts; }
+
+    public int getMeasurementCount(String measurement) {
+        if (measurementCounts == null) return 0;
+        return measurementCounts.getOrDefault(measurement, 0);
+    }
+}
@@ -12,8 +12,12 @@ public class VitalSignsStats {
     private Integer measurementCount;
     private String unit;
 
-    // For blood glucose
-    private Double timeInRange; // % of time within 70–180 mg/dL
+    // For blood glucose (% of readings, thresholds from GlycemicRanges, by default 54/70/180/250 mg/dL)
+    private Double timeInRange; // 70–180
+    private Double timeBelowRange; // < 70, very low included
+    private Double timeVeryLow; // < 54
+    private Double timeAboveRange; // > 180, very high included
+    private Double timeVeryHigh; // > 250
 
     // For blood pressure
     private Double averageSystolic;
@@ -117,6 +121,38 @@ public class VitalSignsStats {
         this.timeInRange = timeInRange;
     }
 
+    public Double getTimeBelowRange() {
+        return timeBelowRange;
+    }
+
+    public void setTimeBelowRange(Double timeBelowRange) {
+        this.timeBelowRange = timeBelowRange;
+    }
+
+    public Double getTimeVeryLow() {
+        return timeVeryLow;
+    }
+
+    public void setTimeVeryLow(Double timeVeryLow) {
+        this.timeVeryLow = timeVeryLow;
+    }
+
+    public Double getTimeAboveRange() {
+        return timeAboveRange;
+    }
+
+    public void setTimeAboveRange(Double timeAboveRange) {
+        this.timeAboveRange = timeAboveRange;
+    }
+
+    public Double getTimeVeryHigh() {
+        return timeVeryHigh;
+    }
+
+    public void setTimeVeryHigh(Double timeVeryHigh) {
+        this.timeVeryHigh = timeVeryHigh;
+    }
+
     public Double getAverageSystolic() {
         return averageSystolic;
     }
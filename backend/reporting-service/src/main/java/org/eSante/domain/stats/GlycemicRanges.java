@@ -0,0 +1,54 @@
+package org.eSante.domain.stats;
+
+/**
+ * Glucose thresholds (mg/dL) of the CGM range metrics: time very low
+ * ({@code < veryLow}), below range ({@code < low}), in range ({@code low..high},
+ * inclusive), above range ({@code > high}) and very high ({@code > veryHigh}).
+ * A NaN {@code veryLow}/{@code veryHigh} disables that level.
+ */
+public record GlycemicRanges(double veryLow, double low, double high, double veryHigh) {
+
+    /** International consensus targets: 54 / 70 / 180 / 250 mg/dL */
+    public static final GlycemicRanges STANDARD = new GlycemicRanges(54, 70, 180, 250);
+
+    public static final int BANDS = 5;
+    public static final int VERY_LOW = 0;
+    public static final int LOW = 1;
+    public static final int IN_RANGE = 2;
+    public static final int HIGH = 3;
+    public static final int VERY_HIGH = 4;
+
+    public GlycemicRanges {
+        if (!(low <= high) || veryLow > low || veryHigh < high) {
+            throw new IllegalArgumentException("Glucose thresholds must be ordered: " + veryLow + " " + low + " "
+                    + high + " " + veryHigh);
+        }
+    }
+
+    public static GlycemicRanges range(double low, double high) {
+        return new GlycemicRanges(Double.NaN, low, high, Double.NaN);
+    }
+
+    /** Band index of {@code value}, see the {@code VERY_LOW}..{@code VERY_HIGH} constants */
+    int band(double value) {
+        if (value < low) {
+            return value < veryLow ? VERY_LOW : LOW;
+        }
+        if (value <= high) {
+            return IN_RANGE;
+        }
+        return value > veryHigh ? VERY_HIGH : HIGH;
+    }
+
+    /** Identifies the thresholds counts were made with, e.g. "54/70/180/250" */
+    public String signature() {
+        return format(veryLow) + "/" + format(low) + "/" + format(high) + "/" + format(veryHigh);
+    }
+
+    private static String format(double threshold) {
+        if (Double.isNaN(threshold)) {
+            return "-";
+        }
+        return threshold == Math.rint(threshold) ? Long.toString((long) threshold) : Double.toString(threshold);
+    }
+}
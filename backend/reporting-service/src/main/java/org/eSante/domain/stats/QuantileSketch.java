@@ -0,0 +1,281 @@
+package org.eSante.domain.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-memory quantile estimator (merging t-digest).
+ * <p>
+ * Incoming values are buffered and periodically folded into a bounded set of
+ * centroids, so memory stays around {@code compression} centroids whatever the
+ * number of points. Centroids near the tails stay small, which keeps p10/p90
+ * accurate; two sketches can be merged without going back to the raw data.
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_COMPRESSION = 100.0;
+
+    private static final byte FORMAT_VERSION = 2;
+
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+
+    private final double[] buffer;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be >= 10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(Math.PI * compression / 2) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[(int) (5 * compression)];
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        if (buffered == buffer.length) {
+            flush();
+        }
+        buffer[buffered++] = value;
+        totalWeight++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Folds another sketch into this one. The other sketch is left untouched: its
+     * buffered values are merged from a copy, so it may be shared (e.g. cached).
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null || other.isEmpty()) return;
+        flush();
+        if (other.centroidCount > 0) {
+            mergeCentroids(other.means, other.weights, other.centroidCount);
+        }
+        if (other.buffered > 0) {
+            mergeValues(Arrays.copyOf(other.buffer, other.buffered), other.buffered);
+        }
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public boolean isEmpty() {
+        return totalWeight == 0;
+    }
+
+    public long size() {
+        return (long) totalWeight;
+    }
+
+    /**
+     * Estimated value at quantile {@code q} in [0, 1], or NaN when empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be within [0, 1]: " + q);
+        }
+        flush();
+        if (centroidCount == 0) return Double.NaN;
+        if (centroidCount == 1) return means[0];
+
+        double index = q * totalWeight;
+
+        // Left tail: interpolate between min and the first centroid center
+        double firstHalf = weights[0] / 2;
+        if (index < firstHalf) {
+            return min + index / firstHalf * (means[0] - min);
+        }
+
+        // Right tail: interpolate between the last centroid center and max
+        int last = centroidCount - 1;
+        double lastHalf = weights[last] / 2;
+        if (index > totalWeight - lastHalf) {
+            return means[last] + (index - (totalWeight - lastHalf)) / lastHalf * (max - means[last]);
+        }
+
+        double cumulative = firstHalf;
+        for (int i = 0; i < last; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step >= index) {
+                double fraction = (index - cumulative) / step;
+                return means[i] + fraction * (means[i + 1] - means[i]);
+            }
+            cumulative += step;
+        }
+        return means[last];
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Compact binary form, read back with {@link #fromBytes}: compression, min and max,
+     * then the centroids as a float mean and a varint weight each (weights are whole
+     * counts), about 6 bytes per centroid.
+     */
+    public byte[] toBytes() {
+        flush();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + centroidCount * 6);
+        ByteBuffer header = ByteBuffer.allocate(1 + 8 * 3);
+        header.put(FORMAT_VERSION);
+        header.putDouble(compression);
+        header.putDouble(min);
+        header.putDouble(max);
+        out.writeBytes(header.array());
+        writeVarLong(out, centroidCount);
+        ByteBuffer mean = ByteBuffer.allocate(4);
+        for (int i = 0; i < centroidCount; i++) {
+            out.writeBytes(mean.putFloat(0, (float) means[i]).array());
+            writeVarLong(out, Math.round(weights[i]));
+        }
+        return out.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    static QuantileSketch read(ByteBuffer in) {
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sketch format " + version);
+        }
+        QuantileSketch sketch = new QuantileSketch(in.getDouble());
+        sketch.min = in.getDouble();
+        sketch.max = in.getDouble();
+        int count = (int) readVarLong(in);
+        double[] inMeans = new double[count];
+        double[] inWeights = new double[count];
+        for (int i = 0; i < count; i++) {
+            inMeans[i] = in.getFloat();
+            inWeights[i] = readVarLong(in);
+            sketch.totalWeight += inWeights[i];
+        }
+        if (count > 0) {
+            sketch.mergeCentroids(inMeans, inWeights, count);
+        }
+        return sketch;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private void flush() {
+        if (buffered == 0) return;
+        mergeValues(buffer, buffered);
+        buffered = 0;
+    }
+
+    /** Merges the first {@code count} values of {@code values} (sorted in place) as unit centroids */
+    private void mergeValues(double[] values, int count) {
+        Arrays.sort(values, 0, count);
+        double[] unitWeights = new double[count];
+        Arrays.fill(unitWeights, 1.0);
+        mergeCentroids(values, unitWeights, count);
+    }
+
+    /**
+     * Merges sorted incoming centroids with the current ones, then compresses the
+     * result so each centroid respects the k1 (arcsine) size bound.
+     */
+    private void mergeCentroids(double[] inMeans, double[] inWeights, int inCount) {
+        int total = centroidCount + inCount;
+        double[] allMeans = new double[total];
+        double[] allWeights = new double[total];
+
+        int i = 0, j = 0, k = 0;
+        while (i < centroidCount || j < inCount) {
+            if (j >= inCount || (i < centroidCount && means[i] <= inMeans[j])) {
+                allMeans[k] = means[i];
+                allWeights[k++] = weights[i++];
+            } else {
+                allMeans[k] = inMeans[j];
+                allWeights[k++] = inWeights[j++];
+            }
+        }
+
+        double weightSum = 0;
+        for (int n = 0; n < total; n++) weightSum += allWeights[n];
+
+        double[] outMeans = new double[Math.max(means.length, 16)];
+        double[] outWeights = new double[outMeans.length];
+        int out = 0;
+
+        double mergedBefore = 0;
+        double kLeft = scale(0);
+        double currentMean = allMeans[0];
+        double currentWeight = allWeights[0];
+
+        for (int n = 1; n < total; n++) {
+            double proposed = currentWeight + allWeights[n];
+            double kRight = scale((mergedBefore + proposed) / weightSum);
+            if (kRight - kLeft <= 1) {
+                currentMean += (allMeans[n] - currentMean) * allWeights[n] / proposed;
+                currentWeight = proposed;
+            } else {
+                if (out == outMeans.length) {
+                    outMeans = Arrays.copyOf(outMeans, out * 2);
+                    outWeights = Arrays.copyOf(outWeights, out * 2);
+                }
+                outMeans[out] = currentMean;
+                outWeights[out++] = currentWeight;
+                mergedBefore += currentWeight;
+                kLeft = scale(mergedBefore / weightSum);
+                currentMean = allMeans[n];
+                currentWeight = allWeights[n];
+            }
+        }
+        if (out == outMeans.length) {
+            outMeans = Arrays.copyOf(outMeans, out + 1);
+            outWeights = Arrays.copyOf(outWeights, out + 1);
+        }
+        outMeans[out] = currentMean;
+        outWeights[out++] = currentWeight;
+
+        means = outMeans;
+        weights = outWeights;
+        centroidCount = out;
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+}
@@ -0,0 +1,156 @@
+package org.eSante.domain.stats;
+
+import org.eSante.domain.models.dto.VitalSignsStats;
+
+/**
+ * Single-pass statistics over a stream of values, kept in primitive state:
+ * Welford running mean/variance, min/max and a {@link QuantileSketch} for the
+ * median and p10/p90. Memory is constant whatever the number of points.
+ * <p>
+ * Accumulators merge exactly (except for the quantile estimates), so the per-day
+ * partials stored in {@code vital_daily_stats} (moments, band counts and the
+ * {@link QuantileSketch#toBytes serialized sketch}) are combined into a report
+ * without going back to the raw points.
+ */
+public class StatsAccumulator {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    // Optional glucose thresholds; points are counted per band for TIR/TBR/TAR
+    private GlycemicRanges ranges;
+    private final long[] bands = new long[GlycemicRanges.BANDS];
+
+    public static StatsAccumulator withRange(double low, double high) {
+        return withRanges(GlycemicRanges.range(low, high));
+    }
+
+    public static StatsAccumulator withRanges(GlycemicRanges ranges) {
+        StatsAccumulator acc = new StatsAccumulator();
+        acc.ranges = ranges;
+        return acc;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (value < min) min = value;
+        if (value > max) max = value;
+        sketch.add(value);
+        if (ranges != null) bands[ranges.band(value)]++;
+    }
+
+    /**
+     * Combines another accumulator into this one (Chan et al. parallel variance).
+     */
+    public void merge(StatsAccumulator other) {
+        if (other == null) return;
+        merge(other.count, other.mean, other.m2, other.min, other.max, other.bands, other.sketch);
+    }
+
+    /**
+     * Combines a partial kept outside an accumulator (e.g. a stored day, see
+     * {@link #getM2()}, {@link #getBands()} and {@link #getSketch()}) into this one.
+     * Band counts must have been made with the same {@link GlycemicRanges}.
+     */
+    public void merge(long otherCount, double otherMean, double otherM2, double otherMin, double otherMax,
+                      long[] otherBands, QuantileSketch otherSketch) {
+        if (otherCount == 0) return;
+        long total = count + otherCount;
+        double delta = otherMean - mean;
+        m2 += otherM2 + delta * delta * count * otherCount / total;
+        mean += delta * otherCount / total;
+        count = total;
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+        sketch.merge(otherSketch);
+        if (otherBands != null) {
+            for (int i = 0; i < bands.length; i++) bands[i] += otherBands[i];
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : mean;
+    }
+
+    /** Sum of squared deviations from the mean (Welford state) */
+    public double getM2() {
+        return m2;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /** Points per glucose band, very low to very high (all zero without ranges) */
+    public long[] getBands() {
+        return bands.clone();
+    }
+
+    public GlycemicRanges getRanges() {
+        return ranges;
+    }
+
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * Population standard deviation, matching the previous list-based computation.
+     */
+    public double getStandardDeviation() {
+        return count == 0 ? 0.0 : Math.sqrt(m2 / count);
+    }
+
+    /**
+     * Final stats of the accumulated points.
+     */
+    public VitalSignsStats toStats(String metric, String unit) {
+        VitalSignsStats stats = new VitalSignsStats(metric, unit);
+        stats.setMeasurementCount((int) count);
+        if (count == 0) {
+            stats.setAverage(0.0);
+            stats.setMin(0.0);
+            stats.setMax(0.0);
+            return stats;
+        }
+        stats.setMin(min);
+        stats.setMax(max);
+        stats.setAverage(mean);
+        stats.setMedian(sketch.quantile(0.5));
+        stats.setP10(sketch.quantile(0.1));
+        stats.setP90(sketch.quantile(0.9));
+        stats.setStandardDeviation(getStandardDeviation());
+        if (ranges != null) {
+            stats.setTimeInRange(percent(bands[GlycemicRanges.IN_RANGE]));
+            stats.setTimeBelowRange(percent(bands[GlycemicRanges.VERY_LOW] + bands[GlycemicRanges.LOW]));
+            stats.setTimeAboveRange(percent(bands[GlycemicRanges.HIGH] + bands[GlycemicRanges.VERY_HIGH]));
+            if (!Double.isNaN(ranges.veryLow())) {
+                stats.setTimeVeryLow(percent(bands[GlycemicRanges.VERY_LOW]));
+            }
+            if (!Double.isNaN(ranges.veryHigh())) {
+                stats.setTimeVeryHigh(percent(bands[GlycemicRanges.VERY_HIGH]));
+            }
+        }
+        return stats;
+    }
+
+    private double percent(long points) {
+        return 100.0 * points / count;
+    }
+}
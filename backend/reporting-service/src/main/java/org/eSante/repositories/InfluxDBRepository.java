@@ -1,17 +1,37 @@
 package org.eSante.repositories;
 
+import com.influxdb.Cancellable;
 import com.influxdb.client.InfluxDBClient;
 import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
+import org.eSante.domain.models.dto.ReportVitals;
 import org.eSante.domain.models.dto.VitalSignsStats;
 import org.eSante.domain.models.dto.DashboardPoint;
+import org.eSante.domain.stats.GlycemicRanges;
+import org.eSante.domain.stats.StatsAccumulator;
+import org.eSante.influx.FluxQuery;
+import org.eSante.influx.FluxTemplate;
+import org.eSante.influx.InfluxRollup;
+import org.eSante.influx.PatientFilter;
+import org.eSante.influx.VitalSchema;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Repository
 public class InfluxDBRepository {
@@ -25,56 +45,133 @@ public class InfluxDBRepository {
     @Value("${influxdb.org}")
     private String org;
 
+    @Value("${influxdb.query-timeout-seconds:120}")
+    private long queryTimeoutSeconds;
+
+    @Value("${influxdb.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
+    // Send bound values as request params (InfluxDB Cloud); OSS needs them declared in the query text
+    @Value("${influxdb.native-params:false}")
+    private boolean nativeParams;
+
+    @Value("${reporting.stats.mode:CLIENT}")
+    private StatsMode statsMode;
+
+    @Autowired
+    private GlycemicRanges glucoseRanges;
+
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_INSTANT;
 
+    /** How far back {@link #getLatestValues} looks for the last point of a series */
+    public static final Duration LATEST_VALUES_WINDOW = Duration.ofDays(7);
+
+    // Query texts are constants; patient, range and names are only read from params.*
+    private static final String RANGE = """
+        from(bucket: params.bucket)
+          |> range(start: time(v: params.start), stop: time(v: params.stop))
+        """;
+
+    private static final String SERIES_FILTER = """
+          |> filter(fn: (r) => r["_measurement"] == params.measurement)
+          |> filter(fn: (r) => r["patient"] == params.patient)
+        """;
+
+    private static final FluxTemplate SERIES = FluxTemplate.of(RANGE + SERIES_FILTER + """
+          |> filter(fn: (r) => r["_field"] == params.field)
+        """);
+
+    private static final FluxTemplate SERIES_PAIR = FluxTemplate.of(RANGE + SERIES_FILTER + """
+          |> filter(fn: (r) => r["_field"] == params.field or r["_field"] == params.otherField)
+        """);
+
+    private static final FluxTemplate HOURLY_MEAN = FluxTemplate.of(SERIES.getBody() + """
+          |> aggregateWindow(every: 1h, fn: mean, createEmpty: false)
+        """);
+
+    private static final String REPORT_PREAMBLE = """
+        data = from(bucket: params.bucket)
+          |> range(start: time(v: params.start), stop: time(v: params.stop))
+          |> filter(fn: (r) => r["patient"] == params.patient)
+          |> filter(fn: (r) => contains(value: r["_measurement"], set: ["fc", "spO2", "tension", "glycemie", "poids"]))
+
+        heartRate = data
+          |> filter(fn: (r) => r["_measurement"] == "fc" and r["_field"] == "value")
+          |> aggregateWindow(every: 1h, fn: mean, createEmpty: false, timeSrc: "_start")
+
+        vitals = data
+          |> filter(fn: (r) => r["_measurement"] != "fc")
+          |> filter(fn: (r) => contains(value: r["_field"], set: ["value", "systolique", "diastolique"]))
+
+        """;
+
+    private static final String REPORT_SOURCE = """
+        union(tables: [heartRate, vitals])
+        """;
+
+    private static final FluxTemplate REPORT_VITALS = FluxTemplate.of(REPORT_PREAMBLE + REPORT_SOURCE + """
+          |> group(columns: ["_measurement", "_field"])
+          |> keep(columns: ["_measurement", "_field", "_value"])
+        """);
+
+    /** "measurement/field" keys of the series aggregated for reports */
+    public static final List<String> REPORT_SERIES = List.of(
+            "fc/value", "spO2/value", "tension/systolique", "tension/diastolique", "glycemie/value", "poids/value");
+
+    // Same points with their time, to split them per day
+    private static final FluxTemplate REPORT_VITALS_TIMED = FluxTemplate.of(REPORT_PREAMBLE + REPORT_SOURCE + """
+          |> keep(columns: ["_time", "_measurement", "_field", "_value"])
+        """);
+
     // --- HEART RATE ---
     public VitalSignsStats getHeartRateStats(Long patientId, Instant start, Instant stop) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "fc")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "value")
-              |> aggregateWindow(every: 1h, fn: mean, createEmpty: false)
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
+        return getHeartRateStats(patientId, start, stop, statsMode);
+    }
 
-        return executeStatsQuery(flux, "Heart Rate", "bpm");
+    public VitalSignsStats getHeartRateStats(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            return serverStats(executeServerStatsQuery(HOURLY_MEAN, false, q -> bindSeries(q, patientId, start, stop, "fc", "value")),
+                    "fc", "value", "Heart Rate", "bpm");
+        }
+        return executeStatsQuery(bindSeries(HOURLY_MEAN.bind(), patientId, start, stop, "fc", "value"), "Heart Rate", "bpm");
     }
 
     // --- SPO2 ---
     public VitalSignsStats getSpO2Stats(Long patientId, Instant start, Instant stop) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "spO2")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "value")
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
+        return getSpO2Stats(patientId, start, stop, statsMode);
+    }
 
-        return executeStatsQuery(flux, "SpO₂", "%");
+    public VitalSignsStats getSpO2Stats(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            return serverStats(executeServerStatsQuery(SERIES, false, q -> bindSeries(q, patientId, start, stop, "spO2", "value")),
+                    "spO2", "value", "SpO₂", "%");
+        }
+        return executeStatsQuery(bindSeries(SERIES.bind(), patientId, start, stop, "spO2", "value"), "SpO₂", "%");
     }
 
     // --- BLOOD PRESSURE ---
     public VitalSignsStats getBloodPressureStats(Long patientId, Instant start, Instant stop) {
-        String fluxSystolic = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "tension")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "systolique")
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
-
-        String fluxDiastolic = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "tension")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "diastolique")
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
-
-        VitalSignsStats systolic = executeStatsQuery(fluxSystolic, "Systolic", "mmHg");
-        VitalSignsStats diastolic = executeStatsQuery(fluxDiastolic, "Diastolic", "mmHg");
+        return getBloodPressureStats(patientId, start, stop, statsMode);
+    }
+
+    public VitalSignsStats getBloodPressureStats(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            Map<String, Map<String, Object>> rows = executeServerStatsQuery(SERIES_PAIR, false,
+                    q -> bindSeries(q, patientId, start, stop, "tension", "systolique", "diastolique"));
+            return combineBloodPressure(
+                    serverStats(rows, "tension", "systolique", "Systolic", "mmHg"),
+                    serverStats(rows, "tension", "diastolique", "Diastolic", "mmHg"));
+        }
 
+        VitalSignsStats systolic = executeStatsQuery(bindSeries(SERIES.bind(), patientId, start, stop, "tension", "systolique"),
+                "Systolic", "mmHg");
+        VitalSignsStats diastolic = executeStatsQuery(bindSeries(SERIES.bind(), patientId, start, stop, "tension", "diastolique"),
+                "Diastolic", "mmHg");
+
+        return combineBloodPressure(systolic, diastolic);
+    }
+
+    private VitalSignsStats combineBloodPressure(VitalSignsStats systolic, VitalSignsStats diastolic) {
         VitalSignsStats combined = new VitalSignsStats();
         combined.setMetric("Blood Pressure");
         combined.setUnit("mmHg");
@@ -102,107 +199,121 @@ public class InfluxDBRepository {
 
     // --- GLUCOSE ---
     public VitalSignsStats getGlucoseStats(Long patientId, Instant start, Instant stop) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "glycemie")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "value")
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
-
-        VitalSignsStats stats = executeStatsQuery(flux, "Blood Glucose", "mg/dL");
+        return getGlucoseStats(patientId, start, stop, statsMode);
+    }
 
-        // Time in range (TIR)
-        try {
-            String tirFlux = String.format("""
-    from(bucket: "%s")
-      |> range(start: time(v: "%s"), stop: time(v: "%s"))
-      |> filter(fn: (r) => r["_measurement"] == "glycemie")
-      |> filter(fn: (r) => r["patient"] == "%d")
-      |> filter(fn: (r) => r["_field"] == "value")
-      |> map(fn: (r) => ({
-          r with inRange: if r._value >= 70.0 and r._value <= 180.0 then 1 else 0
-      }))
-      |> reduce(
-          fn: (r, accumulator) => ({
-              total: accumulator.total + 1,
-              inRange: accumulator.inRange + r.inRange
-          }),
-          identity: {total: 0, inRange: 0}
-      )
-      |> map(fn: (r) => ({
-          tir: if r.total > 0 then float(v: r.inRange) / float(v: r.total) * 100.0 else 0.0
-      }))
-""", bucket, ISO.format(start), ISO.format(stop), patientId);
-
-            List<FluxTable> tables = influxDBClient.getQueryApi().query(tirFlux, org);
-            if (!tables.isEmpty() && !tables.get(0).getRecords().isEmpty()) {
-                Object tirVal = tables.get(0).getRecords().get(0).getValueByKey("tir");
-                if (tirVal instanceof Number tir) {
-                    stats.setTimeInRange(tir.doubleValue());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error calculating Time-In-Range: " + e.getMessage());
+    public VitalSignsStats getGlucoseStats(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            return serverStats(executeServerStatsQuery(SERIES, true, q -> bindSeries(q, patientId, start, stop, "glycemie", "value")),
+                    "glycemie", "value", "Blood Glucose", "mg/dL");
         }
 
-        return stats;
+        // Range metrics are counted in the same pass
+        return executeStatsQuery(bindSeries(SERIES.bind(), patientId, start, stop, "glycemie", "value"),
+                StatsAccumulator.withRanges(glucoseRanges), "Blood Glucose", "mg/dL");
     }
 
     // --- WEIGHT ---
     public VitalSignsStats getWeightStats(Long patientId, Instant start, Instant stop) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "poids")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "value")
-            """, bucket, ISO.format(start), ISO.format(stop), patientId);
+        return getWeightStats(patientId, start, stop, statsMode);
+    }
 
-        return executeStatsQuery(flux, "Weight", "kg");
+    public VitalSignsStats getWeightStats(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            return serverStats(executeServerStatsQuery(SERIES, false, q -> bindSeries(q, patientId, start, stop, "poids", "value")),
+                    "poids", "value", "Weight", "kg");
+        }
+        return executeStatsQuery(bindSeries(SERIES.bind(), patientId, start, stop, "poids", "value"), "Weight", "kg");
     }
 
     // ===================== DASHBOARD HELPERS =====================
     public DashboardPoint getLatestValue(Long patientId, String measurement, String field) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: -7d)
-              |> filter(fn: (r) => r["_measurement"] == "%s")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "%s")
-              |> last()
-            """, bucket, measurement, patientId, field);
+        return getLatestValues(patientId, List.of(seriesKey(measurement, field))).get(seriesKey(measurement, field));
+    }
+
+    /**
+     * Last point of each requested series over {@link #LATEST_VALUES_WINDOW}, in one Flux query
+     * instead of one scan per series. Keys (and map keys) are
+     * {@code "measurement/field"}, see {@link #seriesKey}. A series may be split over
+     * several tables (one per tag set), so the per-table last() rows are regrouped by
+     * _measurement/_field and only the most recent one is kept. Series without data
+     * in the window are absent from the result.
+     */
+    public Map<String, DashboardPoint> getLatestValues(Long patientId, Collection<String> seriesKeys) {
+        List<String[]> series = seriesKeys.stream().map(key -> key.split("/", 2)).toList();
+        series.forEach(parts -> VitalSchema.requireSeries(parts[0], parts.length > 1 ? parts[1] : null));
+        if (series.isEmpty()) {
+            return new HashMap<>();
+        }
+        FluxQuery query = latestValuesTemplate(series.size()).bind()
+                .string("bucket", bucket)
+                .patient("patient", patientId);
+        for (int i = 0; i < series.size(); i++) {
+            query.string("m" + i, series.get(i)[0]).string("f" + i, series.get(i)[1]);
+        }
 
+        Map<String, DashboardPoint> latest = new HashMap<>();
         try {
-            List<FluxTable> tables = influxDBClient.getQueryApi().query(flux, org);
-            for (FluxTable table : tables) {
-                for (FluxRecord record : table.getRecords()) {
-                    Object value = record.getValueByKey("_value");
-                    Instant t = record.getTime();
-                    if (value instanceof Number val && t != null) {
-                        return new DashboardPoint(ISO.format(t), val.doubleValue());
-                    }
+            streamQuery(query, record -> {
+                Instant t = record.getTime();
+                if (record.getValue() instanceof Number val && t != null) {
+                    latest.put(seriesKey(record.getMeasurement(), record.getField()),
+                            new DashboardPoint(ISO.format(t), val.doubleValue()));
                 }
-            }
-        } catch (Exception ignored) {}
-        return null;
+            });
+        } catch (Exception e) {
+            System.err.println(" Error fetching latest values for patient " + patientId + ": " + e.getMessage());
+        }
+        return latest;
     }
 
+    /**
+     * Filter on {@code n} measurement/field pairs, read from {@code params.m<i>} and
+     * {@code params.f<i>}: an or of equalities (pushed down to the storage engine) whose
+     * text only depends on {@code n}, so there is one cached template per series count.
+     */
+    private static FluxTemplate latestValuesTemplate(int n) {
+        return FluxTemplate.cached("latestValues/" + n, () -> String.format("""
+            from(bucket: params.bucket)
+              |> range(start: -%dd)
+              |> filter(fn: (r) => r["patient"] == params.patient)
+              |> filter(fn: (r) => %s)
+              |> last()
+              |> toFloat()
+              |> keep(columns: ["_time","_value","_measurement","_field"])
+              |> group(columns: ["_measurement","_field"])
+              |> sort(columns: ["_time"], desc: true)
+              |> limit(n: 1)
+            """, LATEST_VALUES_WINDOW.toDays(), IntStream.range(0, n)
+                .mapToObj(i -> String.format("(r[\"_measurement\"] == params.m%d and r[\"_field\"] == params.f%d)", i, i))
+                .collect(Collectors.joining(" or "))));
+    }
+
+    /**
+     * Mean per {@code every} window. Reads the rollup buckets when one fits (see
+     * {@link InfluxRollup}), falling back to the raw bucket when the rollup query fails
+     * or returns nothing (rollups not set up, not backfilled yet).
+     */
     public List<DashboardPoint> getSeriesMean(Long patientId, String measurement, String field,
                                               Instant start, Instant stop, String every) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "%s")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> filter(fn: (r) => r["_field"] == "%s")
-              |> aggregateWindow(every: %s, fn: mean, createEmpty: false)
-              |> keep(columns: ["_time","_value"]) 
-            """, bucket, ISO.format(start), ISO.format(stop), measurement, patientId, field, every);
+        Instant now = Instant.now();
+        if (rollupEnabled) {
+            List<DashboardPoint> out = querySeries(
+                    InfluxRollup.seriesMean(bucket, measurement, field, patientId, start, stop, every, now, true));
+            if (out != null && !out.isEmpty()) {
+                return out;
+            }
+        }
+        List<DashboardPoint> out = querySeries(
+                InfluxRollup.seriesMean(bucket, measurement, field, patientId, start, stop, every, now, false));
+        return out != null ? out : new ArrayList<>();
+    }
 
+    /** _time/_value rows as points, null if the query failed */
+    private List<DashboardPoint> querySeries(FluxQuery query) {
         List<DashboardPoint> out = new ArrayList<>();
         try {
-            List<FluxTable> tables = influxDBClient.getQueryApi().query(flux, org);
+            List<FluxTable> tables = influxDBClient.getQueryApi().query(query.toQuery(nativeParams), org);
             for (FluxTable table : tables) {
                 for (FluxRecord record : table.getRecords()) {
                     Object value = record.getValueByKey("_value");
@@ -212,89 +323,481 @@ public class InfluxDBRepository {
                     }
                 }
             }
-        } catch (Exception ignored) {}
+        } catch (Exception e) {
+            return null;
+        }
         return out;
     }
 
-    // --- CORE EXECUTION LOGIC ---
-    private VitalSignsStats executeStatsQuery(String flux, String metric, String unit) {
-        VitalSignsStats stats = new VitalSignsStats();
-        stats.setMetric(metric);
-        stats.setUnit(unit);
+    // ===================== BATCHED REPORT STATS =====================
+
+    /**
+     * Fetches every vital sign needed by a report in a single Flux round-trip.
+     * Heart rate keeps its hourly-mean pre-aggregation; the other measurements are
+     * streamed raw, grouped by _measurement/_field and fanned out into one
+     * {@link VitalSignsStats} per metric. Reading counts (used for adherence) are
+     * derived from the same result instead of separate count() scans.
+     */
+    public ReportVitals getReportVitals(Long patientId, Instant start, Instant stop) {
+        return getReportVitals(patientId, start, stop, statsMode);
+    }
+
+    public ReportVitals getReportVitals(Long patientId, Instant start, Instant stop, StatsMode mode) {
+        if (mode == StatsMode.SERVER) {
+            FluxTemplate template = serverStatsTemplate("reportVitals", REPORT_PREAMBLE, REPORT_SOURCE, true);
+            return serverReportVitals(executeServerStatsQuery(bindRanges(template.bind()
+                    .string("bucket", bucket)
+                    .time("start", start)
+                    .time("stop", stop)
+                    .patient("patient", patientId))));
+        }
 
+        return toReportVitals(accumulateReportVitals(patientId, start, stop));
+    }
+
+    /**
+     * Series of a report ({@link #REPORT_SERIES}) aggregated over the window, heart
+     * rate as hourly means, in the JVM so the partials can be merged with others.
+     *
+     * @throws IllegalStateException if the query fails or times out, rather than
+     *                               returning a partial or empty window
+     */
+    public Map<String, StatsAccumulator> accumulateReportVitals(Long patientId, Instant start, Instant stop) {
+        FluxQuery query = REPORT_VITALS.bind()
+                .string("bucket", bucket)
+                .time("start", start)
+                .time("stop", stop)
+                .patient("patient", patientId);
+
+        Map<String, StatsAccumulator> bySeries = newReportAccumulators(glucoseRanges);
         try {
-            List<FluxTable> tables = influxDBClient.getQueryApi().query(flux, org);
+            streamQuery(query, record -> {
+                StatsAccumulator acc = bySeries.get(seriesKey(record.getMeasurement(), record.getField()));
+                if (acc != null && record.getValue() instanceof Number val) {
+                    acc.add(val.doubleValue());
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("Report vitals of patient " + patientId + " unavailable: " + e.getMessage(), e);
+        }
+        return bySeries;
+    }
 
-            List<Double> values = new ArrayList<>();
-            for (FluxTable table : tables) {
-                for (FluxRecord record : table.getRecords()) {
-                    Object value = record.getValueByKey("_value");
-                    if (value instanceof Number val) {
-                        values.add(val.doubleValue());
-                    }
+    /**
+     * Same as {@link #accumulateReportVitals} with one set of accumulators per day of
+     * {@code zone} (hourly heart rate means belong to the day their hour starts in).
+     * Days without readings are absent.
+     *
+     * @throws Exception if the query fails or times out, so no partial day is taken as complete
+     */
+    public Map<LocalDate, Map<String, StatsAccumulator>> accumulateDailyVitals(Long patientId, Instant start, Instant stop,
+                                                                             ZoneId zone) throws Exception {
+        FluxQuery query = REPORT_VITALS_TIMED.bind()
+                .string("bucket", bucket)
+                .time("start", start)
+                .time("stop", stop)
+                .patient("patient", patientId);
+
+        Map<LocalDate, Map<String, StatsAccumulator>> byDay = new TreeMap<>();
+        streamQuery(query, record -> {
+            Instant t = record.getTime();
+            if (t == null || !(record.getValue() instanceof Number val)) {
+                return;
+            }
+            StatsAccumulator acc = byDay.computeIfAbsent(LocalDate.ofInstant(t, zone), d -> newReportAccumulators(glucoseRanges))
+                    .get(seriesKey(record.getMeasurement(), record.getField()));
+            if (acc != null) {
+                acc.add(val.doubleValue());
+            }
+        });
+        return byDay;
+    }
+
+    /** One empty accumulator per {@link #REPORT_SERIES}, glucose counting its range bands */
+    public static Map<String, StatsAccumulator> newReportAccumulators(GlycemicRanges glucoseRanges) {
+        Map<String, StatsAccumulator> bySeries = new HashMap<>();
+        for (String series : REPORT_SERIES) {
+            bySeries.put(series, series.equals("glycemie/value") ? StatsAccumulator.withRanges(glucoseRanges) : new StatsAccumulator());
+        }
+        return bySeries;
+    }
+
+    public ReportVitals toReportVitals(Map<String, StatsAccumulator> bySeries) {
+        StatsAccumulator systolic = bySeries.get(seriesKey("tension", "systolique"));
+        StatsAccumulator glucose = bySeries.get(seriesKey("glycemie", "value"));
+        StatsAccumulator weight = bySeries.get(seriesKey("poids", "value"));
+
+        ReportVitals vitals = new ReportVitals();
+        vitals.setHeartRate(bySeries.get(seriesKey("fc", "value")).toStats("Heart Rate", "bpm"));
+        vitals.setSpo2(bySeries.get(seriesKey("spO2", "value")).toStats("SpO₂", "%"));
+        vitals.setBloodPressure(combineBloodPressure(
+                systolic.toStats("Systolic", "mmHg"),
+                bySeries.get(seriesKey("tension", "diastolique")).toStats("Diastolic", "mmHg")));
+        vitals.setGlucose(glucose.toStats("Blood Glucose", "mg/dL"));
+        vitals.setWeight(weight.toStats("Weight", "kg"));
+
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("tension", (int) systolic.getCount());
+        counts.put("glycemie", (int) glucose.getCount());
+        counts.put("poids", (int) weight.getCount());
+        vitals.setMeasurementCounts(counts);
+
+        return vitals;
+    }
+
+    private ReportVitals serverReportVitals(Map<String, Map<String, Object>> rows) {
+        VitalSignsStats systolic = serverStats(rows, "tension", "systolique", "Systolic", "mmHg");
+        VitalSignsStats glucose = serverStats(rows, "glycemie", "value", "Blood Glucose", "mg/dL");
+        VitalSignsStats weight = serverStats(rows, "poids", "value", "Weight", "kg");
+
+        ReportVitals vitals = new ReportVitals();
+        vitals.setHeartRate(serverStats(rows, "fc", "value", "Heart Rate", "bpm"));
+        vitals.setSpo2(serverStats(rows, "spO2", "value", "SpO₂", "%"));
+        vitals.setBloodPressure(combineBloodPressure(
+                systolic,
+                serverStats(rows, "tension", "diastolique", "Diastolic", "mmHg")));
+        vitals.setGlucose(glucose);
+        vitals.setWeight(weight);
+
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("tension", systolic.getMeasurementCount());
+        counts.put("glycemie", glucose.getMeasurementCount());
+        counts.put("poids", weight.getMeasurementCount());
+        vitals.setMeasurementCounts(counts);
+        return vitals;
+    }
+
+    // ===================== COHORT (ALL PATIENTS AT ONCE) =====================
+
+    /**
+     * Mean heart rate per patient over the window, in one query grouped by the patient
+     * tag. Like reports it averages hourly means, so hours with a burst of readings do
+     * not outweigh the others. {@code patients} restricts the scan to that set, null
+     * reads every patient. Patients without readings are absent.
+     *
+     * @throws Exception if the query fails or times out
+     */
+    public Map<Long, Double> getHeartRateByPatient(Instant start, Instant stop, Collection<Long> patients) throws Exception {
+        FluxQuery query = cohortTemplate("heartRate", patients, """
+              |> filter(fn: (r) => r["_measurement"] == "fc" and r["_field"] == "value")
+            """, """
+              |> aggregateWindow(every: 1h, fn: mean, createEmpty: false, timeSrc: "_start")
+              |> group(columns: ["patient"])
+              |> mean()
+            """).bind();
+        return byPatient(bindCohort(query, start, stop, patients));
+    }
+
+    /**
+     * Glucose time in range (percent of readings) per patient over the window, see
+     * {@link #getHeartRateByPatient} for {@code patients}.
+     */
+    public Map<Long, Double> getTimeInRangeByPatient(Instant start, Instant stop, Collection<Long> patients) throws Exception {
+        FluxQuery query = cohortTemplate("timeInRange", patients, """
+              |> filter(fn: (r) => r["_measurement"] == "glycemie" and r["_field"] == "value")
+            """, """
+              |> toFloat()
+              |> map(fn: (r) => ({r with _value: if r._value >= params.low and r._value <= params.high then 100.0 else 0.0}))
+              |> group(columns: ["patient"])
+              |> mean()
+            """).bind()
+                .number("low", glucoseRanges.low())
+                .number("high", glucoseRanges.high());
+        return byPatient(bindCohort(query, start, stop, patients));
+    }
+
+    /**
+     * Readings per patient, UTC day and series ({@code "measurement/field"} keys) over
+     * the window, see {@link InfluxRollup#dailyCounts}: one point per rolled-up day
+     * instead of a scan of the raw points. Falls back to counting raw data when the
+     * rollup query fails or returns nothing (no {@code _1d} bucket or tasks, e.g. a
+     * fresh setup). {@code patients} null counts every patient. Days without readings
+     * are absent.
+     *
+     * @throws Exception if the raw query fails or times out
+     */
+    public Map<Long, Map<LocalDate, Map<String, Long>>> getDailyReadingCounts(Collection<Long> patients, List<String> seriesKeys,
+                                                                            Instant start, Instant stop) throws Exception {
+        Instant now = Instant.now();
+        if (rollupEnabled) {
+            try {
+                Map<Long, Map<LocalDate, Map<String, Long>>> counts =
+                        readDailyCounts(InfluxRollup.dailyCounts(bucket, seriesKeys, patients, start, stop, now, true));
+                if (!counts.isEmpty()) {
+                    return counts;
                 }
+            } catch (Exception e) {
+                System.err.println(" Daily rollup counters unavailable, counting raw data: " + e.getMessage());
             }
+        }
+        return readDailyCounts(InfluxRollup.dailyCounts(bucket, seriesKeys, patients, start, stop, now, false));
+    }
 
-            if (values.isEmpty()) {
-                stats.setMeasurementCount(0);
-                stats.setAverage(0.0);
-                stats.setMin(0.0);
-                stats.setMax(0.0);
-                return stats;
+    private Map<Long, Map<LocalDate, Map<String, Long>>> readDailyCounts(FluxQuery query) throws Exception {
+        Map<Long, Map<LocalDate, Map<String, Long>>> counts = new HashMap<>();
+        streamQuery(query, record -> {
+            Long patientId = patientTag(record);
+            Instant t = record.getTime();
+            if (patientId != null && t != null && record.getValue() instanceof Number n) {
+                counts.computeIfAbsent(patientId, id -> new TreeMap<>())
+                        .computeIfAbsent(LocalDate.ofInstant(t, ZoneOffset.UTC), d -> new HashMap<>())
+                        .merge(seriesKey(record.getMeasurement(), InfluxRollup.countedField(record.getField())), n.longValue(), Long::sum);
             }
+        });
+        return counts;
+    }
+
+    /**
+     * {@code filter} then {@code aggregate} over every patient of the bucket when
+     * {@code patients} is null, otherwise only over those (see {@link PatientFilter}).
+     */
+    private static FluxTemplate cohortTemplate(String name, Collection<Long> patients, String filter, String aggregate) {
+        int n = patients != null ? patients.size() : -1;
+        return FluxTemplate.cached("cohort/" + name + "/" + n, () -> RANGE + filter
+                + (patients != null ? PatientFilter.of(n) : "")
+                + aggregate);
+    }
+
+    private FluxQuery bindCohort(FluxQuery query, Instant start, Instant stop, Collection<Long> patients) {
+        query.string("bucket", bucket)
+                .time("start", start)
+                .time("stop", stop);
+        return patients != null ? PatientFilter.bind(query, patients) : query;
+    }
+
+    private Map<Long, Double> byPatient(FluxQuery query) throws Exception {
+        Map<Long, Double> values = new HashMap<>();
+        streamQuery(query, record -> {
+            Long patientId = patientTag(record);
+            if (patientId != null && record.getValue() instanceof Number n) {
+                values.put(patientId, n.doubleValue());
+            }
+        });
+        return values;
+    }
+
+    private static Long patientTag(FluxRecord record) {
+        try {
+            return record.getValueByKey("patient") instanceof String tag ? Long.valueOf(tag) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-            Collections.sort(values);
-            stats.setMeasurementCount(values.size());
-            stats.setMin(values.get(0));
-            stats.setMax(values.get(values.size() - 1));
-            stats.setAverage(values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0));
-            stats.setMedian(getPercentile(values, 50));
-            stats.setP10(getPercentile(values, 10));
-            stats.setP90(getPercentile(values, 90));
-            stats.setStandardDeviation(calculateStdDev(values));
+    public static String seriesKey(String measurement, String field) {
+        return VitalSchema.seriesKey(measurement, field);
+    }
 
+    private FluxQuery bindSeries(FluxQuery query, Long patientId, Instant start, Instant stop,
+                                 String measurement, String field, String... otherField) {
+        query.string("bucket", bucket)
+                .time("start", start)
+                .time("stop", stop)
+                .string("measurement", measurement)
+                .patient("patient", patientId)
+                .string("field", field);
+        return otherField.length > 0 ? query.string("otherField", otherField[0]) : query;
+    }
+
+    // --- CORE EXECUTION LOGIC ---
+    private VitalSignsStats executeStatsQuery(FluxQuery query, String metric, String unit) {
+        return executeStatsQuery(query, new StatsAccumulator(), metric, unit);
+    }
+
+    private VitalSignsStats executeStatsQuery(FluxQuery query, StatsAccumulator acc, String metric, String unit) {
+        try {
+            streamQuery(query, record -> {
+                if (record.getValue() instanceof Number val) {
+                    acc.add(val.doubleValue());
+                }
+            });
         } catch (Exception e) {
             System.err.println(" Error executing query for " + metric + ": " + e.getMessage());
+            return new VitalSignsStats(metric, unit);
+        }
+        return acc.toStats(metric, unit);
+    }
+
+    // --- SERVER-SIDE AGGREGATION ---
+
+    /**
+     * Server-side stats over the points of {@code source}, see {@link #serverStatsTemplate}.
+     */
+    private Map<String, Map<String, Object>> executeServerStatsQuery(FluxTemplate source, boolean withTimeInRange,
+                                                                     Consumer<FluxQuery> bind) {
+        FluxQuery query = serverStatsTemplate(source, withTimeInRange).bind();
+        bind.accept(query);
+        return executeServerStatsQuery(withTimeInRange ? bindRanges(query) : query);
+    }
+
+    private Map<String, Map<String, Object>> executeServerStatsQuery(FluxQuery query) {
+        Map<String, Map<String, Object>> rows = new HashMap<>();
+        try {
+            streamQuery(query, record -> rows.put(seriesKey(record.getMeasurement(), record.getField()), record.getValues()));
+        } catch (Exception e) {
+            System.err.println(" Error executing server-side stats query: " + e.getMessage());
         }
+        return rows;
+    }
 
+    private static FluxTemplate serverStatsTemplate(FluxTemplate source, boolean withTimeInRange) {
+        String name = source == SERIES ? "series"
+                : source == SERIES_PAIR ? "seriesPair"
+                : source == HOURLY_MEAN ? "hourlyMean" : null;
+        if (name == null) {
+            throw new IllegalArgumentException("No server stats for this source");
+        }
+        return serverStatsTemplate(name, "", source.getBody(), withTimeInRange);
+    }
+
+    /**
+     * Wraps a source pipeline so InfluxDB computes count/mean/min/max/stddev and
+     * the median/p10/p90 quantiles itself, pivoted into one row per
+     * _measurement/_field. With {@code withTimeInRange}, glucose rows also carry
+     * the time in, below and above range percentages, thresholds read from
+     * {@code params.veryLow}..{@code params.veryHigh} (see {@link #bindRanges}).
+     * Built once per source and flag.
+     *
+     * @param name     identifies preamble and source in the template cache
+     * @param preamble Flux statements the source expression depends on (may be empty)
+     * @param source   Flux expression producing the raw (or pre-aggregated) points
+     */
+    private static FluxTemplate serverStatsTemplate(String name, String preamble, String source, boolean withTimeInRange) {
+        return FluxTemplate.cached("serverStats/" + name + "/" + withTimeInRange, () -> {
+            List<String> stats = new ArrayList<>(List.of(
+                    "points |> count() |> toFloat() |> set(key: \"stat\", value: \"count\")",
+                    "points |> mean() |> set(key: \"stat\", value: \"mean\")",
+                    "points |> min() |> set(key: \"stat\", value: \"min\")",
+                    "points |> max() |> set(key: \"stat\", value: \"max\")",
+                    "points |> stddev(mode: \"population\") |> set(key: \"stat\", value: \"stddev\")",
+                    "points |> quantile(q: 0.5, method: \"estimate_tdigest\") |> set(key: \"stat\", value: \"median\")",
+                    "points |> quantile(q: 0.1, method: \"estimate_tdigest\") |> set(key: \"stat\", value: \"p10\")",
+                    "points |> quantile(q: 0.9, method: \"estimate_tdigest\") |> set(key: \"stat\", value: \"p90\")"
+            ));
+            if (withTimeInRange) {
+                Map<String, String> ranges = new LinkedHashMap<>();
+                ranges.put("tir", "r._value >= params.low and r._value <= params.high");
+                ranges.put("tbr", "r._value < params.low");
+                ranges.put("tbrVeryLow", "r._value < params.veryLow");
+                ranges.put("tar", "r._value > params.high");
+                ranges.put("tarVeryHigh", "r._value > params.veryHigh");
+                ranges.forEach((stat, condition) -> stats.add(String.format("""
+                    points
+                          |> filter(fn: (r) => r["_measurement"] == "glycemie")
+                          |> map(fn: (r) => ({r with _value: if %s then 100.0 else 0.0}))
+                          |> mean()
+                          |> set(key: "stat", value: "%s")""", condition, stat)));
+            }
+
+            return preamble + "points = " + source + """
+                  |> group(columns: ["_measurement", "_field"])
+                  |> keep(columns: ["_measurement", "_field", "_value"])
+                  |> toFloat()
+
+                """ + "union(tables: [\n    "
+                    + String.join(",\n    ", stats)
+                    + "\n])\n" + """
+                  |> group(columns: ["_measurement", "_field"])
+                  |> pivot(rowKey: ["_measurement", "_field"], columnKey: ["stat"], valueColumn: "_value")
+                """;
+        });
+    }
+
+    private VitalSignsStats serverStats(Map<String, Map<String, Object>> rows, String measurement, String field,
+                                        String metric, String unit) {
+        VitalSignsStats stats = new VitalSignsStats(metric, unit);
+        Map<String, Object> row = rows.get(seriesKey(measurement, field));
+        Double count = row != null ? asDouble(row.get("count")) : null;
+        if (count == null || count == 0) {
+            stats.setMeasurementCount(0);
+            stats.setAverage(0.0);
+            stats.setMin(0.0);
+            stats.setMax(0.0);
+            return stats;
+        }
+        stats.setMeasurementCount(count.intValue());
+        stats.setAverage(asDouble(row.get("mean")));
+        stats.setMin(asDouble(row.get("min")));
+        stats.setMax(asDouble(row.get("max")));
+        stats.setStandardDeviation(asDouble(row.get("stddev")));
+        stats.setMedian(asDouble(row.get("median")));
+        stats.setP10(asDouble(row.get("p10")));
+        stats.setP90(asDouble(row.get("p90")));
+        stats.setTimeInRange(asDouble(row.get("tir")));
+        stats.setTimeBelowRange(asDouble(row.get("tbr")));
+        stats.setTimeVeryLow(asDouble(row.get("tbrVeryLow")));
+        stats.setTimeAboveRange(asDouble(row.get("tar")));
+        stats.setTimeVeryHigh(asDouble(row.get("tarVeryHigh")));
         return stats;
     }
 
-    private Double getPercentile(List<Double> values, int percentile) {
-        if (values.isEmpty()) return 0.0;
-        int index = (int) Math.ceil(percentile / 100.0 * values.size()) - 1;
-        return values.get(Math.max(0, Math.min(index, values.size() - 1)));
+    private FluxQuery bindRanges(FluxQuery query) {
+        return query.number("veryLow", glucoseRanges.veryLow())
+                .number("low", glucoseRanges.low())
+                .number("high", glucoseRanges.high())
+                .number("veryHigh", glucoseRanges.veryHigh());
     }
 
-    private Double calculateStdDev(List<Double> values) {
-        if (values.isEmpty()) return 0.0;
-        double mean = values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        double variance = values.stream()
-                .mapToDouble(v -> Math.pow(v - mean, 2))
-                .average()
-                .orElse(0.0);
-        return Math.sqrt(variance);
+    private static Double asDouble(Object value) {
+        return value instanceof Number n ? n.doubleValue() : null;
     }
 
-    // --- COUNT ---
-    public int countMeasurements(Long patientId, String measurement, Instant start, Instant stop) {
-        String flux = String.format("""
-            from(bucket: "%s")
-              |> range(start: time(v: "%s"), stop: time(v: "%s"))
-              |> filter(fn: (r) => r["_measurement"] == "%s")
-              |> filter(fn: (r) => r["patient"] == "%d")
-              |> count()
-            """, bucket, ISO.format(start), ISO.format(stop), measurement, patientId);
+    /**
+     * Runs a Flux query through the callback API so records are consumed while the
+     * response is parsed, instead of materialising every FluxTable first.
+     * Blocks until the stream completes; query errors are rethrown.
+     * <p>
+     * On timeout or interrupt the HTTP stream is cancelled, and {@code onRecord} is
+     * never called once this method has returned or thrown: callers may hand their
+     * accumulators out straight away.
+     */
+    private void streamQuery(FluxQuery query, Consumer<FluxRecord> onRecord) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        StreamState state = new StreamState();
+
+        influxDBClient.getQueryApi().query(query.toQuery(nativeParams), org,
+                (cancellable, record) -> {
+                    synchronized (state) {
+                        state.cancellable = cancellable;
+                        if (state.abandoned) {
+                            cancellable.cancel();
+                            return;
+                        }
+                        onRecord.accept(record);
+                    }
+                },
+                error -> {
+                    failure.set(error);
+                    done.countDown();
+                },
+                done::countDown);
 
         try {
-            List<FluxTable> tables = influxDBClient.getQueryApi().query(flux, org);
-            if (!tables.isEmpty() && !tables.get(0).getRecords().isEmpty()) {
-                Object count = tables.get(0).getRecords().get(0).getValueByKey("_value");
-                return count != null ? ((Number) count).intValue() : 0;
+            if (!done.await(queryTimeoutSeconds, TimeUnit.SECONDS)) {
+                state.abandon();
+                throw new TimeoutException("Flux query did not complete within " + queryTimeoutSeconds + "s");
+            }
+        } catch (InterruptedException e) {
+            state.abandon();
+            throw e;
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(failure.get().getMessage(), failure.get());
+        }
+    }
+
+    /** Stream of one {@link #streamQuery} call, guarded by its own monitor */
+    private static final class StreamState {
+        private Cancellable cancellable;
+        private boolean abandoned;
+
+        /** Stops delivering records and cancels the stream if it has started */
+        synchronized void abandon() {
+            abandoned = true;
+            if (cancellable != null) {
+                cancellable.cancel();
             }
-        } catch (Exception e) {
-            System.err.println("Error counting measurements: " + e.getMessage());
         }
-        return 0;
     }
 }
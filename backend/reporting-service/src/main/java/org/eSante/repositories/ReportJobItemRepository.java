@@ -0,0 +1,19 @@
+package org.eSante.repositories;
+
+import org.eSante.domain.models.ReportJobItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReportJobItemRepository extends JpaRepository<ReportJobItem, Long> {
+
+    List<ReportJobItem> findByJobIdAndStatusIn(Long jobId, Collection<String> statuses);
+
+    @Query("SELECT i.status, COUNT(i) FROM ReportJobItem i WHERE i.jobId = :jobId GROUP BY i.status")
+    List<Object[]> countByStatus(@Param("jobId") Long jobId);
+}
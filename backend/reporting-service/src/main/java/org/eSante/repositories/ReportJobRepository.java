@@ -0,0 +1,61 @@
+package org.eSante.repositories;
+
+import org.eSante.domain.models.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    List<ReportJob> findByStatusOrderByCreatedAtAsc(String status);
+
+    List<ReportJob> findByStatusInOrderByCreatedAtAsc(List<String> statuses);
+
+    List<ReportJob> findByJobTypeAndStatusInOrderByCreatedAtAsc(String jobType, List<String> statuses);
+
+    List<ReportJob> findTop20ByOrderByCreatedAtDesc();
+
+    /**
+     * Starts another run of a job for {@code owner}, counting it in {@code attempts}.
+     * A RUNNING job is taken over if it is unclaimed, or claimed by another instance
+     * whose last heartbeat is older than {@code expiredBefore}: a live owner keeps its
+     * job, and {@code owner} never runs the same job twice. A COMPLETED_WITH_ERRORS job
+     * is run again (its ERROR items retried) while it has had fewer than
+     * {@code maxAttempts} runs.
+     *
+     * @return 1 if the job is now RUNNING and claimed by {@code owner}, 0 if someone
+     *         else holds it or it is not to be run again
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.status = 'RUNNING', j.claimedBy = :owner, j.claimedAt = :now, "
+            + "j.attempts = COALESCE(j.attempts, 1) + 1, j.finishedAt = NULL WHERE j.id = :id "
+            + "AND ((j.status = 'RUNNING' AND (j.claimedBy IS NULL OR (j.claimedBy <> :owner "
+            + "AND (j.claimedAt IS NULL OR j.claimedAt < :expiredBefore)))) "
+            + "OR (j.status = 'COMPLETED_WITH_ERRORS' AND COALESCE(j.attempts, 1) < :maxAttempts))")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+              @Param("expiredBefore") LocalDateTime expiredBefore, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Refreshes the claim of {@code owner} on a job it runs.
+     *
+     * @return 0 if another instance has taken the job over
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.claimedAt = :now WHERE j.id = :id AND j.claimedBy = :owner")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /** Lets a RUNNING job claimed by {@code owner} be resumed again (after a failed run) */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.claimedBy = NULL WHERE j.id = :id AND j.status = 'RUNNING' AND j.claimedBy = :owner")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+}
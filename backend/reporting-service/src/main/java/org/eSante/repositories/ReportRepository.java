@@ -1,9 +1,16 @@
 package org.eSante.repositories;
 
 import org.eSante.domain.models.Report;
+import org.eSante.domain.models.dto.ReportListItem;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +19,92 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     List<Report> findByPatientIdOrderByReportDateDesc(Long patientId);
 
     List<Report> findByPatientIdAndReportType(Long patientId, String reportType);
+
+    // Keyset pagination over idx_reports_patient_date_nulls_last: newest first, reports
+    // without a date last, (report_date, id) as cursor
+
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId
+            ORDER BY r.reportDate DESC NULLS LAST, r.id DESC""")
+    List<ReportListItem> findList(@Param("patientId") Long patientId, Limit limit);
+
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId AND r.reportType = :reportType
+            ORDER BY r.reportDate DESC NULLS LAST, r.id DESC""")
+    List<ReportListItem> findList(@Param("patientId") Long patientId,
+                                  @Param("reportType") String reportType,
+                                  Limit limit);
+
+    /** Page following a dated report: older reports, then every undated one */
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId
+              AND (r.reportDate < :beforeDate OR (r.reportDate = :beforeDate AND r.id < :beforeId)
+                   OR r.reportDate IS NULL)
+            ORDER BY r.reportDate DESC NULLS LAST, r.id DESC""")
+    List<ReportListItem> findListBefore(@Param("patientId") Long patientId,
+                                        @Param("beforeDate") LocalDateTime beforeDate,
+                                        @Param("beforeId") Long beforeId,
+                                        Limit limit);
+
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId AND r.reportType = :reportType
+              AND (r.reportDate < :beforeDate OR (r.reportDate = :beforeDate AND r.id < :beforeId)
+                   OR r.reportDate IS NULL)
+            ORDER BY r.reportDate DESC NULLS LAST, r.id DESC""")
+    List<ReportListItem> findListBefore(@Param("patientId") Long patientId,
+                                        @Param("reportType") String reportType,
+                                        @Param("beforeDate") LocalDateTime beforeDate,
+                                        @Param("beforeId") Long beforeId,
+                                        Limit limit);
+
+    /** Page following an undated report */
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId AND r.reportDate IS NULL AND r.id < :beforeId
+            ORDER BY r.id DESC""")
+    List<ReportListItem> findUndatedListBefore(@Param("patientId") Long patientId,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
+
+    @Query("""
+            SELECT r.id AS id, r.patientId AS patientId, r.reportType AS reportType, r.reportDate AS reportDate,
+                   r.periodStart AS periodStart, r.periodEnd AS periodEnd, r.exportFormat AS exportFormat,
+                   r.fileSize AS fileSize, r.status AS status
+            FROM Report r
+            WHERE r.patientId = :patientId AND r.reportType = :reportType
+              AND r.reportDate IS NULL AND r.id < :beforeId
+            ORDER BY r.id DESC""")
+    List<ReportListItem> findUndatedListBefore(@Param("patientId") Long patientId,
+                                               @Param("reportType") String reportType,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
+
+    boolean existsByPatientIdAndReportTypeAndPeriodStartAndPeriodEndAndStatus(
+            Long patientId, String reportType, LocalDateTime periodStart, LocalDateTime periodEnd, String status);
+
+    /** Marks ERROR the reports still GENERATING that were created before {@code createdBefore} */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Report r SET r.status = 'ERROR' WHERE r.status = 'GENERATING' "
+            + "AND (r.reportDate < :createdBefore OR r.reportDate IS NULL)")
+    int failGeneratingBefore(@Param("createdBefore") LocalDateTime createdBefore);
 }
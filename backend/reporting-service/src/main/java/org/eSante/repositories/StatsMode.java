@@ -0,0 +1,13 @@
+package org.eSante.repositories;
+
+/**
+ * Where VitalSignsStats are computed.
+ * SERVER pushes min/max/mean/stddev/quantiles down into Flux so only one row per
+ * field crosses the wire; CLIENT streams raw points and aggregates in the JVM into
+ * mergeable accumulators, so reports can reuse the stored per-day partials
+ * ({@code reporting.daily-stats.enabled}).
+ */
+public enum StatsMode {
+    CLIENT,
+    SERVER
+}
@@ -0,0 +1,15 @@
+package org.eSante.repositories;
+
+import org.eSante.domain.models.VitalDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VitalDailyStatsRepository extends JpaRepository<VitalDailyStats, Long> {
+
+    /** Stored days in [from, to), all series */
+    List<VitalDailyStats> findByPatientIdAndDayGreaterThanEqualAndDayLessThan(Long patientId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,23 @@
+package org.eSante.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Outcome and throughput of one scheduled report batch.
+ */
+public record BatchRunStats(String label,
+                            Instant startedAt,
+                            Duration elapsed,
+                            int total,
+                            int succeeded,
+                            int failed) {
+
+    @JsonProperty
+    public double reportsPerMinute() {
+        double minutes = elapsed.toMillis() / 60_000.0;
+        return minutes > 0 ? (succeeded + failed) / minutes : 0.0;
+    }
+}
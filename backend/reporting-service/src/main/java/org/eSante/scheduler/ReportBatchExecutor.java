@@ -0,0 +1,110 @@
+package org.eSante.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Fans a per-patient task out over a worker pool and reports progress/throughput.
+ * <p>
+ * Uses virtual threads when {@code reporting.batch.virtual-threads=true} and the
+ * service runs on a Java 21+ runtime (looked up reflectively, the build targets
+ * Java 17), otherwise a fixed pool of {@code reporting.batch.workers} platform threads. InfluxDB and
+ * PDF concurrency are bounded separately by {@link org.eSante.services.ReportingThrottle}.
+ */
+@Component
+public class ReportBatchExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportBatchExecutor.class);
+
+    @Value("${reporting.batch.workers:8}")
+    private int workers;
+
+    @Value("${reporting.batch.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    private final AtomicReference<BatchRunStats> lastRun = new AtomicReference<>();
+
+    public BatchRunStats run(String label, List<Long> patientIds, Consumer<Long> task) {
+        Instant startedAt = Instant.now();
+        long startNanos = System.nanoTime();
+        int total = patientIds.size();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        int progressStep = Math.max(1, total / 10);
+
+        ExecutorService executor = newExecutor();
+        try {
+            for (Long patientId : patientIds) {
+                executor.execute(() -> {
+                    try {
+                        task.accept(patientId);
+                        succeeded.incrementAndGet();
+                    } catch (Exception e) {
+                        logger.error("✗ {} failed for patient {}", label, patientId, e);
+                        failed.incrementAndGet();
+                    }
+                    int done = completed.incrementAndGet();
+                    if (done % progressStep == 0 || done == total) {
+                        double minutes = (System.nanoTime() - startNanos) / 60e9;
+                        logger.info("{} progress: {}/{} ({} failed, {} reports/min)",
+                                label, done, total, failed.get(), String.format("%.1f", done / Math.max(minutes, 1e-6)));
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+
+        BatchRunStats stats = new BatchRunStats(label, startedAt,
+                Duration.ofNanos(System.nanoTime() - startNanos), total, succeeded.get(), failed.get());
+        lastRun.set(stats);
+        return stats;
+    }
+
+    /** Outcome of the last batch this instance ran, null if none yet (see GET /api/reports/jobs/last-run) */
+    public BatchRunStats getLastRun() {
+        return lastRun.get();
+    }
+
+    private ExecutorService newExecutor() {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads requested but unavailable on Java {}, using {} platform workers",
+                        Runtime.version().feature(), workers);
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "report-batch-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.debug("Waiting for report batch workers to finish...");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package org.eSante.scheduler;
-import org.eSante.services.ReportGeneratorService;
+import org.eSante.domain.models.ReportJob;
+import org.eSante.services.ReportJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Component
 public class ReportScheduler {
@@ -15,72 +16,50 @@ public class ReportScheduler {
     private static final Logger logger = LoggerFactory.getLogger(ReportScheduler.class);
 
     @Autowired
-    private ReportGeneratorService reportGeneratorService;
-
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ReportJobService reportJobService;
 
     /**
      * Runs every Sunday at 8 PM — automatically generates weekly reports for all patients.
      * The cron expression is configured in application.properties as:
      * reporting.scheduler.weekly = 0 0 20 ? * SUN
+     * Progress is persisted as a report job (see {@link ReportJobService}); an interrupted
+     * weekly job is finished before the new one starts.
      */
     @Scheduled(cron = "${reporting.scheduler.weekly}")
     public void generateWeeklyReportsForAllPatients() {
         logger.info("=== Starting automatic generation of weekly reports ===");
 
-        List<Long> patientIds = jdbcTemplate.queryForList(
-                "SELECT id FROM patients",
-                Long.class
-        );
+        reportJobService.resumeInterrupted("WEEKLY");
 
-        int successCount = 0;
-        int errorCount = 0;
+        Instant stop = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        ReportJob job = reportJobService.createJob("WEEKLY", stop.minus(7, ChronoUnit.DAYS), stop);
+        BatchRunStats stats = reportJobService.runJob(job);
 
-        for (Long patientId : patientIds) {
-            try {
-                reportGeneratorService.generateWeeklyReport(patientId);
-                logger.info("✓ Weekly report successfully generated for patient {}", patientId);
-                successCount++;
-            } catch (Exception e) {
-                logger.error("✗ Failed to generate weekly report for patient {}", patientId, e);
-                errorCount++;
-            }
-        }
-
-        logger.info("=== Weekly report generation finished ({} succeeded, {} failed, total: {}) ===",
-                successCount, errorCount, patientIds.size());
+        logFinished("Weekly", stats);
     }
 
     /**
      * Runs on the 1st of every month at 2 AM — automatically generates monthly reports for all patients.
      * The cron expression is configured in application.properties as:
      * reporting.scheduler.monthly = 0 0 2 1 * ?
+     * Progress is persisted as a report job (see {@link ReportJobService}).
      */
     @Scheduled(cron = "${reporting.scheduler.monthly}")
     public void generateMonthlyReportsForAllPatients() {
         logger.info("=== Starting automatic generation of monthly reports ===");
 
-        List<Long> patientIds = jdbcTemplate.queryForList(
-                "SELECT id FROM patients",
-                Long.class
-        );
+        reportJobService.resumeInterrupted("MONTHLY");
 
-        int successCount = 0;
-        int errorCount = 0;
+        Instant stop = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        ReportJob job = reportJobService.createJob("MONTHLY", stop.minus(30, ChronoUnit.DAYS), stop);
+        BatchRunStats stats = reportJobService.runJob(job);
 
-        for (Long patientId : patientIds) {
-            try {
-                reportGeneratorService.generateMonthlyReport(patientId);
-                logger.info("✓ Monthly report successfully generated for patient {}", patientId);
-                successCount++;
-            } catch (Exception e) {
-                logger.error("✗ Failed to generate monthly report for patient {}", patientId, e);
-                errorCount++;
-            }
-        }
+        logFinished("Monthly", stats);
+    }
 
-        logger.info("=== Monthly report generation finished ({} succeeded, {} failed, total: {}) ===",
-                successCount, errorCount, patientIds.size());
+    private void logFinished(String kind, BatchRunStats stats) {
+        logger.info("=== {} report generation finished ({} succeeded, {} failed, total: {}) in {}s — {} reports/min ===",
+                kind, stats.succeeded(), stats.failed(), stats.total(),
+                stats.elapsed().toSeconds(), String.format("%.1f", stats.reportsPerMinute()));
     }
 }
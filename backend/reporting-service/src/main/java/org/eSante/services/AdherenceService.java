@@ -0,0 +1,121 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.AdherenceSummary;
+import org.eSante.repositories.InfluxDBRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Sensor adherence: readings received against readings expected (two blood pressure,
+ * four glucose and one weight reading a day).
+ * <p>
+ * Readings are counted from the per-patient, per-day counters of the daily rollup
+ * bucket ({@code <field>_count}, written by the periodic InfluxDB task shortly after
+ * each UTC day ends), so a period costs one point per day and sensor. The partial
+ * first day, the current day and any day not rolled up yet are counted on raw data,
+ * as is the whole period when the rollup bucket is missing or empty.
+ */
+@Service
+public class AdherenceService {
+
+    /** Tracked sensors and the series their readings are counted on */
+    static final Map<String, String> SENSOR_SERIES = new LinkedHashMap<>();
+    static {
+        SENSOR_SERIES.put("tension", "tension/systolique");
+        SENSOR_SERIES.put("glycemie", "glycemie/value");
+        SENSOR_SERIES.put("poids", "poids/value");
+    }
+
+    /** Readings expected per day and sensor */
+    static final Map<String, Integer> EXPECTED_PER_DAY = Map.of("tension", 2, "glycemie", 4, "poids", 1);
+
+    @Autowired
+    private InfluxDBRepository influx;
+
+    /**
+     * Adherence over [start, stop) with the readings of each UTC day it touches.
+     *
+     * @throws IllegalStateException if the counters could not be read
+     */
+    public AdherenceSummary getSummary(Long patientId, Instant start, Instant stop) {
+        Map<LocalDate, Map<String, Long>> byDay;
+        try {
+            byDay = influx.getDailyReadingCounts(List.of(patientId), List.copyOf(SENSOR_SERIES.values()), start, stop)
+                    .getOrDefault(patientId, Map.of());
+        } catch (Exception e) {
+            throw new IllegalStateException("Adherence counters of patient " + patientId + " unavailable: " + e.getMessage(), e);
+        }
+
+        Map<String, Integer> received = new HashMap<>();
+        List<AdherenceSummary.Day> days = new ArrayList<>();
+        LocalDate last = LocalDate.ofInstant(stop.minusNanos(1), ZoneOffset.UTC);
+        for (LocalDate day = LocalDate.ofInstant(start, ZoneOffset.UTC); !day.isAfter(last); day = day.plusDays(1)) {
+            Map<String, Integer> readings = bySensor(byDay.getOrDefault(day, Map.of()));
+            readings.forEach((sensor, n) -> received.merge(sensor, n, Integer::sum));
+            days.add(new AdherenceSummary.Day(day, readings));
+        }
+
+        AdherenceSummary summary = new AdherenceSummary();
+        summary.setPatientId(patientId);
+        summary.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
+        summary.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+        Map<String, Integer> adherence = adherenceBySensor(received, start, stop);
+        summary.setAdherenceBySensor(adherence);
+        summary.setOverallAdherenceRate(globalAdherence(adherence));
+        summary.setExpectedPerDay(EXPECTED_PER_DAY);
+        summary.setDays(days);
+        return summary;
+    }
+
+    /**
+     * Readings per sensor of each patient over [start, stop), from the same counters.
+     * {@code patients} null counts every patient; patients without readings are absent.
+     *
+     * @throws Exception if the query fails or times out
+     */
+    public Map<Long, Map<String, Integer>> getReadingCounts(Collection<Long> patients, Instant start, Instant stop) throws Exception {
+        Map<Long, Map<String, Integer>> counts = new HashMap<>();
+        influx.getDailyReadingCounts(patients, List.copyOf(SENSOR_SERIES.values()), start, stop)
+                .forEach((patientId, byDay) -> {
+                    Map<String, Integer> total = new HashMap<>();
+                    byDay.values().forEach(day -> bySensor(day).forEach((sensor, n) -> total.merge(sensor, n, Integer::sum)));
+                    counts.put(patientId, total);
+                });
+        return counts;
+    }
+
+    private static Map<String, Integer> bySensor(Map<String, Long> bySeries) {
+        Map<String, Integer> readings = new LinkedHashMap<>();
+        SENSOR_SERIES.forEach((sensor, series) -> readings.put(sensor, bySeries.getOrDefault(series, 0L).intValue()));
+        return readings;
+    }
+
+    /** Percent of the expected readings received over the window, per sensor (capped at 100) */
+    static Map<String, Integer> adherenceBySensor(Map<String, Integer> received, Instant start, Instant stop) {
+        Map<String, Integer> adherence = new HashMap<>();
+        long days = Duration.between(start, stop).toDays();
+        EXPECTED_PER_DAY.forEach((sensor, perDay) ->
+                adherence.put(sensor, computePercentage(received.getOrDefault(sensor, 0), (int) (days * perDay))));
+        return adherence;
+    }
+
+    private static int computePercentage(int received, int expected) {
+        if (expected <= 0) return 0;
+        return Math.min(100, (int) (100.0 * received / expected));
+    }
+
+    static double globalAdherence(Map<String, Integer> adherence) {
+        return adherence.values().stream()
+                .mapToInt(Integer::intValue)
+                .average()
+                .orElse(0.0);
+    }
+}
@@ -0,0 +1,112 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.eSante.repositories.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Asynchronous report generation: the report is persisted in GENERATING status and
+ * returned right away, the aggregation and PDF rendering run on the
+ * {@code reportGenerationExecutor} pool. Clients poll {@code GET /api/reports/{id}/status}
+ * or receive a realtime notification when {@code reporting.notification.url} is set.
+ * <p>
+ * The queue lives in memory: reports whose generation was lost with a restart would
+ * stay GENERATING forever, so those older than
+ * {@code reporting.async.stale-after-minutes} are periodically marked ERROR, the
+ * first time at startup.
+ */
+@Service
+public class AsyncReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncReportService.class);
+
+    @Autowired
+    private ReportGeneratorService reportGeneratorService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportNotificationClient reportNotificationClient;
+
+    @Autowired
+    @Qualifier("reportGenerationExecutor")
+    private TaskExecutor reportGenerationExecutor;
+
+    @Value("${reporting.async.stale-after-minutes:30}")
+    private long staleAfterMinutes = 30;
+
+    public Report submitWeeklyReport(Long patientId) {
+        Instant stop = Instant.now();
+        return submit(reportGeneratorService.createPendingReport(patientId, "WEEKLY", stop.minus(7, ChronoUnit.DAYS), stop),
+                reportGeneratorService::completeWeeklyReport);
+    }
+
+    public Report submitMonthlyReport(Long patientId) {
+        Instant stop = Instant.now();
+        return submit(reportGeneratorService.createPendingReport(patientId, "MONTHLY", stop.minus(30, ChronoUnit.DAYS), stop),
+                reportGeneratorService::completeMonthlyReport);
+    }
+
+    public Report submitCustomReport(Long patientId, long minutes) {
+        Instant stop = Instant.now();
+        return submit(reportGeneratorService.createPendingReport(patientId, "CUSTOM", stop.minus(minutes, ChronoUnit.MINUTES), stop),
+                reportGeneratorService::completeCustomReport);
+    }
+
+    /**
+     * Queues the generation of an already persisted report. The worker reloads the
+     * entity so the instance returned to the caller is never mutated concurrently.
+     * If the queue is full the report is marked ERROR and returned as such.
+     */
+    private Report submit(Report pending, UnaryOperator<Report> generation) {
+        Long reportId = pending.getId();
+        try {
+            reportGenerationExecutor.execute(() -> {
+                Report report = reportRepository.findById(reportId).orElse(null);
+                if (report == null) {
+                    logger.warn("Report {} disappeared before its generation started", reportId);
+                    return;
+                }
+                reportNotificationClient.reportFinished(generation.apply(report));
+            });
+        } catch (TaskRejectedException e) {
+            logger.warn("Report generation queue is full, rejecting report {}", reportId);
+            pending.setStatus("ERROR");
+            pending.setSummary("Error: report generation queue is full, retry later");
+            return reportRepository.save(pending);
+        }
+        return pending;
+    }
+
+    /**
+     * Marks ERROR the reports left GENERATING for longer than
+     * {@code reporting.async.stale-after-minutes} (0 disables the sweep).
+     *
+     * @return number of reports marked ERROR
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${reporting.async.stale-sweep-ms:300000}")
+    public int failStaleReports() {
+        if (staleAfterMinutes <= 0) {
+            return 0;
+        }
+        int failed = reportRepository.failGeneratingBefore(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+        if (failed > 0) {
+            logger.warn("Marked {} report(s) stuck in GENERATING for over {} min as ERROR", failed, staleAfterMinutes);
+        }
+        return failed;
+    }
+}
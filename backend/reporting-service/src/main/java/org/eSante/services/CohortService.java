@@ -0,0 +1,173 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.CohortSummary;
+import org.eSante.domain.models.dto.VitalSignsStats;
+import org.eSante.domain.stats.StatsAccumulator;
+import org.eSante.repositories.InfluxDBRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ward-level view: how average heart rate, sensor adherence and glucose time in range
+ * are distributed across patients, all of them or those of one main pathology.
+ * <p>
+ * Each metric is one Flux query grouped by patient tag (never one query per patient),
+ * adherence reading the daily counters of {@link AdherenceService},
+ * the three running in parallel on the {@code cohortQueryExecutor} pool (a metric the
+ * saturated pool rejects is listed as unavailable); their per-patient rows are then
+ * merged into one distribution per metric.
+ */
+@Service
+public class CohortService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CohortService.class);
+
+    @Autowired
+    private InfluxDBRepository influx;
+
+    @Autowired
+    private AdherenceService adherenceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportingThrottle reportingThrottle;
+
+    @Autowired
+    @Qualifier("cohortQueryExecutor")
+    private Executor cohortQueryExecutor;
+
+    @Value("${reporting.cohort.query-timeout-ms:60000}")
+    private long queryTimeoutMs = 60000;
+
+    /**
+     * @param pathology {@code pathologie_principale} of the patients to include
+     *                  (case-insensitive), null for every patient
+     */
+    public CohortSummary getSummary(String pathology, Instant start, Instant stop) {
+        List<Long> patients = cohortPatients(pathology);
+        Set<Long> members = new HashSet<>(patients);
+        // The whole population needs no patient filter: rows of unknown patients are dropped below
+        Collection<Long> scope = pathology != null ? patients : null;
+
+        CohortSummary s = new CohortSummary();
+        s.setPathology(pathology);
+        s.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
+        s.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+        s.setPatientCount(patients.size());
+        if (patients.isEmpty()) {
+            s.setAverageHeartRate(new StatsAccumulator().toStats("Average Heart Rate", "bpm"));
+            s.setAdherence(new StatsAccumulator().toStats("Adherence", "%"));
+            s.setTimeInRange(new StatsAccumulator().toStats("Time In Range", "%"));
+            return s;
+        }
+
+        CompletableFuture<Map<Long, Double>> heartRate = submit(() -> influx.getHeartRateByPatient(start, stop, scope));
+        CompletableFuture<Map<Long, Map<String, Integer>>> readings = submit(() -> adherenceService.getReadingCounts(scope, start, stop));
+        CompletableFuture<Map<Long, Double>> timeInRange = submit(() -> influx.getTimeInRangeByPatient(start, stop, scope));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        List<String> unavailable = new ArrayList<>();
+
+        Map<Long, Double> heartRates = await("averageHeartRate", heartRate, deadline, unavailable);
+        if (heartRates != null) {
+            s.setAverageHeartRate(distribution(heartRates, members, "Average Heart Rate", "bpm"));
+        }
+
+        Map<Long, Map<String, Integer>> counts = await("adherence", readings, deadline, unavailable);
+        if (counts != null) {
+            // Every patient counts: no reading at all is 0 % adherence
+            Map<Long, Double> adherence = new HashMap<>();
+            for (Long patientId : patients) {
+                Map<String, Integer> bySensor = AdherenceService.adherenceBySensor(
+                        counts.getOrDefault(patientId, Map.of()), start, stop);
+                adherence.put(patientId, AdherenceService.globalAdherence(bySensor));
+            }
+            s.setAdherence(distribution(adherence, members, "Adherence", "%"));
+        }
+
+        Map<Long, Double> ranges = await("timeInRange", timeInRange, deadline, unavailable);
+        if (ranges != null) {
+            s.setTimeInRange(distribution(ranges, members, "Time In Range", "%"));
+        }
+
+        if (!unavailable.isEmpty()) {
+            logger.warn("Cohort summary ({}) is partial, unavailable: {}", pathology != null ? pathology : "all patients", unavailable);
+        }
+        s.setUnavailable(unavailable);
+        return s;
+    }
+
+    private List<Long> cohortPatients(String pathology) {
+        if (pathology == null) {
+            return jdbcTemplate.queryForList("SELECT id FROM patients", Long.class);
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM patients WHERE LOWER(pathologie_principale) = LOWER(?)", Long.class, pathology);
+    }
+
+    private static VitalSignsStats distribution(Map<Long, Double> byPatient, Set<Long> members, String metric, String unit) {
+        StatsAccumulator acc = new StatsAccumulator();
+        byPatient.forEach((patientId, value) -> {
+            if (members.contains(patientId) && value != null && Double.isFinite(value)) {
+                acc.add(value);
+            }
+        });
+        return acc.toStats(metric, unit);
+    }
+
+    private <T> CompletableFuture<T> submit(CohortQuery<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(() -> reportingThrottle.withInfluxPermit(() -> {
+                try {
+                    return query.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }), cohortQueryExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Result of {@code future}, or null (and {@code name} listed as unavailable) if it failed or timed out */
+    private static <T> T await(String name, CompletableFuture<T> future, long deadlineNanos, List<String> unavailable) {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The underlying query is bounded by influxdb.query-timeout-seconds
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            logger.warn("Cohort query {} failed: {}", name, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unavailable.add(name);
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface CohortQuery<T> {
+        T run() throws Exception;
+    }
+}
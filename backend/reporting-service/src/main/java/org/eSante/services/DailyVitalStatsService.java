@@ -0,0 +1,214 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.VitalDailyStats;
+import org.eSante.domain.models.dto.ReportVitals;
+import org.eSante.domain.stats.GlycemicRanges;
+import org.eSante.domain.stats.QuantileSketch;
+import org.eSante.domain.stats.StatsAccumulator;
+import org.eSante.repositories.InfluxDBRepository;
+import org.eSante.repositories.VitalDailyStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Report vitals built from per-day partials stored in PostgreSQL
+ * ({@link VitalDailyStats}). A window is split into the whole days it covers, merged
+ * from the store, and the partial days at its edges, read raw from InfluxDB. Whole
+ * days missing from the store are computed with one query per run of consecutive
+ * days and saved, so a monthly report re-reads about two days of raw data instead of
+ * thirty, and the previous period of a comparison costs a table read.
+ * <p>
+ * Only days ended at least {@code settle} ago are stored: readings may still arrive
+ * late (device buffering) for the most recent ones. A stored day stays provisional
+ * until it has been computed {@code final-after-hours} after its end: until then it is
+ * recomputed whenever a report reads it, so late readings (or a day first stored
+ * empty) are picked up. Days whose glucose bands were counted with other thresholds
+ * than the configured {@link GlycemicRanges} are recomputed too.
+ * <p>
+ * A failed raw read is not taken as an empty day: the exception propagates and the
+ * report fails instead of silently missing data.
+ */
+@Service
+public class DailyVitalStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyVitalStatsService.class);
+
+    private static final String GLUCOSE = "glycemie/value";
+
+    @Autowired
+    private InfluxDBRepository influxDBRepository;
+
+    @Autowired
+    private VitalDailyStatsRepository dailyStatsRepository;
+
+    @Autowired
+    private GlycemicRanges glucoseRanges;
+
+    @Value("${reporting.daily-stats.zone:UTC}")
+    private ZoneId zone = ZoneId.of("UTC");
+
+    @Value("${reporting.daily-stats.settle-minutes:60}")
+    private long settleMinutes = 60;
+
+    @Value("${reporting.daily-stats.final-after-hours:48}")
+    private long finalAfterHours = 48;
+
+    private Clock clock = Clock.systemUTC();
+
+    public ReportVitals getReportVitals(Long patientId, Instant start, Instant stop) {
+        return influxDBRepository.toReportVitals(accumulate(patientId, start, stop));
+    }
+
+    /**
+     * Merged accumulators of {@link InfluxDBRepository#REPORT_SERIES} over [start, stop).
+     */
+    public Map<String, StatsAccumulator> accumulate(Long patientId, Instant start, Instant stop) {
+        LocalDate firstDay = LocalDate.ofInstant(start, zone);
+        if (firstDay.atStartOfDay(zone).toInstant().isBefore(start)) {
+            firstDay = firstDay.plusDays(1);
+        }
+        Instant settled = clock.instant().minus(Duration.ofMinutes(settleMinutes));
+        LocalDate endDay = LocalDate.ofInstant(stop.isBefore(settled) ? stop : settled, zone);
+        if (!endDay.isAfter(firstDay)) {
+            return influxDBRepository.accumulateReportVitals(patientId, start, stop);
+        }
+
+        Instant daysStart = firstDay.atStartOfDay(zone).toInstant();
+        Instant daysStop = endDay.atStartOfDay(zone).toInstant();
+
+        Map<String, StatsAccumulator> merged = InfluxDBRepository.newReportAccumulators(glucoseRanges);
+        if (start.isBefore(daysStart)) {
+            mergeAll(merged, influxDBRepository.accumulateReportVitals(patientId, start, daysStart));
+        }
+        mergeDays(merged, patientId, firstDay, endDay);
+        if (daysStop.isBefore(stop)) {
+            mergeAll(merged, influxDBRepository.accumulateReportVitals(patientId, daysStop, stop));
+        }
+        return merged;
+    }
+
+    private void mergeDays(Map<String, StatsAccumulator> merged, Long patientId, LocalDate from, LocalDate to) {
+        List<VitalDailyStats> rows = dailyStatsRepository.findByPatientIdAndDayGreaterThanEqualAndDayLessThan(patientId, from, to);
+        String signature = glucoseRanges.signature();
+        Set<LocalDate> stale = new HashSet<>();
+        for (VitalDailyStats row : rows) {
+            boolean otherRanges = row.getSeries().equals(GLUCOSE) && !signature.equals(row.getGlucoseRanges());
+            if (otherRanges || isProvisional(row)) {
+                stale.add(row.getDay());
+            }
+        }
+        if (!stale.isEmpty()) {
+            dailyStatsRepository.deleteAll(rows.stream().filter(row -> stale.contains(row.getDay())).toList());
+        }
+
+        Set<LocalDate> stored = new HashSet<>();
+        for (VitalDailyStats day : rows) {
+            if (stale.contains(day.getDay())) {
+                continue;
+            }
+            stored.add(day.getDay());
+            StatsAccumulator acc = merged.get(day.getSeries());
+            if (acc != null && day.getSampleCount() > 0) {
+                long[] bands = {day.getVeryLowCount(), day.getLowCount(), day.getInRange(), day.getHighCount(), day.getVeryHighCount()};
+                acc.merge(day.getSampleCount(), day.getMean(), day.getM2(), day.getMinValue(), day.getMaxValue(),
+                        bands, day.getSketch() != null ? QuantileSketch.fromBytes(day.getSketch()) : null);
+            }
+        }
+
+        LocalDate runStart = null;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            boolean missing = day.isBefore(to) && !stored.contains(day);
+            if (missing && runStart == null) {
+                runStart = day;
+            } else if (!missing && runStart != null) {
+                computeDays(merged, patientId, runStart, day);
+                runStart = null;
+            }
+        }
+    }
+
+    /** Computed too soon after the day ended to rule out late readings */
+    private boolean isProvisional(VitalDailyStats row) {
+        if (row.getComputedAt() == null) {
+            return true;
+        }
+        Instant finalFrom = row.getDay().plusDays(1).atStartOfDay(zone).toInstant().plus(Duration.ofHours(finalAfterHours));
+        return row.getComputedAt().atZone(ZoneId.systemDefault()).toInstant().isBefore(finalFrom);
+    }
+
+    /**
+     * Reads [from, to) raw in one query, merges and stores it day by day.
+     *
+     * @throws IllegalStateException if the days could not be read (nothing is stored)
+     */
+    private void computeDays(Map<String, StatsAccumulator> merged, Long patientId, LocalDate from, LocalDate to) {
+        Instant start = from.atStartOfDay(zone).toInstant();
+        Instant stop = to.atStartOfDay(zone).toInstant();
+        Map<LocalDate, Map<String, StatsAccumulator>> byDay;
+        try {
+            byDay = influxDBRepository.accumulateDailyVitals(patientId, start, stop, zone);
+        } catch (Exception e) {
+            throw new IllegalStateException("Daily stats of patient " + patientId + " for " + from + " - " + to
+                    + " unavailable: " + e.getMessage(), e);
+        }
+
+        List<VitalDailyStats> rows = new ArrayList<>();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            Map<String, StatsAccumulator> series = byDay.getOrDefault(day, InfluxDBRepository.newReportAccumulators(glucoseRanges));
+            mergeAll(merged, series);
+            for (Map.Entry<String, StatsAccumulator> e : series.entrySet()) {
+                rows.add(toRow(patientId, day, e.getKey(), e.getValue()));
+            }
+        }
+        try {
+            dailyStatsRepository.saveAll(rows);
+        } catch (DataAccessException e) {
+            // Typically a concurrent report stored the same days first
+            log.debug("Daily stats of patient {} for {} - {} not stored: {}", patientId, from, to, e.getMessage());
+        }
+    }
+
+    private VitalDailyStats toRow(Long patientId, LocalDate day, String series, StatsAccumulator acc) {
+        VitalDailyStats row = new VitalDailyStats(patientId, day, series);
+        row.setComputedAt(LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault()));
+        if (series.equals(GLUCOSE)) {
+            row.setGlucoseRanges(glucoseRanges.signature());
+        }
+        row.setSampleCount(acc.getCount());
+        if (acc.getCount() > 0) {
+            row.setMean(acc.getMean());
+            row.setM2(acc.getM2());
+            row.setMinValue(acc.getMin());
+            row.setMaxValue(acc.getMax());
+            long[] bands = acc.getBands();
+            row.setVeryLowCount(bands[0]);
+            row.setLowCount(bands[1]);
+            row.setInRange(bands[2]);
+            row.setHighCount(bands[3]);
+            row.setVeryHighCount(bands[4]);
+            row.setSketch(acc.getSketch().toBytes());
+        }
+        return row;
+    }
+
+    private static void mergeAll(Map<String, StatsAccumulator> into, Map<String, StatsAccumulator> from) {
+        from.forEach((series, acc) -> {
+            StatsAccumulator target = into.get(series);
+            if (target != null) {
+                target.merge(acc);
+            }
+        });
+    }
+}
@@ -1,25 +1,137 @@
 package org.eSante.services;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import org.eSante.domain.models.dto.AlertSummary;
 import org.eSante.domain.models.dto.DashboardPoint;
 import org.eSante.domain.models.dto.DashboardSummary;
 import org.eSante.repositories.InfluxDBRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.eSante.repositories.InfluxDBRepository.seriesKey;
 
 @Service
 public class DashboardService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    /** Aggregation windows of the chart series */
+    public static final String EVERY_VITALS = "1m";
+    public static final String EVERY_BLOOD_PRESSURE = "5m";
+    public static final String EVERY_GLUCOSE = "10m";
+    public static final String EVERY_WEIGHT = "1h";
+
+    private static final List<String> LATEST_SERIES = List.of(
+            seriesKey("fc", "value"),
+            seriesKey("spO2", "value"),
+            seriesKey("glycemie", "value"),
+            seriesKey("poids", "value"),
+            seriesKey("tension", "systolique"),
+            seriesKey("tension", "diastolique"),
+            seriesKey("STEPS", "value"));
+
     @Autowired
     private InfluxDBRepository influx;
 
     @Autowired
     private DataAggregationService dataAgg;
 
+    @Autowired
+    private LiveVitalsClient liveVitals;
+
+    @Autowired
+    @Qualifier("dashboardQueryExecutor")
+    private Executor dashboardQueryExecutor;
+
+    @Value("${reporting.dashboard.query-timeout-ms:3000}")
+    private long queryTimeoutMs;
+
+    @Value("${reporting.dashboard.live-vitals-max-age-minutes:10080}")
+    private long liveMaxAgeMinutes = 10080;
+
+    @Value("${reporting.dashboard.cache-ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    @Value("${reporting.dashboard.cache-max-size:1000}")
+    private long cacheMaxSize;
+
+    private AsyncCache<SummaryKey, DashboardSummary> summaries;
+
+    @PostConstruct
+    void initCache() {
+        summaries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(Math.max(0, cacheTtlMs)))
+                .maximumSize(cacheMaxSize)
+                .buildAsync();
+    }
+
+    /**
+     * Summary shared by every viewer of the same patient and window for
+     * {@code reporting.dashboard.cache-ttl-ms}. Concurrent requests for a key that is
+     * being computed wait for that computation instead of starting their own; a failed
+     * computation is not cached. The computation runs on the first caller's thread.
+     */
+    public DashboardSummary getSummary(Long patientId, long minutes) {
+        if (cacheTtlMs <= 0) {
+            return buildSummary(patientId, minutes);
+        }
+
+        SummaryKey key = new SummaryKey(patientId, minutes);
+        CompletableFuture<DashboardSummary> computation = new CompletableFuture<>();
+        CompletableFuture<DashboardSummary> existing = summaries.asMap().putIfAbsent(key, computation);
+        if (existing != null) {
+            return join(existing);
+        }
+
+        DashboardSummary summary;
+        try {
+            summary = buildSummary(patientId, minutes);
+        } catch (RuntimeException e) {
+            computation.completeExceptionally(e);
+            throw e;
+        }
+        computation.complete(summary);
+        if (!summary.getUnavailable().isEmpty()) {
+            // Current waiters share the partial result, the next poll retries
+            summaries.asMap().remove(key, computation);
+        }
+        return summary;
+    }
+
+    /**
+     * Runs the InfluxDB queries (all latest values at once, one per chart series) and
+     * the alert query in parallel on the {@code dashboardQueryExecutor} pool, so
+     * latency is that of the slowest query.
+     * Queries still running after {@code reporting.dashboard.query-timeout-ms} are
+     * cancelled, as are those the saturated pool rejects: their fields stay empty and
+     * are listed in {@link DashboardSummary#getUnavailable()}.
+     */
     public DashboardSummary buildSummary(Long patientId, long minutes) {
         Instant stop = Instant.now();
         Instant start = stop.minus(minutes, ChronoUnit.MINUTES);
@@ -27,27 +139,133 @@ public class DashboardService {
         DashboardSummary s = new DashboardSummary();
         s.setPatientId(patientId);
 
-        // Latest values
-        s.setHeartRate(influx.getLatestValue(patientId, "fc", "value"));
-        s.setSpo2(influx.getLatestValue(patientId, "spO2", "value"));
-        s.setGlucose(influx.getLatestValue(patientId, "glycemie", "value"));
-        s.setWeight(influx.getLatestValue(patientId, "poids", "value"));
-        s.setBpSystolic(influx.getLatestValue(patientId, "tension", "systolique"));
-        s.setBpDiastolic(influx.getLatestValue(patientId, "tension", "diastolique"));
-        s.setSteps(influx.getLatestValue(patientId, "STEPS", "value"));
-
-        // Series (for charts)
-        s.setSeriesHeartRate(influx.getSeriesMean(patientId, "fc", "value", start, stop, "1m"));
-        s.setSeriesSpO2(influx.getSeriesMean(patientId, "spO2", "value", start, stop, "1m"));
-        s.setSeriesBloodPressureSys(influx.getSeriesMean(patientId, "tension", "systolique", start, stop, "5m"));
-        s.setSeriesBloodPressureDia(influx.getSeriesMean(patientId, "tension", "diastolique", start, stop, "5m"));
-        s.setSeriesGlucose(influx.getSeriesMean(patientId, "glycemie", "value", start, stop, "10m"));
-        s.setSeriesWeight(influx.getSeriesMean(patientId, "poids", "value", start, stop, "1h"));
-
-        // Recent alerts from SQL
-        List<AlertSummary> alerts = dataAgg.fetchAlerts(patientId, start, stop);
-        s.setRecentAlerts(alerts);
-        s.setAlertCount(alerts != null ? alerts.size() : 0);
+        List<PendingQuery<?>> queries = List.of(
+                // Latest values, from the monitoring-service memory and/or one Flux query
+                query("latestValues", () -> latestValues(patientId), latest -> {
+                    s.setHeartRate(latest.get(seriesKey("fc", "value")));
+                    s.setSpo2(latest.get(seriesKey("spO2", "value")));
+                    s.setGlucose(latest.get(seriesKey("glycemie", "value")));
+                    s.setWeight(latest.get(seriesKey("poids", "value")));
+                    s.setBpSystolic(latest.get(seriesKey("tension", "systolique")));
+                    s.setBpDiastolic(latest.get(seriesKey("tension", "diastolique")));
+                    s.setSteps(latest.get(seriesKey("STEPS", "value")));
+                }),
+
+                // Series (for charts)
+                query("seriesHeartRate", () -> influx.getSeriesMean(patientId, "fc", "value", start, stop, EVERY_VITALS), s::setSeriesHeartRate),
+                query("seriesSpO2", () -> influx.getSeriesMean(patientId, "spO2", "value", start, stop, EVERY_VITALS), s::setSeriesSpO2),
+                query("seriesBloodPressureSys", () -> influx.getSeriesMean(patientId, "tension", "systolique", start, stop, EVERY_BLOOD_PRESSURE), s::setSeriesBloodPressureSys),
+                query("seriesBloodPressureDia", () -> influx.getSeriesMean(patientId, "tension", "diastolique", start, stop, EVERY_BLOOD_PRESSURE), s::setSeriesBloodPressureDia),
+                query("seriesGlucose", () -> influx.getSeriesMean(patientId, "glycemie", "value", start, stop, EVERY_GLUCOSE), s::setSeriesGlucose),
+                query("seriesWeight", () -> influx.getSeriesMean(patientId, "poids", "value", start, stop, EVERY_WEIGHT), s::setSeriesWeight),
+
+                // Recent alerts from SQL
+                query("recentAlerts", () -> dataAgg.fetchAlerts(patientId, start, stop), alerts -> {
+                    s.setRecentAlerts(alerts);
+                    s.setAlertCount(alerts != null ? alerts.size() : 0);
+                })
+        );
+
+        // One deadline for the whole summary: queries run concurrently, so this is
+        // also the timeout of each individual query
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        List<String> unavailable = new ArrayList<>();
+        for (PendingQuery<?> pending : queries) {
+            if (!pending.await(deadline)) {
+                unavailable.add(pending.name());
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            logger.warn("Dashboard summary of patient {} is partial, unavailable: {}", patientId, unavailable);
+        }
+        s.setUnavailable(unavailable);
         return s;
     }
+
+    /**
+     * Latest values held in memory by the monitoring-service (fed from MQTT); only the
+     * series it has not received since its startup, or received longer ago than
+     * {@code reporting.dashboard.live-vitals-max-age-minutes} (at most the
+     * {@link InfluxDBRepository#LATEST_VALUES_WINDOW} InfluxDB looks back over), are
+     * read from InfluxDB.
+     */
+    private Map<String, DashboardPoint> latestValues(Long patientId) {
+        Duration maxAge = Duration.ofMinutes(Math.max(0, liveMaxAgeMinutes));
+        if (maxAge.compareTo(InfluxDBRepository.LATEST_VALUES_WINDOW) > 0) {
+            maxAge = InfluxDBRepository.LATEST_VALUES_WINDOW;
+        }
+        Instant oldest = Instant.now().minus(maxAge);
+        Map<String, DashboardPoint> live = new HashMap<>(liveVitals.getLatestValues(patientId));
+        live.values().removeIf(point -> !isAfter(point, oldest));
+        List<String> missing = LATEST_SERIES.stream().filter(key -> !live.containsKey(key)).toList();
+        if (missing.isEmpty()) {
+            return live;
+        }
+        Map<String, DashboardPoint> latest = new HashMap<>(influx.getLatestValues(patientId, missing));
+        latest.putAll(live);
+        return latest;
+    }
+
+    private static boolean isAfter(DashboardPoint point, Instant oldest) {
+        try {
+            return point.getTime() != null && Instant.parse(point.getTime()).isAfter(oldest);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts {@code supplier} on the {@code dashboardQueryExecutor} pool. A saturated
+     * pool rejects it: the query is then reported unavailable rather than run on the
+     * request thread.
+     */
+    private <T> PendingQuery<T> query(String name, Supplier<T> supplier, Consumer<T> target) {
+        FutureTask<T> task = new FutureTask<>(supplier::get);
+        try {
+            dashboardQueryExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Dashboard query {} rejected, query pool saturated", name);
+            task.cancel(false);
+        }
+        return new PendingQuery<>(name, task, target);
+    }
+
+    /**
+     * A sub-query in flight; its result is applied to the summary on the caller's thread.
+     */
+    private record PendingQuery<T>(String name, FutureTask<T> result, Consumer<T> target) {
+
+        boolean await(long deadlineNanos) {
+            try {
+                target.accept(result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+                return true;
+            } catch (TimeoutException e) {
+                // Interrupting the worker cancels its Flux query and frees the thread
+                result.cancel(true);
+                return false;
+            } catch (CancellationException e) {
+                return false;
+            } catch (ExecutionException e) {
+                logger.warn("Dashboard query {} failed: {}", name, e.getCause().getMessage());
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(true);
+                return false;
+            }
+        }
+    }
+
+    private static DashboardSummary join(CompletableFuture<DashboardSummary> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record SummaryKey(Long patientId, long minutes) {}
 }
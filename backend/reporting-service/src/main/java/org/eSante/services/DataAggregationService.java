@@ -2,7 +2,9 @@ package org.eSante.services;
 
 import org.eSante.domain.models.dto.*;
 import org.eSante.repositories.InfluxDBRepository;
+import org.eSante.repositories.StatsMode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
@@ -10,7 +12,6 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 @Service
@@ -22,6 +23,20 @@ public class DataAggregationService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReportingThrottle reportingThrottle;
+
+    @Autowired
+    private DailyVitalStatsService dailyVitalStats;
+
+    // Merge stored per-day stats and read only the partial edge days raw (CLIENT mode only:
+    // SERVER stats are computed by Flux over the whole window and cannot be merged)
+    @Value("${reporting.daily-stats.enabled:true}")
+    private boolean dailyStatsEnabled;
+
+    @Value("${reporting.stats.mode:CLIENT}")
+    private StatsMode statsMode = StatsMode.CLIENT;
+
     /**
      * Aggregates data for a weekly report (7 days)
      */
@@ -32,10 +47,8 @@ public class DataAggregationService {
         data.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
         data.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
 
-        data.setHeartRateStats(influxDBRepository.getHeartRateStats(patientId, start, stop));
-        data.setSpo2Stats(influxDBRepository.getSpO2Stats(patientId, start, stop));
-        data.setGlucoseStats(influxDBRepository.getGlucoseStats(patientId, start, stop));
-        data.setBloodPressureStats(influxDBRepository.getBloodPressureStats(patientId, start, stop));
+        ReportVitals vitals = fetchVitals(patientId, start, stop);
+        applyVitals(data, vitals);
         //  Alertes depuis PostgreSQL
         List<AlertSummary> alerts = getAlertsForPeriod(patientId, start, stop);
         data.setAlerts(alerts);
@@ -45,9 +58,9 @@ public class DataAggregationService {
                 .count());
 
         // 🕒 Adhérence
-        Map<String, Integer> adherence = calculateAdherence(patientId, start, stop);
+        Map<String, Integer> adherence = calculateAdherence(vitals, start, stop);
         data.setAdherenceBySensor(adherence);
-        data.setOverallAdherenceRate(calculateGlobalAdherence(adherence));
+        data.setOverallAdherenceRate(AdherenceService.globalAdherence(adherence));
 
         // 📅 Prochains rendez-vous
         data.setAppointments(getUpcomingAppointments(patientId));
@@ -56,21 +69,11 @@ public class DataAggregationService {
     }
 
     /**
-     * Monthly report = same logic + comparison with previous period
+     * Monthly report = same logic + trends, anomalies and clinical recommendations
      */
     public ReportData aggregateMonthlyData(Long patientId, Instant start, Instant stop) {
         ReportData data = aggregateWeeklyData(patientId, start, stop);
 
-        // Comparaison avec le mois précédent
-        Instant prevStart = start.minus(30, ChronoUnit.DAYS);
-        Instant prevStop = start;
-        ReportData prev = aggregateWeeklyData(patientId, prevStart, prevStop);
-
-        if (data.getHeartRateStats() != null && prev.getHeartRateStats() != null) {
-            double delta = data.getHeartRateStats().getAverage() - prev.getHeartRateStats().getAverage();
-            System.out.printf("Δ fréquence cardiaque (patient %d): %.2f bpm%n", patientId, delta);
-        }
-
         detectTrendsAndAnomalies(data);
         generateClinicalRecommendations(data);
 
@@ -94,10 +97,7 @@ public class DataAggregationService {
         data.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
         data.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
 
-        data.setHeartRateStats(influxDBRepository.getHeartRateStats(patientId, start, stop));
-        data.setSpo2Stats(influxDBRepository.getSpO2Stats(patientId, start, stop));
-        data.setGlucoseStats(influxDBRepository.getGlucoseStats(patientId, start, stop));
-        data.setBloodPressureStats(influxDBRepository.getBloodPressureStats(patientId, start, stop));
+        applyVitals(data, fetchVitals(patientId, start, stop));
         List<AlertSummary> alerts = getAlertsForPeriod(patientId, start, stop);
         data.setAlerts(alerts);
         data.setAlertCount(alerts.size());
@@ -108,6 +108,21 @@ public class DataAggregationService {
         return data;
     }
 
+    private ReportVitals fetchVitals(Long patientId, Instant start, Instant stop) {
+        if (dailyStatsEnabled && statsMode == StatsMode.CLIENT) {
+            return reportingThrottle.withInfluxPermit(() -> dailyVitalStats.getReportVitals(patientId, start, stop));
+        }
+        return reportingThrottle.withInfluxPermit(() -> influxDBRepository.getReportVitals(patientId, start, stop, statsMode));
+    }
+
+    private void applyVitals(ReportData data, ReportVitals vitals) {
+        data.setHeartRateStats(vitals.getHeartRate());
+        data.setSpo2Stats(vitals.getSpo2());
+        data.setGlucoseStats(vitals.getGlucose());
+        data.setBloodPressureStats(vitals.getBloodPressure());
+        data.setWeightStats(vitals.getWeight());
+    }
+
     // Expose alerts fetch for other services (dashboard)
     public List<AlertSummary> fetchAlerts(Long patientId, Instant start, Instant stop) {
         return getAlertsForPeriod(patientId, start, stop);
@@ -185,35 +200,12 @@ public class DataAggregationService {
 
 
 
-    private Map<String, Integer> calculateAdherence(Long patientId, Instant start, Instant stop) {
-        Map<String, Integer> adherence = new HashMap<>();
-        long days = java.time.Duration.between(start, stop).toDays();
-
-        int bpExpected = (int) (days * 2);
-        int glucoseExpected = (int) (days * 4);
-        int weightExpected = (int) days;
-
-        int bpReceived = influxDBRepository.countMeasurements(patientId, "tension", start, stop);
-        int glucoseReceived = influxDBRepository.countMeasurements(patientId, "glycemie", start, stop);
-        int weightReceived = influxDBRepository.countMeasurements(patientId, "poids", start, stop);
-
-        adherence.put("tension", computePercentage(bpReceived, bpExpected));
-        adherence.put("glycemie", computePercentage(glucoseReceived, glucoseExpected));
-        adherence.put("poids", computePercentage(weightReceived, weightExpected));
-
-        return adherence;
-    }
-
-    private int computePercentage(int received, int expected) {
-        if (expected <= 0) return 0;
-        return Math.min(100, (int) (100.0 * received / expected));
-    }
-
-    private double calculateGlobalAdherence(Map<String, Integer> adherence) {
-        return adherence.values().stream()
-                .mapToInt(Integer::intValue)
-                .average()
-                .orElse(0.0);
+    private Map<String, Integer> calculateAdherence(ReportVitals vitals, Instant start, Instant stop) {
+        Map<String, Integer> received = new HashMap<>();
+        for (String sensor : AdherenceService.SENSOR_SERIES.keySet()) {
+            received.put(sensor, vitals.getMeasurementCount(sensor));
+        }
+        return AdherenceService.adherenceBySensor(received, start, stop);
     }
 
     private void detectTrendsAndAnomalies(ReportData data) {
@@ -250,13 +242,22 @@ public class DataAggregationService {
                 recs.add("Temps dans la plage faible — ajuster régime ou traitement.");
         }
 
+        // Cibles du consensus international : < 4 % sous 70 mg/dL (< 1 % sous 54), < 25 % au-dessus de 180
+        if (data.getGlucoseStats() != null && data.getGlucoseStats().getTimeBelowRange() != null) {
+            VitalSignsStats glucose = data.getGlucoseStats();
+            if (glucose.getTimeBelowRange() > 4
+                    || (glucose.getTimeVeryLow() != null && glucose.getTimeVeryLow() > 1))
+                recs.add("Temps sous la plage élevé — risque d’hypoglycémie, revoir le traitement.");
+            if (glucose.getTimeAboveRange() != null && glucose.getTimeAboveRange() > 25)
+                recs.add("Temps au-dessus de la plage élevé — hyperglycémies fréquentes.");
+        }
+
         if (data.getOverallAdherenceRate() < 80)
             recs.add("Adhérence capteurs faible — relancer le patient ou vérifier l’équipement.");
 
         if (recs.isEmpty())
             recs.add("Aucune alerte clinique ce mois-ci. Poursuivre le suivi.");
 
-        System.out.println("=== Recommandations cliniques ===");
-        recs.forEach(r -> System.out.println("• " + r));
+        data.setRecommendations(recs);
     }
 }
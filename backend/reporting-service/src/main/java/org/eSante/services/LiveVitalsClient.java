@@ -0,0 +1,61 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.DashboardPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.Map;
+
+/**
+ * Reads the latest vitals the monitoring-service keeps in memory from the MQTT stream,
+ * keyed like {@link org.eSante.repositories.InfluxDBRepository#seriesKey}. Disabled when
+ * {@code reporting.dashboard.live-vitals-url} is empty; returns an empty map when
+ * disabled or unreachable, so callers read what is missing from InfluxDB.
+ */
+@Component
+public class LiveVitalsClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveVitalsClient.class);
+
+    private static final ParameterizedTypeReference<Map<String, DashboardPoint>> LATEST_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+
+    public LiveVitalsClient(@Value("${reporting.dashboard.live-vitals-url:}") String liveVitalsUrl,
+                            @Value("${reporting.dashboard.live-vitals-timeout-ms:500}") int timeoutMs) {
+        if (liveVitalsUrl == null || liveVitalsUrl.isBlank()) {
+            this.restClient = null;
+            return;
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restClient = RestClient.builder().baseUrl(liveVitalsUrl).requestFactory(requestFactory).build();
+    }
+
+    public boolean isEnabled() {
+        return restClient != null;
+    }
+
+    public Map<String, DashboardPoint> getLatestValues(Long patientId) {
+        if (restClient == null) {
+            return Map.of();
+        }
+        try {
+            Map<String, DashboardPoint> latest = restClient.get()
+                    .uri("/api/monitoring/patient/{id}/latest", patientId)
+                    .retrieve()
+                    .body(LATEST_TYPE);
+            return latest != null ? latest : Map.of();
+        } catch (Exception e) {
+            logger.debug("Live vitals of patient {} unavailable: {}", patientId, e.getMessage());
+            return Map.of();
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package org.eSante.services;
 
-import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.element.Cell;
-import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 
 import org.eSante.domain.models.dto.ReportData;
@@ -16,62 +15,98 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 @Service
 public class PDFExportService {
 
     private static final Logger logger = LoggerFactory.getLogger(PDFExportService.class);
 
+    private final PdfTemplateCache templates;
+
+    public PDFExportService() {
+        this(new PdfTemplateCache());
+    }
+
+    PDFExportService(PdfTemplateCache templates) {
+        this.templates = templates;
+    }
+
     // ============================================================
     // WEEKLY PDF
     // ============================================================
     public byte[] generateWeeklyPDF(ReportData data) {
-        return generatePDF(data, "WEEKLY HEALTH REPORT", "Weekly summary of patient metrics");
+        return generatePDF(data, "WEEKLY");
     }
 
     // ============================================================
     // MONTHLY PDF
     // ============================================================
     public byte[] generateMonthlyPDF(ReportData data) {
-        return generatePDF(data, "MONTHLY CLINICAL REPORT", "Comprehensive 30-day clinical summary");
+        return generatePDF(data, "MONTHLY");
     }
 
     // ============================================================
     // POST-EVENT PDF
     // ============================================================
     public byte[] generatePostEventPDF(ReportData data) {
-        return generatePDF(data, "POST-EVENT ANALYSIS REPORT", "Detailed 72-hour analysis around alert");
+        return generatePDF(data, "POST_EVENT");
     }
 
     // ============================================================
     // CUSTOM (ON-DEMAND) PDF
     // ============================================================
     public byte[] generateCustomPDF(ReportData data) {
-        return generatePDF(data, "ON-DEMAND HEALTH REPORT", "Summary for selected time window");
+        return generatePDF(data, "CUSTOM");
+    }
+
+    // ============================================================
+    // STREAMING
+    // ============================================================
+
+    /**
+     * Renders the PDF of the given report type (WEEKLY, MONTHLY, POST_EVENT, CUSTOM)
+     * straight into {@code out}, e.g. the report file or an HTTP response. Pages are
+     * flushed as soon as they are laid out, so memory does not grow with the number of
+     * pages. The stream is flushed but left open for the caller to close.
+     */
+    public void writePDF(ReportData data, String reportType, OutputStream out) {
+        renderPDF(data, templates.template(reportType), out);
+    }
+
+    public void writePDF(ReportData data, String reportType, WritableByteChannel channel) {
+        writePDF(data, reportType, Channels.newOutputStream(channel));
     }
 
     // ============================================================
     // CORE LOGIC
     // ============================================================
-    private byte[] generatePDF(ReportData data, String title, String subtitle) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+    private byte[] generatePDF(ReportData data, String reportType) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePDF(data, reportType, out);
+        return out.toByteArray();
+    }
 
+    private void renderPDF(ReportData data, PdfTemplateCache.ReportTemplate template, OutputStream out) {
+        String title = template.title();
+        try {
             PdfWriter writer = new PdfWriter(out);
+            writer.setCloseStream(false);
             PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
+            // immediateFlush: each completed page is written out and released
+            Document document = new Document(pdf, PageSize.DEFAULT, true);
+            document.setFont(templates.newDocumentFont());
 
             // === HEADER ===
             document.add(new Paragraph(title)
                     .setBold()
-                    .setFontSize(20)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(5));
+                    .addStyle(PdfTemplateCache.TITLE));
 
-            document.add(new Paragraph(subtitle)
+            document.add(new Paragraph(template.subtitle())
                     .setItalic()
-                    .setFontSize(12)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(10));
+                    .addStyle(PdfTemplateCache.SUBTITLE));
 
             String patientLabel = (data.getPatientName() != null && !data.getPatientName().isBlank())
                     ? data.getPatientName()
@@ -79,16 +114,12 @@ public class PDFExportService {
 
             document.add(new Paragraph(patientLabel)
                     .setBold()
-                    .setFontSize(14)
-                    .setTextAlignment(TextAlignment.CENTER));
+                    .addStyle(PdfTemplateCache.PATIENT));
             document.add(new Paragraph("Period: " + data.getPeriodStart() + " → " + data.getPeriodEnd())
-                    .setFontSize(10)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20));
+                    .addStyle(PdfTemplateCache.PERIOD));
 
             // === TABLE OF METRICS ===
-            float[] columnWidths = {200F, 200F};
-            Table table = new Table(UnitValue.createPercentArray(columnWidths)).useAllAvailableWidth();
+            Table table = new Table(UnitValue.createPercentArray(PdfTemplateCache.METRIC_COLUMNS)).useAllAvailableWidth();
 
             addMetric(table, "💓 Heart Rate",
                     data.getHeartRateStats() != null
@@ -124,13 +155,23 @@ public class PDFExportService {
             if (data.getAppointments() != null && !data.getAppointments().isEmpty()) {
                 document.add(new Paragraph("Upcoming Appointments:")
                         .setBold()
-                        .setFontSize(13)
-                        .setMarginBottom(5));
+                        .addStyle(PdfTemplateCache.SECTION));
 
                 for (var app : data.getAppointments()) {
                     document.add(new Paragraph("• " + app.getDate() + " — " + app.getType())
-                            .setFontSize(10)
-                            .setMarginLeft(15));
+                            .addStyle(PdfTemplateCache.LIST_ITEM));
+                }
+            }
+
+            // === RECOMMENDATIONS ===
+            if (data.getRecommendations() != null && !data.getRecommendations().isEmpty()) {
+                document.add(new Paragraph("Clinical Recommendations:")
+                        .setBold()
+                        .addStyle(PdfTemplateCache.SECTION));
+
+                for (String recommendation : data.getRecommendations()) {
+                    document.add(new Paragraph("• " + recommendation)
+                            .addStyle(PdfTemplateCache.LIST_ITEM));
                 }
             }
 
@@ -138,8 +179,8 @@ public class PDFExportService {
             // Footer intentionally left blank per requirements
 
             document.close();
+            out.flush();
             logger.info("{} generated for patient {}", title, data.getPatientId());
-            return out.toByteArray();
 
         } catch (Exception e) {
             throw new RuntimeException("Error generating " + title + ": " + e.getMessage(), e);
@@ -147,12 +188,7 @@ public class PDFExportService {
     }
 
     private void addMetric(Table table, String label, String value) {
-        Cell cell1 = new Cell().add(new Paragraph(label).setBold());
-        Cell cell2 = new Cell().add(new Paragraph(value));
-        cell1.setBackgroundColor(ColorConstants.LIGHT_GRAY);
-        cell1.setTextAlignment(TextAlignment.LEFT);
-        cell2.setTextAlignment(TextAlignment.CENTER);
-        table.addCell(cell1);
-        table.addCell(cell2);
+        table.addCell(new Cell().add(new Paragraph(label).setBold()).addStyle(PdfTemplateCache.LABEL_CELL));
+        table.addCell(new Cell().add(new Paragraph(value)).addStyle(PdfTemplateCache.VALUE_CELL));
     }
 }
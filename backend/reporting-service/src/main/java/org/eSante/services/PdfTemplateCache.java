@@ -0,0 +1,90 @@
+package org.eSante.services;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.properties.TextAlignment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Everything a report PDF needs that does not depend on the patient: the parsed
+ * body font program, paragraph/cell styles and the per-type header texts.
+ * <p>
+ * iText binds a {@link PdfFont} to one document, so only the {@link FontProgram}
+ * (the parsed font metrics) is shared; {@link #newDocumentFont} wraps it into a cheap
+ * per-document font. Bold and italic text keep iText's simulated styling of that font,
+ * as before the cache. Styles are built once and only read afterwards, which makes
+ * the cache safe to share between concurrent renders.
+ */
+class PdfTemplateCache {
+
+    static final Style TITLE = new Style().setFontSize(20).setTextAlignment(TextAlignment.CENTER).setMarginBottom(5);
+    static final Style SUBTITLE = new Style().setFontSize(12).setTextAlignment(TextAlignment.CENTER).setMarginBottom(10);
+    static final Style PATIENT = new Style().setFontSize(14).setTextAlignment(TextAlignment.CENTER);
+    static final Style PERIOD = new Style().setFontSize(10).setTextAlignment(TextAlignment.CENTER).setMarginBottom(20);
+    static final Style SECTION = new Style().setFontSize(13).setMarginBottom(5);
+    static final Style LIST_ITEM = new Style().setFontSize(10).setMarginLeft(15);
+    static final Style LABEL_CELL = new Style().setBackgroundColor(ColorConstants.LIGHT_GRAY).setTextAlignment(TextAlignment.LEFT);
+    static final Style VALUE_CELL = new Style().setTextAlignment(TextAlignment.CENTER);
+
+    static final float[] METRIC_COLUMNS = {200F, 200F};
+
+    private static final Map<String, String[]> HEADERS = Map.of(
+            "WEEKLY", new String[]{"WEEKLY HEALTH REPORT", "Weekly summary of patient metrics"},
+            "MONTHLY", new String[]{"MONTHLY CLINICAL REPORT", "Comprehensive 30-day clinical summary"},
+            "POST_EVENT", new String[]{"POST-EVENT ANALYSIS REPORT", "Detailed 72-hour analysis around alert"},
+            "CUSTOM", new String[]{"ON-DEMAND HEALTH REPORT", "Summary for selected time window"}
+    );
+
+    private final FontProgram regular;
+    private final ConcurrentMap<String, ReportTemplate> templates = new ConcurrentHashMap<>();
+
+    PdfTemplateCache() {
+        this(helvetica(true));
+    }
+
+    PdfTemplateCache(FontProgram regular) {
+        this.regular = regular;
+    }
+
+    /**
+     * @param cached false parses the font metrics again instead of taking them from
+     *               iText's process-wide font cache
+     */
+    static FontProgram helvetica(boolean cached) {
+        try {
+            return FontProgramFactory.createFont(StandardFonts.HELVETICA, cached);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load report font", e);
+        }
+    }
+
+    ReportTemplate template(String reportType) {
+        return templates.computeIfAbsent(reportType, type -> {
+            String[] header = HEADERS.get(type);
+            if (header == null) {
+                throw new IllegalArgumentException("Unknown report type: " + type);
+            }
+            return new ReportTemplate(type, header[0], header[1]);
+        });
+    }
+
+    /**
+     * Font for one new document; must not be reused in another document.
+     */
+    PdfFont newDocumentFont() {
+        return PdfFontFactory.createFont(regular, PdfEncodings.WINANSI);
+    }
+
+    record ReportTemplate(String reportType, String title, String subtitle) {}
+}
@@ -0,0 +1,91 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single storage location of report PDFs ({@code reporting.storage.path}).
+ * The database only keeps the path and size; downloads are served from the file.
+ */
+@Component
+public class ReportFileStore {
+
+    private static final DateTimeFormatter REPORT_FILENAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Value("${reporting.storage.path:./reports}")
+    private String storagePath;
+
+    /**
+     * Writes the PDF and records its location and size on the report.
+     */
+    public Path store(byte[] pdfBytes, Report report, String type) throws IOException {
+        return store(report, type, out -> out.write(pdfBytes));
+    }
+
+    /**
+     * Lets {@code content} write the PDF straight into the report file, so the document
+     * never has to be held in memory. The file is written under a temporary name then
+     * moved, so a download never sees a partial PDF. File names end with a random
+     * suffix, so reports of one patient and type stored within the same second never
+     * share a file; should a name still be taken, the move fails instead of replacing it.
+     */
+    public Path store(Report report, String type, ContentWriter content) throws IOException {
+        String basePath = (storagePath == null || storagePath.isBlank()) ? "./reports" : storagePath;
+        Path destinationDir = Paths.get(basePath).toAbsolutePath().normalize();
+        Files.createDirectories(destinationDir);
+
+        LocalDateTime timestamp = report.getReportDate() != null ? report.getReportDate() : LocalDateTime.now();
+        String sanitizedType = type == null ? "report" : type.toLowerCase().replaceAll("[^a-z0-9]+", "-");
+        String filename = String.format(
+                "report_patient-%d_%s_%s_%s.pdf",
+                report.getPatientId(),
+                sanitizedType,
+                REPORT_FILENAME_FORMATTER.format(timestamp),
+                UUID.randomUUID().toString().substring(0, 8)
+        );
+
+        Path targetFile = destinationDir.resolve(filename);
+        Path tempFile = Files.createTempFile(destinationDir, filename, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                content.writeTo(out);
+            }
+            report.setFileSize(Files.size(tempFile));
+            // A rename within the directory; throws FileAlreadyExistsException rather than replace
+            Files.move(tempFile, targetFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        report.setFilePath(targetFile.toString());
+        return targetFile;
+    }
+
+    /**
+     * The stored PDF of the report, if it exists and is readable.
+     */
+    public Optional<Path> find(Report report) {
+        if (report.getFilePath() == null || report.getFilePath().isBlank()) {
+            return Optional.empty();
+        }
+        Path file = Paths.get(report.getFilePath());
+        return Files.isRegularFile(file) && Files.isReadable(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -6,27 +6,21 @@ import org.eSante.repositories.ReportRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.Base64;
-import java.io.IOException;
 
 @Service
 public class ReportGeneratorService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportGeneratorService.class);
-    private static final DateTimeFormatter REPORT_FILENAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     @Autowired
     private ReportRepository reportRepository;
@@ -37,34 +31,53 @@ public class ReportGeneratorService {
     @Autowired
     private PDFExportService pdfExportService;
 
-    @Value("${reporting.storage.path:./reports}")
-    private String storagePath;
+    @Autowired
+    private ReportingThrottle reportingThrottle;
 
-    @Transactional
-    public Report generateWeeklyReport(Long patientId) {
-        logger.info("Generating weekly report for patient {}", patientId);
+    @Autowired
+    private ReportFileStore reportFileStore;
 
+    public Report generateWeeklyReport(Long patientId) {
         Instant stop = Instant.now();
-        Instant start = stop.minus(7, ChronoUnit.DAYS);
+        return generateWeeklyReport(patientId, stop.minus(7, ChronoUnit.DAYS), stop);
+    }
 
-        Report report = new Report(patientId, "WEEKLY");
-        report.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
-        report.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+    /**
+     * Weekly report over an explicit period, used by batch jobs so a resumed run
+     * targets the same window as the original one.
+     */
+    public Report generateWeeklyReport(Long patientId, Instant start, Instant stop) {
+        return completeWeeklyReport(newReport(patientId, "WEEKLY", start, stop));
+    }
+
+    /**
+     * Persists a report in GENERATING status so its id can be handed out before the
+     * content exists (see {@link AsyncReportService}).
+     */
+    public Report createPendingReport(Long patientId, String reportType, Instant start, Instant stop) {
+        return reportRepository.save(newReport(patientId, reportType, start, stop));
+    }
+
+    /**
+     * Aggregates, renders and stores the given weekly report. No transaction is held
+     * while the data is aggregated and the PDF rendered; only the final save hits the DB.
+     */
+    public Report completeWeeklyReport(Report report) {
+        Long patientId = report.getPatientId();
+        Instant start = report.getPeriodStart().atZone(ZoneId.systemDefault()).toInstant();
+        Instant stop = report.getPeriodEnd().atZone(ZoneId.systemDefault()).toInstant();
+        logger.info("Generating weekly report for patient {}", patientId);
 
         try {
             // Step 1: Aggregate data
             ReportData data = dataAggregationService.aggregateWeeklyData(patientId, start, stop);
 
-            // Step 2: Generate PDF content (in memory)
-            byte[] pdfBytes = pdfExportService.generateWeeklyPDF(data);
-
-            // Step 3: Encode to Base64
-            report.setExportFormat("PDF_BASE64");
-            report.setContent(Base64.getEncoder().encodeToString(pdfBytes));
-            report.setFilePath(storeReportFile(pdfBytes, report, "weekly"));
+            // Step 2: Render the PDF straight into the report file
+            report.setExportFormat("PDF");
+            reportingThrottle.withPdfPermit(() -> storePdf(report, "weekly", data));
             report.setStatus("READY");
 
-            // Step 4: Add readable summary (for API responses only)
+            // Step 3: Add readable summary (for API responses only)
             report.setSummary(buildWeeklyTextContent(data));
 
             logger.info(" Weekly report successfully generated for patient {}", patientId);
@@ -72,31 +85,33 @@ public class ReportGeneratorService {
             logger.error(" Error generating weekly report for patient {}", patientId, e);
             report.setStatus("ERROR");
             report.setSummary("Error: " + e.getMessage());
-            report.setContent(null);
             report.setFilePath(null);
+            report.setFileSize(null);
         }
 
         return reportRepository.save(report);
     }
 
-    @Transactional
     public Report generateMonthlyReport(Long patientId) {
-        logger.info("Generating monthly report for patient {}", patientId);
-
         Instant stop = Instant.now();
-        Instant start = stop.minus(30, ChronoUnit.DAYS);
+        return generateMonthlyReport(patientId, stop.minus(30, ChronoUnit.DAYS), stop);
+    }
 
-        Report report = new Report(patientId, "MONTHLY");
-        report.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
-        report.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+    public Report generateMonthlyReport(Long patientId, Instant start, Instant stop) {
+        return completeMonthlyReport(newReport(patientId, "MONTHLY", start, stop));
+    }
+
+    public Report completeMonthlyReport(Report report) {
+        Long patientId = report.getPatientId();
+        Instant start = report.getPeriodStart().atZone(ZoneId.systemDefault()).toInstant();
+        Instant stop = report.getPeriodEnd().atZone(ZoneId.systemDefault()).toInstant();
+        logger.info("Generating monthly report for patient {}", patientId);
 
         try {
             ReportData data = dataAggregationService.aggregateMonthlyData(patientId, start, stop);
-            byte[] pdfBytes = pdfExportService.generateMonthlyPDF(data);
 
-            report.setExportFormat("PDF_BASE64");
-            report.setContent(Base64.getEncoder().encodeToString(pdfBytes));
-            report.setFilePath(storeReportFile(pdfBytes, report, "monthly"));
+            report.setExportFormat("PDF");
+            reportingThrottle.withPdfPermit(() -> storePdf(report, "monthly", data));
             report.setStatus("READY");
             report.setSummary(buildMonthlyTextContent(data));
 
@@ -105,49 +120,51 @@ public class ReportGeneratorService {
             logger.error(" Error generating monthly report for patient {}", patientId, e);
             report.setStatus("ERROR");
             report.setSummary("Error: " + e.getMessage());
-            report.setContent(null);
             report.setFilePath(null);
+            report.setFileSize(null);
         }
 
         return reportRepository.save(report);
     }
 
-    @Transactional
     public Report generateCustomReport(Long patientId, long minutes) {
-        logger.info("Generating custom report for patient {} over last {} minutes", patientId, minutes);
-
         Instant stop = Instant.now();
-        Instant start = stop.minus(minutes, ChronoUnit.MINUTES);
+        return completeCustomReport(newReport(patientId, "CUSTOM", stop.minus(minutes, ChronoUnit.MINUTES), stop));
+    }
 
-        Report report = new Report(patientId, "CUSTOM");
-        report.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
-        report.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+    public Report completeCustomReport(Report report) {
+        Long patientId = report.getPatientId();
+        Instant start = report.getPeriodStart().atZone(ZoneId.systemDefault()).toInstant();
+        Instant stop = report.getPeriodEnd().atZone(ZoneId.systemDefault()).toInstant();
+        long minutes = Duration.between(start, stop).toMinutes();
+        logger.info("Generating custom report for patient {} over last {} minutes", patientId, minutes);
 
         try {
             ReportData data = dataAggregationService.aggregateRangeData(patientId, start, stop);
-            byte[] pdfBytes = pdfExportService.generateCustomPDF(data);
 
-            report.setExportFormat("PDF_BASE64");
-            report.setContent(Base64.getEncoder().encodeToString(pdfBytes));
-            report.setFilePath(storeReportFile(pdfBytes, report, "custom"));
+            report.setExportFormat("PDF");
+            reportingThrottle.withPdfPermit(() -> storePdf(report, "custom", data));
             report.setStatus("READY");
             report.setSummary("Custom report for last " + minutes + " minutes generated successfully");
         } catch (Exception e) {
             logger.error(" Error generating custom report for patient {}", patientId, e);
             report.setStatus("ERROR");
             report.setSummary("Error: " + e.getMessage());
-            report.setContent(null);
             report.setFilePath(null);
+            report.setFileSize(null);
         }
 
         return reportRepository.save(report);
     }
 
-    @Transactional
     public Report generatePostEventReport(Long patientId, Long alertId) {
+        return completePostEventReport(new Report(patientId, "POST_EVENT"), alertId);
+    }
+
+    public Report completePostEventReport(Report report, Long alertId) {
+        Long patientId = report.getPatientId();
         logger.info("Generating post-event report for patient {} (alert {})", patientId, alertId);
 
-        Report report = new Report(patientId, "POST_EVENT");
         try {
             Instant alertTime = dataAggregationService.getAlertTimestamp(alertId);
             if (alertTime == null) {
@@ -160,11 +177,9 @@ public class ReportGeneratorService {
             report.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
 
             ReportData data = dataAggregationService.aggregatePostEventData(patientId, start, stop);
-            byte[] pdfBytes = pdfExportService.generatePostEventPDF(data);
 
-            report.setExportFormat("PDF_BASE64");
-            report.setContent(Base64.getEncoder().encodeToString(pdfBytes));
-            report.setFilePath(storeReportFile(pdfBytes, report, "post-event"));
+            report.setExportFormat("PDF");
+            reportingThrottle.withPdfPermit(() -> storePdf(report, "post-event", data));
             report.setStatus("READY");
             report.setSummary(buildPostEventTextContent(data, alertId));
 
@@ -173,30 +188,27 @@ public class ReportGeneratorService {
             logger.error(" Error generating post-event report for alert {}", alertId, e);
             report.setStatus("ERROR");
             report.setSummary("Error: " + e.getMessage());
-            report.setContent(null);
             report.setFilePath(null);
+            report.setFileSize(null);
         }
 
         return reportRepository.save(report);
     }
 
-    private String storeReportFile(byte[] pdfBytes, Report report, String type) throws IOException {
-        String basePath = (storagePath == null || storagePath.isBlank()) ? "./reports" : storagePath;
-        Path destinationDir = Paths.get(basePath).toAbsolutePath().normalize();
-        Files.createDirectories(destinationDir);
-
-        LocalDateTime timestamp = report.getReportDate() != null ? report.getReportDate() : LocalDateTime.now();
-        String sanitizedType = type == null ? "report" : type.toLowerCase().replaceAll("[^a-z0-9]+", "-");
-        String filename = String.format(
-                "report_patient-%d_%s_%s.pdf",
-                report.getPatientId(),
-                sanitizedType,
-                REPORT_FILENAME_FORMATTER.format(timestamp)
-        );
-
-        Path targetFile = destinationDir.resolve(filename);
-        Files.write(targetFile, pdfBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-        return targetFile.toString();
+    private Path storePdf(Report report, String type, ReportData data) {
+        try {
+            return reportFileStore.store(report, type,
+                    out -> pdfExportService.writePDF(data, report.getReportType(), out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Report newReport(Long patientId, String reportType, Instant start, Instant stop) {
+        Report report = new Report(patientId, reportType);
+        report.setPeriodStart(LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
+        report.setPeriodEnd(LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+        return report;
     }
 
     // ============================================================
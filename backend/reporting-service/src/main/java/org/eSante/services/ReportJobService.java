@@ -0,0 +1,275 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.eSante.domain.models.ReportJob;
+import org.eSante.domain.models.ReportJobItem;
+import org.eSante.domain.models.dto.ReportJobProgress;
+import org.eSante.repositories.ReportJobItemRepository;
+import org.eSante.repositories.ReportJobRepository;
+import org.eSante.repositories.ReportRepository;
+import org.eSante.scheduler.BatchRunStats;
+import org.eSante.scheduler.ReportBatchExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persisted, resumable batch report generation.
+ * <p>
+ * A {@link ReportJob} fixes the period of the run and holds one {@link ReportJobItem}
+ * per patient. Each item is checkpointed as soon as its report is stored, so after a
+ * restart only the PENDING/ERROR items are processed again. Patients that already
+ * have a READY report of the same type and period are skipped, which also covers a
+ * crash between saving the report and checkpointing the item. A job that completes
+ * with ERROR items is run again by the next resume, up to
+ * {@code reporting.jobs.max-attempts} runs in all; its ERROR items are final after that.
+ * <p>
+ * A job and its items are created in one transaction, and an interrupted job is only
+ * resumed after claiming it ({@link ReportJobRepository#claim}), so the startup resume
+ * and a scheduled run never process the same job at once. The owner refreshes its
+ * claim before each patient; another instance only takes the job over once that
+ * heartbeat is older than {@code reporting.jobs.claim-lease-minutes}.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    private static final List<String> RETRYABLE = List.of("PENDING", "ERROR");
+
+    /** Jobs {@link #resume} may run again: interrupted ones and those with failed items */
+    private static final List<String> RESUMABLE = List.of("RUNNING", "COMPLETED_WITH_ERRORS");
+
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    @Autowired
+    private ReportJobItemRepository reportJobItemRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportGeneratorService reportGeneratorService;
+
+    @Autowired
+    private ReportBatchExecutor reportBatchExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${reporting.scheduler.enabled:true}")
+    private boolean schedulerEnabled;
+
+    @Value("${reporting.jobs.claim-lease-minutes:30}")
+    private long claimLeaseMinutes = 30;
+
+    @Value("${reporting.jobs.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    /** Owner of the jobs this instance runs; jobs claimed by a previous instance can be taken over */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Creates a job over [start, stop) with one pending item per patient, claimed by
+     * this instance. Nothing is stored if any insert fails.
+     */
+    @Transactional
+    public ReportJob createJob(String jobType, Instant start, Instant stop) {
+        ReportJob newJob = new ReportJob(jobType,
+                LocalDateTime.ofInstant(start, ZoneId.systemDefault()),
+                LocalDateTime.ofInstant(stop, ZoneId.systemDefault()));
+        newJob.setClaimedBy(instanceId);
+        newJob.setClaimedAt(LocalDateTime.now());
+        ReportJob job = reportJobRepository.save(newJob);
+
+        List<Long> patientIds = jdbcTemplate.queryForList("SELECT id FROM patients", Long.class);
+        reportJobItemRepository.saveAll(patientIds.stream()
+                .map(patientId -> new ReportJobItem(job.getId(), patientId))
+                .toList());
+
+        job.setTotalItems(patientIds.size());
+        logger.info("Created {} report job {} for {} patients ({} → {})",
+                jobType, job.getId(), patientIds.size(), job.getPeriodStart(), job.getPeriodEnd());
+        return reportJobRepository.save(job);
+    }
+
+    /**
+     * Processes every item of the job that is not DONE/SKIPPED yet, then closes the job.
+     * If another instance takes the job over meanwhile, the remaining items and the job
+     * are left to it.
+     */
+    public BatchRunStats runJob(ReportJob job) {
+        Map<Long, ReportJobItem> items = reportJobItemRepository.findByJobIdAndStatusIn(job.getId(), RETRYABLE)
+                .stream()
+                .collect(Collectors.toMap(ReportJobItem::getPatientId, Function.identity()));
+
+        String label = String.format("%s report job %d", capitalize(job.getJobType()), job.getId());
+        AtomicBoolean claimLost = new AtomicBoolean();
+        BatchRunStats stats = reportBatchExecutor.run(label, List.copyOf(items.keySet()), patientId -> {
+            if (claimLost.get() || reportJobRepository.heartbeat(job.getId(), instanceId, LocalDateTime.now()) == 0) {
+                claimLost.set(true);
+                return;
+            }
+            processItem(job, items.get(patientId));
+        });
+        if (claimLost.get()) {
+            logger.warn("{} was taken over by another instance, leaving it the remaining patients", label);
+            return stats;
+        }
+
+        job.setStatus(stats.failed() == 0 ? "COMPLETED" : "COMPLETED_WITH_ERRORS");
+        job.setFinishedAt(LocalDateTime.now());
+        reportJobRepository.save(job);
+        return stats;
+    }
+
+    /**
+     * Finishes interrupted jobs of the given type (oldest first) and retries the failed
+     * items of completed ones before a new run starts. Jobs this instance already runs,
+     * or another instance still holds, are left to them.
+     */
+    public void resumeInterrupted(String jobType) {
+        for (ReportJob job : resumable(reportJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(jobType, RESUMABLE))) {
+            resume(job, "RUNNING".equals(job.getStatus())
+                    ? "Resuming interrupted {} report job {}" : "Retrying failed items of {} report job {}");
+        }
+    }
+
+    /**
+     * Jobs left RUNNING by a previous instance, or completed with errors, are resumed in
+     * the background once the application is up, so startup is not delayed by report
+     * generation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedOnStartup() {
+        if (!schedulerEnabled) {
+            return;
+        }
+        List<ReportJob> interrupted = resumable(reportJobRepository.findByStatusInOrderByCreatedAtAsc(RESUMABLE));
+        if (interrupted.isEmpty()) {
+            return;
+        }
+        Thread resumer = new Thread(() -> interrupted.forEach(job ->
+                resume(job, "Resuming {} report job {} after restart")), "report-job-resume");
+        resumer.setDaemon(true);
+        resumer.start();
+    }
+
+    /**
+     * Runs {@code job} if this call claims it. A failed run releases the claim so the
+     * next scheduled run can retry the job.
+     */
+    void resume(ReportJob job, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        if (reportJobRepository.claim(job.getId(), instanceId, now, now.minusMinutes(claimLeaseMinutes), maxAttempts) == 0) {
+            logger.debug("{} report job {} is already being run", job.getJobType(), job.getId());
+            return;
+        }
+        job.setStatus("RUNNING");
+        job.setAttempts(attempts(job) + 1);
+        job.setClaimedBy(instanceId);
+        job.setClaimedAt(now);
+        job.setFinishedAt(null);
+        logger.info(message, job.getJobType(), job.getId());
+        try {
+            runJob(job);
+        } catch (RuntimeException e) {
+            reportJobRepository.release(job.getId(), instanceId);
+            throw e;
+        }
+    }
+
+    /** Jobs still to be run: failed ones only while they have attempts left */
+    private List<ReportJob> resumable(List<ReportJob> jobs) {
+        return jobs.stream()
+                .filter(job -> "RUNNING".equals(job.getStatus()) || attempts(job) < maxAttempts)
+                .toList();
+    }
+
+    private static int attempts(ReportJob job) {
+        return job.getAttempts() != null ? job.getAttempts() : 1;
+    }
+
+    public Optional<ReportJob> findJob(Long jobId) {
+        return reportJobRepository.findById(jobId);
+    }
+
+    /** Throughput and outcome of the last batch run by this instance */
+    public Optional<BatchRunStats> lastRun() {
+        return Optional.ofNullable(reportBatchExecutor.getLastRun());
+    }
+
+    public List<ReportJob> recentJobs() {
+        return reportJobRepository.findTop20ByOrderByCreatedAtDesc();
+    }
+
+    public ReportJobProgress progress(ReportJob job) {
+        Map<String, Long> counts = reportJobItemRepository.countByStatus(job.getId()).stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue()));
+        return new ReportJobProgress(job,
+                counts.getOrDefault("PENDING", 0L),
+                counts.getOrDefault("DONE", 0L),
+                counts.getOrDefault("SKIPPED", 0L),
+                counts.getOrDefault("ERROR", 0L));
+    }
+
+    private void processItem(ReportJob job, ReportJobItem item) {
+        Long patientId = item.getPatientId();
+        if (reportRepository.existsByPatientIdAndReportTypeAndPeriodStartAndPeriodEndAndStatus(
+                patientId, job.getJobType(), job.getPeriodStart(), job.getPeriodEnd(), "READY")) {
+            checkpoint(item, "SKIPPED", null, null);
+            logger.debug("Patient {} already has a READY {} report for job {}, skipped",
+                    patientId, job.getJobType(), job.getId());
+            return;
+        }
+
+        Instant start = job.getPeriodStart().atZone(ZoneId.systemDefault()).toInstant();
+        Instant stop = job.getPeriodEnd().atZone(ZoneId.systemDefault()).toInstant();
+        Report report;
+        try {
+            report = "MONTHLY".equals(job.getJobType())
+                    ? reportGeneratorService.generateMonthlyReport(patientId, start, stop)
+                    : reportGeneratorService.generateWeeklyReport(patientId, start, stop);
+        } catch (RuntimeException e) {
+            checkpoint(item, "ERROR", null, e.getMessage());
+            throw e;
+        }
+
+        if (!"READY".equals(report.getStatus())) {
+            checkpoint(item, "ERROR", report.getId(), "Report " + report.getId() + " ended in status " + report.getStatus());
+            throw new IllegalStateException("Report generation failed for patient " + patientId);
+        }
+        checkpoint(item, "DONE", report.getId(), null);
+        logger.info("✓ {} report successfully generated for patient {}", capitalize(job.getJobType()), patientId);
+    }
+
+    private void checkpoint(ReportJobItem item, String status, Long reportId, String errorMessage) {
+        item.setStatus(status);
+        item.setReportId(reportId);
+        item.setErrorMessage(errorMessage);
+        item.setUpdatedAt(LocalDateTime.now());
+        reportJobItemRepository.save(item);
+    }
+
+    private static String capitalize(String jobType) {
+        return jobType.charAt(0) + jobType.substring(1).toLowerCase();
+    }
+}
@@ -0,0 +1,58 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pushes the outcome of an asynchronous report to the notification-service, which
+ * relays it to the dashboard over WebSocket. Disabled when
+ * {@code reporting.notification.url} is empty; failures are logged and never affect
+ * the report itself.
+ */
+@Component
+public class ReportNotificationClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportNotificationClient.class);
+
+    private final RestClient restClient;
+
+    public ReportNotificationClient(@Value("${reporting.notification.url:}") String notificationUrl) {
+        this.restClient = notificationUrl == null || notificationUrl.isBlank()
+                ? null
+                : RestClient.builder().baseUrl(notificationUrl).build();
+    }
+
+    public void reportFinished(Report report) {
+        if (restClient == null) {
+            return;
+        }
+
+        boolean ready = "READY".equals(report.getStatus());
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("type", ready ? "SUCCESS" : "ERROR");
+        notification.put("title", ready ? "Rapport disponible" : "Échec du rapport");
+        notification.put("message", String.format("Rapport %s #%d du patient %d : %s",
+                report.getReportType(), report.getId(), report.getPatientId(), report.getStatus()));
+        notification.put("timestamp", LocalDateTime.now().toString());
+
+        try {
+            restClient.post()
+                    .uri("/api/notifications/realtime/send")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(notification)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            logger.warn("Could not notify completion of report {}: {}", report.getId(), e.getMessage());
+        }
+    }
+}
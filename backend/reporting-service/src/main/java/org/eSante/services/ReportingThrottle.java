@@ -0,0 +1,47 @@
+package org.eSante.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many report generations may hit InfluxDB or render a PDF at the same
+ * time, independently of how many batch workers are running. Lets the scheduler
+ * use many (possibly virtual) threads without flooding InfluxDB or the CPU.
+ */
+@Component
+public class ReportingThrottle {
+
+    private final Semaphore influxPermits;
+    private final Semaphore pdfPermits;
+
+    public ReportingThrottle(@Value("${reporting.batch.influx-concurrency:4}") int influxConcurrency,
+                             @Value("${reporting.batch.pdf-concurrency:2}") int pdfConcurrency) {
+        this.influxPermits = new Semaphore(Math.max(1, influxConcurrency), true);
+        this.pdfPermits = new Semaphore(Math.max(1, pdfConcurrency), true);
+    }
+
+    public <T> T withInfluxPermit(Supplier<T> work) {
+        return withPermit(influxPermits, work);
+    }
+
+    public <T> T withPdfPermit(Supplier<T> work) {
+        return withPermit(pdfPermits, work);
+    }
+
+    private static <T> T withPermit(Semaphore semaphore, Supplier<T> work) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a reporting permit", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.eSante.api;
+
+import org.eSante.domain.models.dto.AdherenceSummary;
+import org.eSante.domain.models.dto.DashboardPoint;
+import org.eSante.domain.models.dto.DashboardSummary;
+import org.eSante.influx.DeltaSeries;
+import org.eSante.services.AdherenceService;
+import org.eSante.services.DashboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DashboardController.class)
+class DashboardControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DashboardService dashboardService;
+
+    @MockBean
+    private AdherenceService adherenceService;
+
+    @BeforeEach
+    void setup() {
+        DashboardSummary summary = new DashboardSummary();
+        summary.setPatientId(1L);
+        summary.setSeriesHeartRate(List.of(
+                new DashboardPoint("2025-11-08T10:01:00Z", 72.0),
+                new DashboardPoint("2025-11-08T10:02:00Z", 74.5),
+                new DashboardPoint("2025-11-08T10:04:00Z", 71.0)));
+        when(dashboardService.getSummary(eq(1L), anyLong())).thenReturn(summary);
+    }
+
+    @Test
+    void summaryDefaultsToPointObjects() throws Exception {
+        mockMvc.perform(get("/api/dashboard/patient/1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.seriesHeartRate[1].time").value("2025-11-08T10:02:00Z"));
+    }
+
+    @Test
+    void summaryServesDeltaColumnsWhenAccepted() throws Exception {
+        mockMvc.perform(get("/api/dashboard/patient/1/summary")
+                        .header(HttpHeaders.ACCEPT, DeltaSeries.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(DeltaSeries.MEDIA_TYPE))
+                .andExpect(jsonPath("$.seriesHeartRate.t[0]").value(1762596060000L))
+                .andExpect(jsonPath("$.seriesHeartRate.t[1]").value(60000))
+                .andExpect(jsonPath("$.seriesHeartRate.t[2]").value(120000))
+                .andExpect(jsonPath("$.seriesHeartRate.every").value("1m"))
+                .andExpect(jsonPath("$.seriesHeartRate.v[1]").value(74.5))
+                .andExpect(jsonPath("$.patientId").value(1));
+    }
+
+    @Test
+    void adherenceListsReadingsPerDay() throws Exception {
+        AdherenceSummary adherence = new AdherenceSummary();
+        adherence.setPatientId(1L);
+        adherence.setAdherenceBySensor(Map.of("tension", 50));
+        adherence.setDays(List.of(new AdherenceSummary.Day(LocalDate.of(2025, 11, 8), Map.of("tension", 1))));
+        when(adherenceService.getSummary(eq(1L), any(), any())).thenReturn(adherence);
+
+        mockMvc.perform(get("/api/dashboard/patient/1/adherence").param("days", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.adherenceBySensor.tension").value(50))
+                .andExpect(jsonPath("$.days[0].date").value("2025-11-08"))
+                .andExpect(jsonPath("$.days[0].readings.tension").value(1));
+        mockMvc.perform(get("/api/dashboard/patient/1/adherence").param("days", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
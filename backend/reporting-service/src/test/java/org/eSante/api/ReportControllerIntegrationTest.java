@@ -11,16 +11,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Base64;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -44,6 +51,125 @@ class ReportControllerIntegrationTest {
         reportRepository.deleteAll();
     }
 
+    @Test
+    void exportReport_streamsPdfFromFileStore() throws Exception {
+        byte[] pdf = weeklyPdf();
+        Report saved = saveFileBackedReport(pdf);
+
+        byte[] responseBytes = mockMvc.perform(get("/api/reports/{id}/export", saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertThat(responseBytes).isEqualTo(pdf);
+    }
+
+    @Test
+    void exportReport_honoursRangeAndIfNoneMatch() throws Exception {
+        byte[] pdf = weeklyPdf();
+        Report saved = saveFileBackedReport(pdf);
+
+        byte[] firstKb = mockMvc.perform(get("/api/reports/{id}/export", saved.getId())
+                        .header(HttpHeaders.RANGE, "bytes=0-1023"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-1023/" + pdf.length))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        assertThat(firstKb).isEqualTo(Arrays.copyOf(pdf, 1024));
+
+        String etag = mockMvc.perform(get("/api/reports/{id}/export", saved.getId()))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/reports/{id}/export", saved.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getPatientReports_pagesWithKeysetCursor() throws Exception {
+        for (int day = 1; day <= 5; day++) {
+            Report report = new Report(3L, "WEEKLY");
+            report.setReportDate(LocalDateTime.of(2025, 11, day, 20, 0));
+            report.setStatus("READY");
+            reportRepository.save(report);
+        }
+
+        MockHttpServletResponse first = mockMvc.perform(get("/api/reports/patient/{id}", 3L).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].reportDate").value("2025-11-05T20:00:00"))
+                .andExpect(jsonPath("$[0].content").doesNotExist())
+                .andReturn()
+                .getResponse();
+        String cursor = first.getHeader("X-Next-Cursor");
+        assertThat(cursor).isNotBlank();
+
+        MockHttpServletResponse second = mockMvc.perform(get("/api/reports/patient/{id}", 3L)
+                        .param("limit", "2").param("cursor", cursor))
+                .andExpect(jsonPath("$[0].reportDate").value("2025-11-03T20:00:00"))
+                .andReturn()
+                .getResponse();
+
+        mockMvc.perform(get("/api/reports/patient/{id}", 3L)
+                        .param("limit", "2").param("cursor", second.getHeader("X-Next-Cursor")))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].reportDate").value("2025-11-01T20:00:00"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void getPatientReports_pagesThroughUndatedReportsLast() throws Exception {
+        Report dated = new Report(4L, "WEEKLY");
+        dated.setReportDate(LocalDateTime.of(2025, 11, 1, 20, 0));
+        reportRepository.save(dated);
+        for (int i = 0; i < 2; i++) {
+            Report undated = new Report(4L, "WEEKLY");
+            undated.setReportDate(null);
+            reportRepository.save(undated);
+        }
+
+        MockHttpServletResponse first = mockMvc.perform(get("/api/reports/patient/{id}", 4L).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reportDate").value("2025-11-01T20:00:00"))
+                .andExpect(jsonPath("$[1].reportDate").doesNotExist())
+                .andReturn()
+                .getResponse();
+
+        mockMvc.perform(get("/api/reports/patient/{id}", 4L)
+                        .param("limit", "2").param("cursor", first.getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].reportDate").doesNotExist())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    private byte[] weeklyPdf() {
+        ReportData reportData = new ReportData();
+        reportData.setPatientId(2L);
+        reportData.setPatientName("Bob Durand");
+        reportData.setPeriodStart(LocalDateTime.of(2025, 11, 1, 10, 0));
+        reportData.setPeriodEnd(LocalDateTime.of(2025, 11, 8, 10, 0));
+        return pdfExportService.generateWeeklyPDF(reportData);
+    }
+
+    private Report saveFileBackedReport(byte[] pdf) throws Exception {
+        Path file = Files.createTempFile("report-export-", ".pdf");
+        Files.write(file, pdf);
+
+        Report report = new Report(2L, "WEEKLY");
+        report.setExportFormat("PDF");
+        report.setStatus("READY");
+        report.setFilePath(file.toString());
+        report.setFileSize((long) pdf.length);
+        return reportRepository.save(report);
+    }
+
     @Test
     void exportReport_returnsStoredPdfContent() throws Exception {
         ReportData reportData = new ReportData();
@@ -0,0 +1,48 @@
+package org.eSante.api;
+
+import org.eSante.scheduler.BatchRunStats;
+import org.eSante.services.ReportJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ReportJobController.class)
+class ReportJobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReportJobService reportJobService;
+
+    @Test
+    void lastRunReportsItsThroughputPerMinute() throws Exception {
+        when(reportJobService.lastRun()).thenReturn(Optional.of(new BatchRunStats(
+                "Weekly report job 3", Instant.parse("2025-11-16T20:00:00Z"), Duration.ofMinutes(2), 120, 118, 2)));
+
+        mockMvc.perform(get("/api/reports/jobs/last-run"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.label").value("Weekly report job 3"))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.reportsPerMinute").value(60.0));
+    }
+
+    @Test
+    void lastRunIsEmptyBeforeTheFirstBatch() throws Exception {
+        when(reportJobService.lastRun()).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/reports/jobs/last-run"))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -0,0 +1,130 @@
+package org.eSante.domain.stats;
+
+import org.eSante.domain.models.dto.VitalSignsStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StatsAccumulatorTest {
+
+    @Test
+    void toStats_matchesExactStatisticsOnLargeStream() {
+        Random random = new Random(42);
+        int n = 200_000;
+        double[] values = new double[n];
+        StatsAccumulator acc = new StatsAccumulator();
+        for (int i = 0; i < n; i++) {
+            values[i] = 96 + random.nextGaussian() * 1.5;
+            acc.add(values[i]);
+        }
+
+        VitalSignsStats stats = acc.toStats("SpO₂", "%");
+
+        double mean = Arrays.stream(values).average().orElseThrow();
+        double variance = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).average().orElseThrow();
+        Arrays.sort(values);
+
+        assertThat(stats.getMeasurementCount()).isEqualTo(n);
+        assertThat(stats.getAverage()).isCloseTo(mean, within(1e-9));
+        assertThat(stats.getStandardDeviation()).isCloseTo(Math.sqrt(variance), within(1e-9));
+        assertThat(stats.getMin()).isEqualTo(values[0]);
+        assertThat(stats.getMax()).isEqualTo(values[n - 1]);
+        assertThat(stats.getMedian()).isCloseTo(values[n / 2], within(0.02));
+        assertThat(stats.getP10()).isCloseTo(values[n / 10], within(0.02));
+        assertThat(stats.getP90()).isCloseTo(values[9 * n / 10], within(0.02));
+    }
+
+    @Test
+    void merge_isEquivalentToSinglePass() {
+        Random random = new Random(7);
+        StatsAccumulator all = StatsAccumulator.withRange(70, 180);
+        StatsAccumulator left = StatsAccumulator.withRange(70, 180);
+        StatsAccumulator right = StatsAccumulator.withRange(70, 180);
+        for (int i = 0; i < 10_000; i++) {
+            double v = 60 + random.nextDouble() * 160;
+            all.add(v);
+            (i % 3 == 0 ? left : right).add(v);
+        }
+
+        left.merge(right);
+        VitalSignsStats merged = left.toStats("Blood Glucose", "mg/dL");
+        VitalSignsStats single = all.toStats("Blood Glucose", "mg/dL");
+
+        assertThat(merged.getMeasurementCount()).isEqualTo(single.getMeasurementCount());
+        assertThat(merged.getAverage()).isCloseTo(single.getAverage(), within(1e-9));
+        assertThat(merged.getStandardDeviation()).isCloseTo(single.getStandardDeviation(), within(1e-9));
+        assertThat(merged.getTimeInRange()).isCloseTo(single.getTimeInRange(), within(1e-9));
+        assertThat(merged.getMedian()).isCloseTo(single.getMedian(), within(1.0));
+    }
+
+    @Test
+    void toStats_splitsGlucoseIntoRangeBands() {
+        StatsAccumulator acc = StatsAccumulator.withRanges(GlycemicRanges.STANDARD);
+        for (double v : new double[]{45, 60, 65, 100, 120, 150, 170, 200, 240, 300}) {
+            acc.add(v);
+        }
+
+        VitalSignsStats stats = acc.toStats("Blood Glucose", "mg/dL");
+
+        assertThat(stats.getTimeVeryLow()).isEqualTo(10.0);
+        assertThat(stats.getTimeBelowRange()).isEqualTo(30.0);
+        assertThat(stats.getTimeInRange()).isEqualTo(40.0);
+        assertThat(stats.getTimeAboveRange()).isEqualTo(30.0);
+        assertThat(stats.getTimeVeryHigh()).isEqualTo(10.0);
+    }
+
+    @Test
+    void toStats_handlesEmptyAndSingleValue() {
+        StatsAccumulator empty = new StatsAccumulator();
+        assertThat(empty.toStats("Weight", "kg").getMeasurementCount()).isZero();
+        assertThat(empty.toStats("Weight", "kg").getAverage()).isZero();
+
+        StatsAccumulator single = new StatsAccumulator();
+        single.add(72.5);
+        VitalSignsStats stats = single.toStats("Weight", "kg");
+        assertThat(stats.getMedian()).isEqualTo(72.5);
+        assertThat(stats.getP10()).isEqualTo(72.5);
+        assertThat(stats.getStandardDeviation()).isZero();
+    }
+
+    @Test
+    void sketchBytesRestoreTheSameQuantiles() {
+        Random random = new Random(11);
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 50_000; i++) {
+            sketch.add(120 + random.nextGaussian() * 25);
+        }
+
+        QuantileSketch restored = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertThat(restored.size()).isEqualTo(sketch.size());
+        assertThat(restored.getMin()).isEqualTo(sketch.getMin());
+        for (double q : new double[]{0.1, 0.5, 0.9}) {
+            assertThat(restored.quantile(q)).isCloseTo(sketch.quantile(q), within(0.5));
+        }
+    }
+
+    @Test
+    void sketchMergeLeavesTheOtherSketchUntouched() {
+        QuantileSketch target = new QuantileSketch();
+        QuantileSketch other = new QuantileSketch();
+        for (int i = 1; i <= 100; i++) {
+            target.add(i);
+            other.add(100 + i);
+        }
+
+        target.merge(other);
+
+        // The values of other are still buffered, not folded into centroids
+        assertThat(ReflectionTestUtils.getField(other, "buffered")).isEqualTo(100);
+        assertThat(other.size()).isEqualTo(100);
+        assertThat(target.size()).isEqualTo(200);
+        assertThat(target.getMax()).isEqualTo(200.0);
+        assertThat(target.quantile(0.5)).isCloseTo(100.5, within(2.0));
+    }
+}
@@ -0,0 +1,97 @@
+package org.eSante.repositories;
+
+import com.influxdb.Cancellable;
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.QueryApi;
+import com.influxdb.client.domain.Query;
+import com.influxdb.query.FluxRecord;
+import org.eSante.domain.stats.GlycemicRanges;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InfluxDBRepositoryTest {
+
+    @Mock
+    private InfluxDBClient influxDBClient;
+
+    @Mock
+    private QueryApi queryApi;
+
+    @InjectMocks
+    private InfluxDBRepository repository;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(repository, "bucket", "mesure_data");
+        ReflectionTestUtils.setField(repository, "org", "eSanteIdb");
+        ReflectionTestUtils.setField(repository, "queryTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(repository, "rollupEnabled", true);
+        ReflectionTestUtils.setField(repository, "glucoseRanges", GlycemicRanges.STANDARD);
+        when(influxDBClient.getQueryApi()).thenReturn(queryApi);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dailyCountsFallBackToRawDataWithoutRollupBucket() throws Exception {
+        Instant stop = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        Instant start = stop.minus(7, ChronoUnit.DAYS);
+        doAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            if (query.getQuery().contains("mesure_data_1d")) {
+                invocation.<Consumer<Throwable>>getArgument(3).accept(new IllegalStateException("bucket \"mesure_data_1d\" not found"));
+            } else {
+                invocation.<BiConsumer<Cancellable, FluxRecord>>getArgument(2)
+                        .accept(mock(Cancellable.class), count(start.plus(1, ChronoUnit.DAYS), 4));
+                invocation.<Runnable>getArgument(4).run();
+            }
+            return null;
+        }).when(queryApi).query(any(Query.class), eq("eSanteIdb"), any(BiConsumer.class), any(Consumer.class), any(Runnable.class));
+
+        Map<Long, Map<LocalDate, Map<String, Long>>> counts =
+                repository.getDailyReadingCounts(List.of(1L), List.of("glycemie/value"), start, stop);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(queryApi, times(2)).query(queries.capture(), eq("eSanteIdb"), any(BiConsumer.class), any(Consumer.class), any(Runnable.class));
+        assertThat(queries.getAllValues().get(1).getQuery()).doesNotContain("mesure_data_1d");
+        assertThat(counts.get(1L).get(LocalDate.ofInstant(start.plus(1, ChronoUnit.DAYS), ZoneOffset.UTC)))
+                .containsEntry("glycemie/value", 4L);
+    }
+
+    private static FluxRecord count(Instant day, long readings) {
+        FluxRecord record = new FluxRecord(0);
+        record.getValues().put("_time", day);
+        record.getValues().put("_measurement", "glycemie");
+        record.getValues().put("_field", "value");
+        record.getValues().put("patient", "1");
+        record.getValues().put("_value", (double) readings);
+        return record;
+    }
+}
@@ -0,0 +1,57 @@
+package org.eSante.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportBatchExecutorTest {
+
+    private final ReportBatchExecutor executor = new ReportBatchExecutor();
+
+    @Test
+    void runsEveryPatientAndCountsFailuresWithoutStopping() {
+        ReflectionTestUtils.setField(executor, "workers", 4);
+        List<Long> patients = LongStream.rangeClosed(1, 20).boxed().toList();
+        Set<Long> processed = ConcurrentHashMap.newKeySet();
+
+        BatchRunStats stats = executor.run("WEEKLY", patients, patientId -> {
+            processed.add(patientId);
+            if (patientId % 5 == 0) {
+                throw new IllegalStateException("no data for patient " + patientId);
+            }
+        });
+
+        assertThat(processed).hasSize(20);
+        assertThat(stats.total()).isEqualTo(20);
+        assertThat(stats.succeeded()).isEqualTo(16);
+        assertThat(stats.failed()).isEqualTo(4);
+        assertThat(executor.getLastRun()).isSameAs(stats);
+    }
+
+    @Test
+    void runsAtMostTheConfiguredNumberOfWorkersAtOnce() {
+        ReflectionTestUtils.setField(executor, "workers", 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        executor.run("MONTHLY", LongStream.rangeClosed(1, 12).boxed().toList(), patientId -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        });
+
+        assertThat(maxRunning.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,61 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.AdherenceSummary;
+import org.eSante.repositories.InfluxDBRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AdherenceServiceTest {
+
+    private static final Instant START = Instant.parse("2025-11-01T00:00:00Z");
+    private static final Instant STOP = Instant.parse("2025-11-03T00:00:00Z");
+
+    @Mock
+    private InfluxDBRepository influx;
+
+    @InjectMocks
+    private AdherenceService adherenceService;
+
+    @Test
+    void summaryAddsUpDailyCounters() throws Exception {
+        when(influx.getDailyReadingCounts(eq(List.of(1L)), anyList(), eq(START), eq(STOP))).thenReturn(Map.of(1L, Map.of(
+                LocalDate.of(2025, 11, 1), Map.of("tension/systolique", 2L, "glycemie/value", 4L),
+                LocalDate.of(2025, 11, 2), Map.of("tension/systolique", 2L, "poids/value", 1L))));
+
+        AdherenceSummary summary = adherenceService.getSummary(1L, START, STOP);
+
+        assertThat(summary.getAdherenceBySensor())
+                .containsEntry("tension", 100)
+                .containsEntry("glycemie", 50)
+                .containsEntry("poids", 50);
+        assertThat(summary.getDays()).extracting(AdherenceSummary.Day::date)
+                .containsExactly(LocalDate.of(2025, 11, 1), LocalDate.of(2025, 11, 2));
+        assertThat(summary.getDays().get(1).readings()).containsEntry("glycemie", 0).containsEntry("poids", 1);
+    }
+
+    @Test
+    void unavailableCountersAreReported() throws Exception {
+        when(influx.getDailyReadingCounts(any(), anyList(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        assertThatThrownBy(() -> adherenceService.getSummary(1L, START, STOP)).isInstanceOf(IllegalStateException.class);
+    }
+}
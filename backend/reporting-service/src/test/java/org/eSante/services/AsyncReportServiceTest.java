@@ -0,0 +1,122 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.eSante.repositories.InfluxDBRepository;
+import org.eSante.repositories.ReportRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AsyncReportServiceTest {
+
+    @Autowired
+    private AsyncReportService asyncReportService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    @Qualifier("reportGenerationExecutor")
+    private TaskExecutor reportGenerationExecutor;
+
+    @MockBean
+    private ReportGeneratorService reportGeneratorService;
+
+    @MockBean
+    private ReportNotificationClient reportNotificationClient;
+
+    @MockBean
+    private InfluxDBRepository influxDBRepository;
+
+    @BeforeEach
+    void setup() {
+        reportRepository.deleteAll();
+        when(reportGeneratorService.createPendingReport(anyLong(), anyString(), any(), any())).thenAnswer(invocation -> {
+            Report report = new Report(invocation.getArgument(0), invocation.getArgument(1));
+            report.setPeriodStart(LocalDateTime.ofInstant(invocation.<Instant>getArgument(2), ZoneId.systemDefault()));
+            report.setPeriodEnd(LocalDateTime.ofInstant(invocation.<Instant>getArgument(3), ZoneId.systemDefault()));
+            return reportRepository.save(report);
+        });
+    }
+
+    @AfterEach
+    void restore() {
+        ReflectionTestUtils.setField(asyncReportService, "reportGenerationExecutor", reportGenerationExecutor);
+        ReflectionTestUtils.setField(asyncReportService, "staleAfterMinutes", 0L);
+    }
+
+    @Test
+    void submitReturnsThePendingReportAndGeneratesItInTheBackground() {
+        when(reportGeneratorService.completeWeeklyReport(any())).thenAnswer(invocation -> {
+            Report report = invocation.getArgument(0);
+            report.setStatus("READY");
+            return reportRepository.save(report);
+        });
+
+        Report pending = asyncReportService.submitWeeklyReport(1L);
+
+        assertThat(pending.getId()).isNotNull();
+        assertThat(pending.getStatus()).isEqualTo("GENERATING");
+        verify(reportNotificationClient, timeout(5_000)).reportFinished(argThat(report ->
+                report.getId().equals(pending.getId()) && "READY".equals(report.getStatus())));
+        assertThat(reportRepository.findById(pending.getId()).orElseThrow().getStatus()).isEqualTo("READY");
+    }
+
+    @Test
+    void fullQueueMarksTheReportError() {
+        ReflectionTestUtils.setField(asyncReportService, "reportGenerationExecutor", (TaskExecutor) task -> {
+            throw new TaskRejectedException("queue full");
+        });
+
+        Report rejected = asyncReportService.submitMonthlyReport(2L);
+
+        assertThat(rejected.getStatus()).isEqualTo("ERROR");
+        assertThat(reportRepository.findById(rejected.getId()).orElseThrow().getStatus()).isEqualTo("ERROR");
+        verify(reportGeneratorService, never()).completeMonthlyReport(any());
+    }
+
+    @Test
+    void failStaleReportsMarksOnlyReportsStuckInGenerating() {
+        ReflectionTestUtils.setField(asyncReportService, "staleAfterMinutes", 30L);
+        Report lost = saveReport("GENERATING", LocalDateTime.now().minusHours(2));
+        Report running = saveReport("GENERATING", LocalDateTime.now().minusMinutes(5));
+        Report done = saveReport("READY", LocalDateTime.now().minusHours(2));
+
+        assertThat(asyncReportService.failStaleReports()).isEqualTo(1);
+
+        assertThat(reportRepository.findById(lost.getId()).orElseThrow().getStatus()).isEqualTo("ERROR");
+        assertThat(reportRepository.findById(running.getId()).orElseThrow().getStatus()).isEqualTo("GENERATING");
+        assertThat(reportRepository.findById(done.getId()).orElseThrow().getStatus()).isEqualTo("READY");
+    }
+
+    private Report saveReport(String status, LocalDateTime reportDate) {
+        Report report = new Report(3L, "WEEKLY");
+        report.setStatus(status);
+        report.setReportDate(reportDate);
+        return reportRepository.save(report);
+    }
+}
@@ -0,0 +1,128 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.CohortSummary;
+import org.eSante.repositories.InfluxDBRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CohortServiceTest {
+
+    private static final Instant STOP = Instant.parse("2025-11-20T00:00:00Z");
+    private static final Instant START = STOP.minus(10, ChronoUnit.DAYS);
+
+    @Mock
+    private InfluxDBRepository influx;
+
+    @Mock
+    private AdherenceService adherenceService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CohortService cohortService;
+
+    private final ExecutorService queryExecutor = Executors.newFixedThreadPool(3);
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(cohortService, "cohortQueryExecutor", queryExecutor);
+        ReflectionTestUtils.setField(cohortService, "reportingThrottle", new ReportingThrottle(4, 1));
+        when(jdbcTemplate.queryForList("SELECT id FROM patients", Long.class)).thenReturn(List.of(1L, 2L, 3L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryExecutor.shutdownNow();
+    }
+
+    @Test
+    void distributesPerPatientValuesOfTheWholePopulation() throws Exception {
+        // Patient 9 is not in the patients table
+        when(influx.getHeartRateByPatient(eq(START), eq(STOP), isNull()))
+                .thenReturn(Map.of(1L, 60.0, 2L, 80.0, 9L, 200.0));
+        when(adherenceService.getReadingCounts(null, START, STOP))
+                .thenReturn(Map.of(1L, Map.of("tension", 20, "glycemie", 40, "poids", 10)));
+        when(influx.getTimeInRangeByPatient(START, STOP, null)).thenReturn(Map.of(2L, 75.0));
+
+        CohortSummary summary = cohortService.getSummary(null, START, STOP);
+
+        assertThat(summary.getPatientCount()).isEqualTo(3);
+        assertThat(summary.getAverageHeartRate().getMeasurementCount()).isEqualTo(2);
+        assertThat(summary.getAverageHeartRate().getAverage()).isEqualTo(70.0);
+        // Patient 1 fully adherent, 2 and 3 sent nothing
+        assertThat(summary.getAdherence().getMeasurementCount()).isEqualTo(3);
+        assertThat(summary.getAdherence().getMax()).isEqualTo(100.0);
+        assertThat(summary.getAdherence().getMin()).isEqualTo(0.0);
+        assertThat(summary.getTimeInRange().getMeasurementCount()).isEqualTo(1);
+        assertThat(summary.getUnavailable()).isEmpty();
+    }
+
+    @Test
+    void pathologyScopesTheQueriesAndFailedMetricsAreListed() throws Exception {
+        when(jdbcTemplate.queryForList(any(String.class), eq(Long.class), eq("Hypertension"))).thenReturn(List.of(1L, 3L));
+        when(influx.getHeartRateByPatient(START, STOP, List.of(1L, 3L)))
+                .thenReturn(Map.of(1L, 60.0, 3L, 90.0));
+        when(adherenceService.getReadingCounts(List.of(1L, 3L), START, STOP)).thenReturn(Map.of());
+        when(influx.getTimeInRangeByPatient(START, STOP, List.of(1L, 3L)))
+                .thenThrow(new IllegalStateException("timeout"));
+
+        CohortSummary summary = cohortService.getSummary("Hypertension", START, STOP);
+
+        verify(influx).getHeartRateByPatient(START, STOP, List.of(1L, 3L));
+        assertThat(summary.getPathology()).isEqualTo("Hypertension");
+        assertThat(summary.getPatientCount()).isEqualTo(2);
+        assertThat(summary.getAverageHeartRate().getMax()).isEqualTo(90.0);
+        assertThat(summary.getTimeInRange()).isNull();
+        assertThat(summary.getUnavailable()).containsExactly("timeInRange");
+    }
+
+    @Test
+    void queriesRejectedBySaturatedPoolAreListedAsUnavailable() throws Exception {
+        // Only the first query finds room in the pool
+        AtomicInteger accepted = new AtomicInteger();
+        ReflectionTestUtils.setField(cohortService, "cohortQueryExecutor", (Executor) task -> {
+            if (accepted.getAndIncrement() > 0) {
+                throw new RejectedExecutionException("saturated");
+            }
+            queryExecutor.execute(task);
+        });
+        when(influx.getHeartRateByPatient(START, STOP, null)).thenReturn(Map.of(1L, 60.0));
+
+        CohortSummary summary = cohortService.getSummary(null, START, STOP);
+
+        assertThat(summary.getAverageHeartRate().getAverage()).isEqualTo(60.0);
+        assertThat(summary.getAdherence()).isNull();
+        assertThat(summary.getUnavailable()).containsExactly("adherence", "timeInRange");
+        verify(adherenceService, never()).getReadingCounts(any(), any(), any());
+    }
+}
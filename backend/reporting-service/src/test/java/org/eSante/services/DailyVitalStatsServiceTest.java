@@ -0,0 +1,187 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.VitalDailyStats;
+import org.eSante.domain.models.dto.ReportVitals;
+import org.eSante.domain.stats.GlycemicRanges;
+import org.eSante.domain.stats.StatsAccumulator;
+import org.eSante.repositories.InfluxDBRepository;
+import org.eSante.repositories.VitalDailyStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DailyVitalStatsServiceTest {
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    @Mock
+    private InfluxDBRepository influx;
+
+    @Mock
+    private VitalDailyStatsRepository repository;
+
+    @InjectMocks
+    private DailyVitalStatsService service;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(service, "clock", Clock.fixed(Instant.parse("2025-11-20T00:00:00Z"), UTC));
+        ReflectionTestUtils.setField(service, "glucoseRanges", GlycemicRanges.STANDARD);
+        when(influx.toReportVitals(any())).thenAnswer(invocation -> new ReportVitals());
+        when(influx.accumulateReportVitals(anyLong(), any(), any()))
+                .thenAnswer(invocation -> accumulators(1, 100.0));
+    }
+
+    @Test
+    void weekReadsStoredDaysAndOnlyEdgesRaw() throws Exception {
+        List<VitalDailyStats> stored = new ArrayList<>();
+        for (int day = 2; day <= 4; day++) {
+            stored.add(row(LocalDate.of(2025, 11, day), 10, 120.0));
+        }
+        when(repository.findByPatientIdAndDayGreaterThanEqualAndDayLessThan(
+                1L, LocalDate.of(2025, 11, 2), LocalDate.of(2025, 11, 8))).thenReturn(stored);
+        Map<LocalDate, Map<String, StatsAccumulator>> computed = new TreeMap<>();
+        computed.put(LocalDate.of(2025, 11, 6), accumulators(4, 140.0));
+        when(influx.accumulateDailyVitals(eq(1L), any(), any(), eq(UTC))).thenReturn(computed);
+
+        Map<String, StatsAccumulator> merged = service.accumulate(1L,
+                Instant.parse("2025-11-01T10:00:00Z"), Instant.parse("2025-11-08T10:00:00Z"));
+
+        // Partial first and last days
+        verify(influx).accumulateReportVitals(1L, Instant.parse("2025-11-01T10:00:00Z"), Instant.parse("2025-11-02T00:00:00Z"));
+        verify(influx).accumulateReportVitals(1L, Instant.parse("2025-11-08T00:00:00Z"), Instant.parse("2025-11-08T10:00:00Z"));
+        // Missing whole days in one query
+        verify(influx).accumulateDailyVitals(1L, Instant.parse("2025-11-05T00:00:00Z"), Instant.parse("2025-11-08T00:00:00Z"), UTC);
+
+        StatsAccumulator glucose = merged.get("glycemie/value");
+        assertThat(glucose.getCount()).isEqualTo(1 + 3 * 10 + 4 + 1);
+        assertThat(glucose.getMax()).isEqualTo(140.0);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<VitalDailyStats>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        // 5, 6 and 7 November, every series, empty days included
+        assertThat(saved.getValue()).hasSize(3 * InfluxDBRepository.REPORT_SERIES.size());
+        assertThat(saved.getValue()).filteredOn(r -> r.getSampleCount() == 0).hasSize(2 * InfluxDBRepository.REPORT_SERIES.size());
+    }
+
+    @Test
+    void recentDaysAreNotStored() throws Exception {
+        ReflectionTestUtils.setField(service, "clock", Clock.fixed(Instant.parse("2025-11-08T00:30:00Z"), UTC));
+
+        service.accumulate(1L, Instant.parse("2025-11-06T12:00:00Z"), Instant.parse("2025-11-08T00:30:00Z"));
+
+        // 7 November ended less than an hour ago: no whole day to reuse
+        verify(influx).accumulateReportVitals(1L, Instant.parse("2025-11-06T12:00:00Z"), Instant.parse("2025-11-08T00:30:00Z"));
+        verify(influx, never()).accumulateDailyVitals(anyLong(), any(), any(), any());
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void daysCountedWithOtherGlucoseThresholdsAreRecomputed() throws Exception {
+        VitalDailyStats stale = row(LocalDate.of(2025, 11, 3), 10, 120.0);
+        stale.setGlucoseRanges("54/70/140/250");
+        List<VitalDailyStats> stored = List.of(row(LocalDate.of(2025, 11, 2), 10, 120.0), stale);
+        when(repository.findByPatientIdAndDayGreaterThanEqualAndDayLessThan(
+                1L, LocalDate.of(2025, 11, 2), LocalDate.of(2025, 11, 4))).thenReturn(stored);
+        when(influx.accumulateDailyVitals(eq(1L), any(), any(), eq(UTC))).thenReturn(new TreeMap<>());
+
+        Map<String, StatsAccumulator> merged = service.accumulate(1L,
+                Instant.parse("2025-11-02T00:00:00Z"), Instant.parse("2025-11-04T00:00:00Z"));
+
+        verify(repository).deleteAll(List.of(stale));
+        verify(influx).accumulateDailyVitals(1L, Instant.parse("2025-11-03T00:00:00Z"), Instant.parse("2025-11-04T00:00:00Z"), UTC);
+        assertThat(merged.get("glycemie/value").getCount()).isEqualTo(10);
+    }
+
+    @Test
+    void daysStoredSoonAfterTheyEndedAreRecomputed() throws Exception {
+        // Stored 2 hours after 18 November ended, before late readings could arrive
+        VitalDailyStats provisional = row(LocalDate.of(2025, 11, 18), 0, 0.0);
+        provisional.setComputedAt(LocalDateTime.ofInstant(Instant.parse("2025-11-19T02:00:00Z"), ZoneId.systemDefault()));
+        List<VitalDailyStats> stored = List.of(row(LocalDate.of(2025, 11, 17), 10, 120.0), provisional);
+        when(repository.findByPatientIdAndDayGreaterThanEqualAndDayLessThan(
+                1L, LocalDate.of(2025, 11, 17), LocalDate.of(2025, 11, 19))).thenReturn(stored);
+        Map<LocalDate, Map<String, StatsAccumulator>> computed = new TreeMap<>();
+        computed.put(LocalDate.of(2025, 11, 18), accumulators(3, 110.0));
+        when(influx.accumulateDailyVitals(eq(1L), any(), any(), eq(UTC))).thenReturn(computed);
+
+        Map<String, StatsAccumulator> merged = service.accumulate(1L,
+                Instant.parse("2025-11-17T00:00:00Z"), Instant.parse("2025-11-19T00:00:00Z"));
+
+        verify(repository).deleteAll(List.of(provisional));
+        verify(influx).accumulateDailyVitals(1L, Instant.parse("2025-11-18T00:00:00Z"), Instant.parse("2025-11-19T00:00:00Z"), UTC);
+        assertThat(merged.get("glycemie/value").getCount()).isEqualTo(13);
+    }
+
+    @Test
+    void failedRawReadFailsTheReportInsteadOfCountingEmptyDays() throws Exception {
+        when(repository.findByPatientIdAndDayGreaterThanEqualAndDayLessThan(anyLong(), any(), any())).thenReturn(List.of());
+        when(influx.accumulateDailyVitals(eq(1L), any(), any(), eq(UTC))).thenThrow(new TimeoutException("slow"));
+
+        assertThatThrownBy(() -> service.accumulate(1L,
+                Instant.parse("2025-11-02T00:00:00Z"), Instant.parse("2025-11-04T00:00:00Z")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        verify(repository, never()).saveAll(any());
+    }
+
+    private static Map<String, StatsAccumulator> accumulators(int points, double value) {
+        Map<String, StatsAccumulator> bySeries = InfluxDBRepository.newReportAccumulators(GlycemicRanges.STANDARD);
+        for (int i = 0; i < points; i++) {
+            bySeries.values().forEach(acc -> acc.add(value));
+        }
+        return bySeries;
+    }
+
+    private static VitalDailyStats row(LocalDate day, int points, double value) {
+        StatsAccumulator acc = StatsAccumulator.withRanges(GlycemicRanges.STANDARD);
+        for (int i = 0; i < points; i++) {
+            acc.add(value);
+        }
+        VitalDailyStats row = new VitalDailyStats(1L, day, "glycemie/value");
+        row.setGlucoseRanges(GlycemicRanges.STANDARD.signature());
+        row.setSampleCount(acc.getCount());
+        row.setMean(acc.getMean());
+        row.setM2(acc.getM2());
+        row.setMinValue(acc.getMin());
+        row.setMaxValue(acc.getMax());
+        long[] bands = acc.getBands();
+        row.setVeryLowCount(bands[GlycemicRanges.VERY_LOW]);
+        row.setLowCount(bands[GlycemicRanges.LOW]);
+        row.setInRange(bands[GlycemicRanges.IN_RANGE]);
+        row.setHighCount(bands[GlycemicRanges.HIGH]);
+        row.setVeryHighCount(bands[GlycemicRanges.VERY_HIGH]);
+        row.setSketch(acc.getSketch().toBytes());
+        return row;
+    }
+}
@@ -0,0 +1,215 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.dto.DashboardPoint;
+import org.eSante.domain.models.dto.DashboardSummary;
+import org.eSante.repositories.InfluxDBRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DashboardServiceTest {
+
+    @Mock
+    private InfluxDBRepository influx;
+
+    @Mock
+    private DataAggregationService dataAgg;
+
+    @Mock
+    private LiveVitalsClient liveVitals;
+
+    @InjectMocks
+    private DashboardService dashboardService;
+
+    private final ExecutorService queryExecutor = Executors.newFixedThreadPool(16);
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(dashboardService, "dashboardQueryExecutor", queryExecutor);
+        ReflectionTestUtils.setField(dashboardService, "queryTimeoutMs", 3_000L);
+        ReflectionTestUtils.setField(dashboardService, "cacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(dashboardService, "cacheMaxSize", 100L);
+        dashboardService.initCache();
+    }
+
+    @AfterEach
+    void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    @Test
+    void getSummary_coalescesConcurrentViewersOfSamePatient() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        when(influx.getLatestValues(eq(1L), anyCollection())).thenAnswer(invocation -> {
+            released.await(5, TimeUnit.SECONDS);
+            return Map.of("fc/value", new DashboardPoint("2025-11-08T10:00:00Z", 72.0));
+        });
+
+        ExecutorService viewers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DashboardSummary>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(viewers.submit(() -> dashboardService.getSummary(1L, 60)));
+            }
+            Thread.sleep(200);
+            released.countDown();
+
+            DashboardSummary first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<DashboardSummary> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(first.getHeartRate().getValue()).isEqualTo(72.0);
+        } finally {
+            viewers.shutdownNow();
+        }
+
+        verify(influx, times(1)).getLatestValues(eq(1L), anyCollection());
+    }
+
+    @Test
+    void getSummary_keysByPatientAndWindow() {
+        dashboardService.getSummary(1L, 60);
+        dashboardService.getSummary(1L, 60);
+        dashboardService.getSummary(1L, 1440);
+        dashboardService.getSummary(2L, 60);
+
+        verify(dataAgg, times(3)).fetchAlerts(anyLong(), any(), any());
+    }
+
+    @Test
+    void buildSummary_returnsPartialResultWhenAQueryTimesOut() {
+        ReflectionTestUtils.setField(dashboardService, "queryTimeoutMs", 200L);
+        CountDownLatch never = new CountDownLatch(1);
+        when(influx.getSeriesMean(eq(1L), eq("glycemie"), anyString(), any(), any(), anyString())).thenAnswer(invocation -> {
+            never.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(influx.getLatestValues(eq(1L), anyCollection()))
+                .thenReturn(Map.of("fc/value", new DashboardPoint("2025-11-08T10:00:00Z", 72.0)));
+
+        long startedAt = System.nanoTime();
+        DashboardSummary summary = dashboardService.buildSummary(1L, 60);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        never.countDown();
+
+        assertThat(elapsedMs).isLessThan(2_000);
+        assertThat(summary.getUnavailable()).containsExactly("seriesGlucose");
+        assertThat(summary.getSeriesGlucose()).isNull();
+        assertThat(summary.getHeartRate().getValue()).isEqualTo(72.0);
+    }
+
+    @Test
+    void buildSummary_interruptsTheQueryItGivesUpOn() throws Exception {
+        ReflectionTestUtils.setField(dashboardService, "queryTimeoutMs", 200L);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(influx.getSeriesMean(eq(1L), eq("glycemie"), anyString(), any(), any(), anyString())).thenAnswer(invocation -> {
+            try {
+                new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return List.of();
+        });
+
+        DashboardSummary summary = dashboardService.buildSummary(1L, 60);
+
+        assertThat(summary.getUnavailable()).containsExactly("seriesGlucose");
+        // The repository cancels its Flux stream when interrupted
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void buildSummary_listsQueriesRejectedBySaturatedPoolAsUnavailable() {
+        ReflectionTestUtils.setField(dashboardService, "dashboardQueryExecutor", (Executor) command -> {
+            throw new RejectedExecutionException("saturated");
+        });
+
+        DashboardSummary summary = dashboardService.buildSummary(1L, 60);
+
+        assertThat(summary.getUnavailable()).hasSize(8).contains("latestValues", "recentAlerts");
+        // Nothing ran on the request thread
+        verify(influx, never()).getLatestValues(anyLong(), anyCollection());
+        verify(dataAgg, never()).fetchAlerts(anyLong(), any(), any());
+    }
+
+    @Test
+    void buildSummary_readsOnlySeriesMissingFromLiveVitalsFromInflux() {
+        String recent = Instant.now().minusSeconds(5).toString();
+        Map<String, DashboardPoint> live = new HashMap<>();
+        live.put("fc/value", new DashboardPoint(recent, 75.0));
+        live.put("spO2/value", new DashboardPoint(recent, 97.0));
+        live.put("glycemie/value", new DashboardPoint(recent, 1.1));
+        live.put("tension/systolique", new DashboardPoint(recent, 121.0));
+        live.put("tension/diastolique", new DashboardPoint(recent, 79.0));
+        live.put("STEPS/value", new DashboardPoint(recent, 4200.0));
+        when(liveVitals.getLatestValues(1L)).thenReturn(live);
+        when(influx.getLatestValues(eq(1L), anyCollection()))
+                .thenReturn(Map.of("poids/value", new DashboardPoint("2025-11-07T08:00:00Z", 70.5)));
+
+        DashboardSummary summary = dashboardService.buildSummary(1L, 60);
+
+        verify(influx).getLatestValues(1L, List.of("poids/value"));
+        assertThat(summary.getHeartRate().getValue()).isEqualTo(75.0);
+        assertThat(summary.getWeight().getValue()).isEqualTo(70.5);
+        assertThat(summary.getUnavailable()).isEmpty();
+    }
+
+    @Test
+    void buildSummary_readsLiveValuesOlderThanTheMaxAgeFromInflux() {
+        ReflectionTestUtils.setField(dashboardService, "liveMaxAgeMinutes", 60L);
+        String recent = Instant.now().minusSeconds(5).toString();
+        String stale = Instant.now().minus(2, ChronoUnit.HOURS).toString();
+        Map<String, DashboardPoint> live = new HashMap<>();
+        live.put("fc/value", new DashboardPoint(recent, 75.0));
+        live.put("spO2/value", new DashboardPoint(recent, 97.0));
+        live.put("glycemie/value", new DashboardPoint(recent, 1.1));
+        live.put("poids/value", new DashboardPoint(recent, 70.5));
+        live.put("tension/systolique", new DashboardPoint(stale, 121.0));
+        live.put("tension/diastolique", new DashboardPoint(stale, 79.0));
+        live.put("STEPS/value", new DashboardPoint(recent, 4200.0));
+        when(liveVitals.getLatestValues(1L)).thenReturn(live);
+        when(influx.getLatestValues(eq(1L), anyCollection())).thenReturn(Map.of());
+
+        DashboardSummary summary = dashboardService.buildSummary(1L, 60);
+
+        verify(influx).getLatestValues(1L, List.of("tension/systolique", "tension/diastolique"));
+        // Not in InfluxDB's window either: the stale live value is not shown
+        assertThat(summary.getBpSystolic()).isNull();
+        assertThat(summary.getHeartRate().getValue()).isEqualTo(75.0);
+    }
+}
@@ -7,7 +7,10 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -41,4 +44,45 @@ class PDFExportServiceTest {
             assertFalse(text.contains("Generated automatically"), "Footer message must be removed");
         }
     }
+
+    @Test
+    void generateMonthlyPDF_listsClinicalRecommendations() throws Exception {
+        ReportData data = new ReportData();
+        data.setPatientId(3L);
+        data.setPatientName("Chloé Petit");
+        data.setPeriodStart(LocalDateTime.of(2025, 11, 1, 10, 0));
+        data.setPeriodEnd(LocalDateTime.of(2025, 12, 1, 10, 0));
+        data.setRecommendations(List.of("Temps sous la plage élevé — risque d’hypoglycémie, revoir le traitement."));
+
+        byte[] pdf = pdfExportService.generateMonthlyPDF(data);
+
+        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdf))) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Clinical Recommendations"), "Recommendations section should be rendered");
+            assertTrue(text.contains("risque d’hypoglycémie"), "Recommendation text should appear in PDF content");
+        }
+    }
+
+    @Test
+    void writePDF_streamsIntoCallerStreamWithoutClosingIt() throws Exception {
+        ReportData data = new ReportData();
+        data.setPatientId(2L);
+        data.setPatientName("Bob Durand");
+        data.setPeriodStart(LocalDateTime.of(2025, 11, 1, 10, 0));
+        data.setPeriodEnd(LocalDateTime.of(2025, 12, 1, 10, 0));
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        target.write("prefix".getBytes());
+        pdfExportService.writePDF(data, "MONTHLY", target);
+        // Still open: the caller decides when the stream ends
+        target.write("suffix".getBytes());
+
+        byte[] written = target.toByteArray();
+        byte[] pdf = Arrays.copyOfRange(written, "prefix".length(), written.length - "suffix".length());
+        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdf))) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("MONTHLY CLINICAL REPORT"), "Title of the requested report type should be rendered");
+            assertTrue(text.contains("Bob Durand"), "Patient name should appear in PDF content");
+        }
+    }
 }
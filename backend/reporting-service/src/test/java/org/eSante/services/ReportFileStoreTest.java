@@ -0,0 +1,46 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportFileStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ReportFileStore reportFileStore = new ReportFileStore();
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(reportFileStore, "storagePath", tempDir.toString());
+    }
+
+    @Test
+    void reportsStoredWithinTheSameSecondKeepTheirOwnFile() throws Exception {
+        Report first = report(LocalDateTime.of(2025, 11, 16, 20, 0));
+        Report second = report(LocalDateTime.of(2025, 11, 16, 20, 0));
+
+        Path firstFile = reportFileStore.store("first".getBytes(), first, "WEEKLY");
+        Path secondFile = reportFileStore.store("second report".getBytes(), second, "WEEKLY");
+
+        assertThat(secondFile).isNotEqualTo(firstFile);
+        assertThat(Files.readString(firstFile)).isEqualTo("first");
+        assertThat(Files.readString(secondFile)).isEqualTo("second report");
+        assertThat(second.getFileSize()).isEqualTo(Files.size(secondFile));
+    }
+
+    private static Report report(LocalDateTime date) {
+        Report report = new Report(1L, "WEEKLY");
+        report.setReportDate(date);
+        return report;
+    }
+}
@@ -8,20 +8,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.Base64;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
@@ -37,6 +39,12 @@ class ReportGeneratorServiceTest {
     @Mock
     private PDFExportService pdfExportService;
 
+    @Spy
+    private ReportingThrottle reportingThrottle = new ReportingThrottle(1, 1);
+
+    @Spy
+    private ReportFileStore reportFileStore = new ReportFileStore();
+
     @InjectMocks
     private ReportGeneratorService reportGeneratorService;
 
@@ -45,7 +53,7 @@ class ReportGeneratorServiceTest {
     @BeforeEach
     void setup() throws Exception {
         tempDir = Files.createTempDirectory("reports-test-");
-        ReflectionTestUtils.setField(reportGeneratorService, "storagePath", tempDir.toString());
+        ReflectionTestUtils.setField(reportFileStore, "storagePath", tempDir.toString());
 
         doAnswer(invocation -> {
             Report report = invocation.getArgument(0);
@@ -66,7 +74,11 @@ class ReportGeneratorServiceTest {
         when(dataAggregationService.aggregateWeeklyData(anyLong(), any(Instant.class), any(Instant.class))).thenReturn(aggregated);
 
         byte[] pdfBytes = "dummy-pdf-content".getBytes();
-        when(pdfExportService.generateWeeklyPDF(aggregated)).thenReturn(pdfBytes);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write(pdfBytes);
+            return null;
+        }).when(pdfExportService).writePDF(eq(aggregated), eq("WEEKLY"), any(OutputStream.class));
 
         Report report = reportGeneratorService.generateWeeklyReport(1L);
 
@@ -75,7 +87,9 @@ class ReportGeneratorServiceTest {
         assertThat(report.getSummary()).contains("Alice Martin");
         assertThat(report.getSummary()).doesNotContain("ID");
 
-        assertThat(report.getContent()).isEqualTo(Base64.getEncoder().encodeToString(pdfBytes));
+        assertThat(report.getContent()).isNull();
+        assertThat(report.getExportFormat()).isEqualTo("PDF");
+        assertThat(report.getFileSize()).isEqualTo((long) pdfBytes.length);
         assertThat(report.getFilePath()).isNotBlank();
 
         Path storedPath = Path.of(report.getFilePath());
@@ -0,0 +1,177 @@
+package org.eSante.services;
+
+import org.eSante.domain.models.Report;
+import org.eSante.domain.models.ReportJob;
+import org.eSante.domain.models.ReportJobItem;
+import org.eSante.repositories.InfluxDBRepository;
+import org.eSante.repositories.ReportJobItemRepository;
+import org.eSante.repositories.ReportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReportJobServiceTest {
+
+    private static final Instant STOP = Instant.parse("2025-11-16T20:00:00Z");
+    private static final Instant START = STOP.minus(7, ChronoUnit.DAYS);
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    @SpyBean
+    private ReportJobItemRepository reportJobItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private InfluxDBRepository influxDBRepository;
+
+    @MockBean
+    private ReportGeneratorService reportGeneratorService;
+
+    @BeforeEach
+    void setup() {
+        reportJobItemRepository.deleteAll();
+        reportJobRepository.deleteAll();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS patients (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.update("DELETE FROM patients");
+        jdbcTemplate.update("INSERT INTO patients (id) VALUES (1), (2), (3)");
+        when(reportGeneratorService.generateWeeklyReport(anyLong(), any(), any())).thenAnswer(invocation -> ready());
+    }
+
+    @Test
+    void createJobStoresTheJobWithOnePendingItemPerPatient() {
+        ReportJob job = reportJobService.createJob("WEEKLY", START, STOP);
+
+        assertThat(job.getStatus()).isEqualTo("RUNNING");
+        assertThat(job.getTotalItems()).isEqualTo(3);
+        assertThat(reportJobItemRepository.findByJobIdAndStatusIn(job.getId(), List.of("PENDING")))
+                .extracting(ReportJobItem::getPatientId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void failedItemInsertLeavesNoJobBehind() {
+        doThrow(new DataAccessResourceFailureException("connection lost")).when(reportJobItemRepository).saveAll(anyIterable());
+
+        assertThatThrownBy(() -> reportJobService.createJob("WEEKLY", START, STOP))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // Otherwise the next resume would close a RUNNING job without items as COMPLETED
+        assertThat(reportJobRepository.findByStatusOrderByCreatedAtAsc("RUNNING")).isEmpty();
+    }
+
+    @Test
+    void interruptedJobIsResumedOnceWhenTwoRunsPickItUp() {
+        ReportJob job = reportJobService.createJob("WEEKLY", START, STOP);
+        // Left RUNNING by a previous instance, which stopped sending heartbeats, one patient already done
+        job.setClaimedBy("previous-instance");
+        job.setClaimedAt(LocalDateTime.now().minusHours(1));
+        reportJobRepository.save(job);
+        ReportJobItem done = reportJobItemRepository.findByJobIdAndStatusIn(job.getId(), List.of("PENDING")).get(0);
+        done.setStatus("DONE");
+        reportJobItemRepository.save(done);
+
+        // The scheduled run starts while the startup resume is generating
+        AtomicBoolean concurrentRun = new AtomicBoolean();
+        when(reportGeneratorService.generateWeeklyReport(anyLong(), any(), any())).thenAnswer(invocation -> {
+            if (concurrentRun.compareAndSet(false, true)) {
+                reportJobService.resumeInterrupted("WEEKLY");
+            }
+            return ready();
+        });
+
+        reportJobService.resumeInterrupted("WEEKLY");
+
+        verify(reportGeneratorService, times(2)).generateWeeklyReport(anyLong(), any(), any());
+        ReportJob finished = reportJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(finished.getStatus()).isEqualTo("COMPLETED");
+        assertThat(reportJobService.progress(finished).getDone()).isEqualTo(3);
+    }
+
+    @Test
+    void jobOfALiveInstanceIsNotTakenOver() {
+        ReportJob job = reportJobService.createJob("WEEKLY", START, STOP);
+        // Still running on another instance, which refreshed its claim a minute ago
+        job.setClaimedBy("other-instance");
+        job.setClaimedAt(LocalDateTime.now().minusMinutes(1));
+        reportJobRepository.save(job);
+
+        reportJobService.resumeInterrupted("WEEKLY");
+
+        verify(reportGeneratorService, never()).generateWeeklyReport(anyLong(), any(), any());
+        assertThat(reportJobRepository.findById(job.getId()).orElseThrow().getClaimedBy()).isEqualTo("other-instance");
+    }
+
+    @Test
+    void failedItemsOfACompletedJobAreRetriedByTheNextResume() {
+        ReportJob job = reportJobService.createJob("WEEKLY", START, STOP);
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        when(reportGeneratorService.generateWeeklyReport(anyLong(), any(), any())).thenAnswer(invocation -> {
+            if (invocation.<Long>getArgument(0) == 2L && failedOnce.compareAndSet(false, true)) {
+                throw new IllegalStateException("InfluxDB unavailable");
+            }
+            return ready();
+        });
+        reportJobService.runJob(job);
+        assertThat(reportJobRepository.findById(job.getId()).orElseThrow().getStatus()).isEqualTo("COMPLETED_WITH_ERRORS");
+
+        reportJobService.resumeInterrupted("WEEKLY");
+
+        // Only patient 2 is generated again
+        verify(reportGeneratorService, times(4)).generateWeeklyReport(anyLong(), any(), any());
+        ReportJob retried = reportJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(retried.getStatus()).isEqualTo("COMPLETED");
+        assertThat(retried.getAttempts()).isEqualTo(2);
+        assertThat(reportJobService.progress(retried).getFailed()).isZero();
+    }
+
+    @Test
+    void failedItemsAreFinalOnceTheJobHasUsedItsAttempts() {
+        ReportJob job = reportJobService.createJob("WEEKLY", START, STOP);
+        job.setStatus("COMPLETED_WITH_ERRORS");
+        job.setAttempts(3);
+        reportJobRepository.save(job);
+
+        reportJobService.resumeInterrupted("WEEKLY");
+
+        verify(reportGeneratorService, never()).generateWeeklyReport(anyLong(), any(), any());
+        assertThat(reportJobRepository.findById(job.getId()).orElseThrow().getStatus()).isEqualTo("COMPLETED_WITH_ERRORS");
+    }
+
+    private static Report ready() {
+        Report report = new Report(1L, "WEEKLY");
+        report.setId(42L);
+        report.setStatus("READY");
+        return report;
+    }
+}
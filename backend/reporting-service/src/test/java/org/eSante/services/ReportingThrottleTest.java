@@ -0,0 +1,67 @@
+package org.eSante.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ReportingThrottleTest {
+
+    @Test
+    void permitIsReleasedWhenTheWorkThrows() {
+        ReportingThrottle throttle = new ReportingThrottle(1, 1);
+
+        assertThatThrownBy(() -> throttle.withInfluxPermit(() -> {
+            throw new IllegalStateException("influx down");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> throttle.withPdfPermit(() -> {
+            throw new IllegalStateException("render failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // The single permits are available again
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            assertThat(throttle.withInfluxPermit(() -> "ok")).isEqualTo("ok");
+            assertThat(throttle.withPdfPermit(() -> "ok")).isEqualTo("ok");
+        });
+    }
+
+    @Test
+    void boundsConcurrentWorkToThePermitCount() throws Exception {
+        ReportingThrottle throttle = new ReportingThrottle(2, 1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(workers.submit(() -> throttle.withInfluxPermit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return running.decrementAndGet();
+                })));
+            }
+            for (Future<Integer> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+}
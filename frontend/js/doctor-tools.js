@@ -20,11 +20,11 @@ async function fetchPatientEmail(pid) {
 
 async function fetchLastReportBase64(pid) {
   try {
-    const res = await fetch(`/api/reports/patient/${encodeURIComponent(pid)}`);
+    // Newest first: the first page of one report is the latest
+    const res = await fetch(`/api/reports/patient/${encodeURIComponent(pid)}?limit=1`);
     if (!res.ok) return null;
     const items = await res.json();
     if (!Array.isArray(items) || !items.length) return null;
-    // assume first item is the latest
     const id = items[0].id;
     const b64Res = await fetch(`/api/reports/${encodeURIComponent(id)}/base64`);
     if (!b64Res.ok) return null;
@@ -72,30 +72,59 @@ async function generateReport(pid, minutes) {
   }
 }
 
+const HISTORY_PAGE_SIZE = 50;
+
+function historyRow(r) {
+  const dt = r.reportDate || r.createdAt || '';
+  const type = r.reportType || 'N/A';
+  const st = r.status || '';
+  const id = r.id;
+  const link = `/api/reports/${id}/export`;
+  return `<tr><td>${dt}</td><td>${type}</td><td>${st}</td><td><a href="${link}" target="_blank">Ouvrir le PDF</a></td></tr>`;
+}
+
+// The listing is paginated: X-Next-Cursor, when present, fetches the following page
+async function fetchHistoryPage(pid, cursor) {
+  let url = `/api/reports/patient/${encodeURIComponent(pid)}?limit=${HISTORY_PAGE_SIZE}`;
+  if (cursor) url += `&cursor=${encodeURIComponent(cursor)}`;
+  const res = await fetch(url);
+  if (!res.ok) throw new Error('history failed');
+  const items = await res.json();
+  return { items: Array.isArray(items) ? items : [], next: res.headers.get('X-Next-Cursor') };
+}
+
 async function loadHistory(pid) {
   const box = qs('#report-history');
   box.innerHTML = '<div>Chargement…</div>';
   try {
-    const res = await fetch(`/api/reports/patient/${encodeURIComponent(pid)}`);
-    if (!res.ok) throw new Error('history failed');
-    const items = await res.json();
-    if (!Array.isArray(items) || !items.length) {
+    const page = await fetchHistoryPage(pid);
+    if (!page.items.length) {
       box.innerHTML = '<div>Aucun rapport trouvé.</div>';
       return;
     }
-    const rows = items.map(r => {
-      const dt = r.reportDate || r.createdAt || '';
-      const type = r.reportType || 'N/A';
-      const st = r.status || '';
-      const id = r.id;
-      const link = `/api/reports/${id}/export`;
-      return `<tr><td>${dt}</td><td>${type}</td><td>${st}</td><td><a href="${link}" target="_blank">Ouvrir le PDF</a></td></tr>`;
-    }).join('');
     box.innerHTML = `
       <table class="table">
         <thead><tr><th>Date</th><th>Type</th><th>Statut</th><th>PDF</th></tr></thead>
-        <tbody>${rows}</tbody>
-      </table>`;
+        <tbody>${page.items.map(historyRow).join('')}</tbody>
+      </table>
+      <button type="button" id="rp-history-more">Plus de rapports</button>`;
+    const body = box.querySelector('tbody');
+    const more = box.querySelector('#rp-history-more');
+    let next = page.next;
+    more.style.display = next ? '' : 'none';
+    more.addEventListener('click', async () => {
+      more.disabled = true;
+      try {
+        const following = await fetchHistoryPage(pid, next);
+        body.insertAdjacentHTML('beforeend', following.items.map(historyRow).join(''));
+        next = following.next;
+        more.style.display = next ? '' : 'none';
+      } catch (e) {
+        toast('Impossible de charger la suite de l\'historique', true);
+      } finally {
+        more.disabled = false;
+      }
+    });
   } catch (e) {
     box.innerHTML = '<div>Impossible de charger l\'historique.</div>';
   }
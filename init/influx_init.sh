@@ -7,10 +7,11 @@ HOST_URL=${INFLUX_HOST_URL:-http://localhost:8086}
 HOST_URL=$(printf "%s" "$HOST_URL" | tr -d '\r')
 echo "Waiting for InfluxDB to be ready at ${HOST_URL}..."
 
-# Run once: guard file for idempotency
+# Run once: guard files for idempotency
 SEED_FLAG="/docker-entrypoint-initdb.d/.influx_seed_done"
-if [ -f "$SEED_FLAG" ]; then
-  echo "Seed already applied. Skipping."
+ROLLUP_FLAG="/docker-entrypoint-initdb.d/.influx_rollups_done"
+if [ -f "$SEED_FLAG" ] && [ -f "$ROLLUP_FLAG" ]; then
+  echo "Seed and rollups already applied. Skipping."
   exit 0
 fi
 
@@ -20,8 +21,6 @@ until influx ping --host-url "$HOST_URL" >/dev/null 2>&1; do
   sleep 5
 done
 
-echo "Seeding test data into InfluxDB..."
-
 # Settings align with docker-compose DOCKER_INFLUXDB_INIT_* envs
 # TOKEN is required (provided by the official image during setup)
 TOKEN="${DOCKER_INFLUXDB_INIT_ADMIN_TOKEN:?DOCKER_INFLUXDB_INIT_ADMIN_TOKEN is required}"
@@ -34,6 +33,11 @@ if ! influx bucket list --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" | g
   influx bucket create --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" --name "$BUCKET" >/dev/null
 fi
 
+if [ -f "$SEED_FLAG" ]; then
+  echo "Seed already applied. Skipping."
+else
+echo "Seeding test data into InfluxDB..."
+
 now_ts() { date +%s; }
 NOW=$(now_ts)
 HOUR=3600
@@ -114,3 +118,80 @@ done
 
 touch "$SEED_FLAG"
 echo "InfluxDB seed completed."
+fi
+
+###############################################################################
+# Rollups: mean/min/max/count/sum of every vital per 1m, 1h and 1d window, kept
+# by InfluxDB tasks in <bucket>_1m, _1h and _1d. Long-range chart queries read
+# these instead of re-aggregating raw points, and the daily _count fields serve as
+# per-patient adherence counters (see InfluxRollup in influx-common,
+# whose tiers, retentions and task offsets must match the values below).
+# Each tier is computed from raw data, and each run also rewrites the previous
+# window to pick up late points. Points are stamped at the window start.
+###############################################################################
+if [ -f "$ROLLUP_FLAG" ]; then
+  echo "Rollups already applied. Skipping."
+  exit 0
+fi
+
+# rollup_flux <every> <range start> <target bucket>
+rollup_flux() {
+  cat <<EOF
+data = from(bucket: "$BUCKET")
+  |> range(start: $2)
+  |> filter(fn: (r) => r._measurement =~ /^(fc|spO2|tension|glycemie|poids|STEPS)\$/)
+  |> filter(fn: (r) => r._field == "value" or r._field == "systolique" or r._field == "diastolique")
+  |> keep(columns: ["_start", "_stop", "_time", "_value", "_measurement", "_field", "patient"])
+  |> group(columns: ["_measurement", "_field", "patient"])
+  |> toFloat()
+
+rollup = (fn, suffix) => data
+  |> aggregateWindow(every: $1, fn: fn, createEmpty: false, timeSrc: "_start")
+  |> toFloat()
+  |> map(fn: (r) => ({r with _field: r._field + suffix}))
+  |> to(bucket: "$3", org: "$ORG")
+
+rollup(fn: mean, suffix: "_mean")
+rollup(fn: min, suffix: "_min")
+rollup(fn: max, suffix: "_max")
+rollup(fn: count, suffix: "_count")
+rollup(fn: sum, suffix: "_sum")
+EOF
+}
+
+# create_rollup <suffix> <every> <task range> <retention> <task offset> <backfill range>
+create_rollup() {
+  target="${BUCKET}_$1"
+  if ! influx bucket list --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" | grep -q "\b$target\b"; then
+    echo "Creating rollup bucket '$target' (retention $4)..."
+    influx bucket create --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" --name "$target" --retention "$4" >/dev/null
+  fi
+
+  task="rollup_$1"
+  if ! influx task list --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" | grep -q "\b$task\b"; then
+    echo "Creating task '$task' (every $2)..."
+    script=$(mktemp)
+    {
+      echo "option task = {name: \"$task\", every: $2, offset: $5}"
+      echo
+      rollup_flux "$2" "$3" "$target"
+    } > "$script"
+    influx task create --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" --file "$script" >/dev/null
+    rm -f "$script"
+  fi
+
+  # Tasks only roll up new windows: backfill what is already stored
+  echo "Backfilling '$target' over the last $6..."
+  script=$(mktemp)
+  rollup_flux "$2" "-$6" "$target" > "$script"
+  influx query --host-url "$HOST_URL" --org "$ORG" --token "$TOKEN" --file "$script" >/dev/null
+  rm -f "$script"
+}
+
+# Retention 0 = forever
+create_rollup 1m 1m -2m 90d 15s 90d
+create_rollup 1h 1h -2h 730d 2m 730d
+create_rollup 1d 1d -2d 0 10m 3650d
+
+touch "$ROLLUP_FLAG"
+echo "InfluxDB rollups ready."
@@ -77,9 +77,80 @@ CREATE TABLE IF NOT EXISTS reports (
     period_end TIMESTAMP,
     export_format VARCHAR(50),
     file_path VARCHAR(500),
+    file_size BIGINT,
     status VARCHAR(20) DEFAULT 'GENERATING'
     );
 
+-- Report listing is keyset-paginated on (report_date, id), newest first, undated reports last
+DROP INDEX IF EXISTS idx_reports_patient_date;
+CREATE INDEX IF NOT EXISTS idx_reports_patient_date_nulls_last ON reports(patient_id, report_date DESC NULLS LAST, id DESC);
+
+-- PDFs now live only in the report file store (file_path); content is kept for legacy rows
+DO $$ BEGIN ALTER TABLE reports ADD COLUMN file_size BIGINT; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+
+-- Batch report jobs (scheduler) and their per-patient checkpoints, so an
+-- interrupted weekly/monthly run resumes where it stopped
+CREATE TABLE IF NOT EXISTS report_jobs (
+    id SERIAL PRIMARY KEY,
+    job_type VARCHAR(20) NOT NULL,
+    period_start TIMESTAMP NOT NULL,
+    period_end TIMESTAMP NOT NULL,
+    status VARCHAR(30) DEFAULT 'RUNNING',
+    total_items INT DEFAULT 0,
+    created_at TIMESTAMP DEFAULT NOW(),
+    finished_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS report_job_items (
+    id SERIAL PRIMARY KEY,
+    job_id INT NOT NULL REFERENCES report_jobs(id) ON DELETE CASCADE,
+    patient_id INT NOT NULL REFERENCES patients(id) ON DELETE CASCADE,
+    status VARCHAR(20) DEFAULT 'PENDING',
+    report_id INT REFERENCES reports(id) ON DELETE SET NULL,
+    error_message TEXT,
+    updated_at TIMESTAMP DEFAULT NOW(),
+    UNIQUE (job_id, patient_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_report_job_items_job_status ON report_job_items(job_id, status);
+
+-- Instance running a job, so a RUNNING job is resumed by a single thread
+DO $$ BEGIN ALTER TABLE report_jobs ADD COLUMN claimed_by VARCHAR(64); EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+-- Heartbeat of that claim: another instance only takes the job over once it is stale
+DO $$ BEGIN ALTER TABLE report_jobs ADD COLUMN claimed_at TIMESTAMP; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+-- Runs of a job: one that completed with errors is run again up to reporting.jobs.max-attempts
+DO $$ BEGIN ALTER TABLE report_jobs ADD COLUMN attempts INT DEFAULT 1; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+
+-- Mergeable per-day vital statistics (count, Welford mean/M2, min/max, in-range
+-- count, quantile sketch), so reports only re-read their partial edge days raw
+CREATE TABLE IF NOT EXISTS vital_daily_stats (
+    id BIGSERIAL PRIMARY KEY,
+    patient_id INT NOT NULL REFERENCES patients(id) ON DELETE CASCADE,
+    stat_day DATE NOT NULL,
+    series VARCHAR(50) NOT NULL,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    mean DOUBLE PRECISION,
+    m2 DOUBLE PRECISION,
+    min_value DOUBLE PRECISION,
+    max_value DOUBLE PRECISION,
+    very_low_count BIGINT DEFAULT 0,
+    low_count BIGINT DEFAULT 0,
+    in_range BIGINT DEFAULT 0,
+    high_count BIGINT DEFAULT 0,
+    very_high_count BIGINT DEFAULT 0,
+    glucose_ranges VARCHAR(50),
+    sketch BYTEA,
+    computed_at TIMESTAMP DEFAULT NOW(),
+    UNIQUE (patient_id, stat_day, series)
+);
+
+-- Glucose band counts (time below/above range); rows without them are recomputed
+DO $$ BEGIN ALTER TABLE vital_daily_stats ADD COLUMN very_low_count BIGINT DEFAULT 0; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+DO $$ BEGIN ALTER TABLE vital_daily_stats ADD COLUMN low_count BIGINT DEFAULT 0; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+DO $$ BEGIN ALTER TABLE vital_daily_stats ADD COLUMN high_count BIGINT DEFAULT 0; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+DO $$ BEGIN ALTER TABLE vital_daily_stats ADD COLUMN very_high_count BIGINT DEFAULT 0; EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+DO $$ BEGIN ALTER TABLE vital_daily_stats ADD COLUMN glucose_ranges VARCHAR(50); EXCEPTION WHEN duplicate_column THEN NULL; END $$;
+
 -- Observations for doctors (notes linked to patients)
 CREATE TABLE IF NOT EXISTS observations (
     id SERIAL PRIMARY KEY,